@@ -0,0 +1,33 @@
+package org.example.App.bench;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.results.format.ResultFormatType;
+
+/**
+ * 依序以多種執行緒數執行 benchmark，結果各自輸出成 JSON（方便比對前後版本）
+ * - bench.include：要跑的 benchmark（regex，預設全部）
+ * - bench.threads：執行緒數清單，例如 1,4,8（預設 1,4）
+ * - bench.out：結果檔前綴（預設 jmh-result）
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("bench.include", "org.example.App.bench.*");
+        String threads = System.getProperty("bench.threads", "1,4");
+        String out = System.getProperty("bench.out", "jmh-result");
+
+        for (String t : threads.split(",")) {
+            int n = Integer.parseInt(t.trim());
+            Options opt = new OptionsBuilder()
+                    .include(include)
+                    .threads(n)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(out + "-t" + n + ".json")
+                    .build();
+            new Runner(opt).run();
+        }
+    }
+}
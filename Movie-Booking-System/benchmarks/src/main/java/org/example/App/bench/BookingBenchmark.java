@@ -0,0 +1,118 @@
+package org.example.App.bench;
+
+import org.example.App.services.BookingService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BookingService 熱點：訂位、付款、退票、查詢已訂座位
+ * - existingBookings：預先寫入的訂單數（測索引與座位表在大資料量下的表現）
+ * - 執行緒數由 -t 或 BenchmarkRunner 指定
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingBenchmark {
+
+    static final String MOVIE = "阿凡達：火與燼";
+    static final String CINEMA = "威秀電影城";
+    static final LocalDate BASE_DATE = LocalDate.of(2030, 1, 1);
+    static final String[] SEATS = new String[BookingService.SEAT_CAPACITY];
+
+    static {
+        for (int i = 0; i < SEATS.length; i++) {
+            SEATS[i] = (char) ('A' + i / BookingService.SEAT_COLS) + String.valueOf(i % BookingService.SEAT_COLS + 1);
+        }
+    }
+
+    @Param({"1000", "100000"})
+    public int existingBookings;
+
+    BookingService service;
+    String hotShowKey;
+
+    /** 產生不重複場次用（每個場次 96 個座位） */
+    final AtomicInteger nextSlot = new AtomicInteger();
+    final AtomicInteger nextThread = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        service = new BookingService();
+        nextSlot.set(0);
+        nextThread.set(0);
+        for (int i = 0; i < existingBookings; i++) {
+            BookingService.Booking b = service.createBooking(
+                    "seed" + (i % 997), MOVIE, CINEMA, BASE_DATE.minusDays(1 + i / SEATS.length / 5),
+                    LocalTime.of(10 + (i / SEATS.length) % 5 * 3, 0), List.of(SEATS[i % SEATS.length]), 300);
+            if (i % 2 == 0) service.confirmPayment(b);
+        }
+        hotShowKey = service.buildShowKey(MOVIE, CINEMA, BASE_DATE.minusDays(1), LocalTime.of(10, 0));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        service.close();
+    }
+
+    /** 每個執行緒固定使用一個場次座位，供「訂位 → 付款 → 退票」循環使用 */
+    @State(Scope.Thread)
+    public static class ThreadSeat {
+        LocalTime time;
+        String seat;
+        String userId;
+
+        @Setup(Level.Iteration)
+        public void setup(BookingBenchmark bench) {
+            int id = bench.nextThread.getAndIncrement();
+            time = LocalTime.of(0, 0).plusMinutes(id / SEATS.length);
+            seat = SEATS[id % SEATS.length];
+            userId = "bench" + id;
+        }
+    }
+
+    /** 每次都訂新座位（不重複場次），測建單 + 建索引 + 座位表 */
+    @Benchmark
+    public BookingService.Booking createBooking() {
+        int slot = nextSlot.getAndIncrement();
+        int show = slot / SEATS.length;
+        return service.createBooking(
+                "u" + (slot & 1023), MOVIE, CINEMA, BASE_DATE.plusDays(show / 1440),
+                LocalTime.of(0, 0).plusMinutes(show % 1440), List.of(SEATS[slot % SEATS.length]), 300);
+    }
+
+    /** 完整生命週期：同一座位訂位、付款、退票（座位釋放後可重複使用） */
+    @Benchmark
+    public boolean bookPayRefund(ThreadSeat ts) {
+        BookingService.Booking b = service.createBooking(
+                ts.userId, MOVIE, CINEMA, BASE_DATE.plusYears(1), ts.time, List.of(ts.seat), 300);
+        if (b == null) return false;
+        service.confirmPayment(b);
+        return service.refundBooking(b.bookingId);
+    }
+
+    @Benchmark
+    public void getBookedSeats(Blackhole bh) {
+        Set<String> booked = service.getBookedSeats(hotShowKey);
+        for (String seat : booked) bh.consume(seat);
+    }
+
+    @Benchmark
+    public boolean isSeatAvailable() {
+        return service.isSeatAvailable(hotShowKey, "D7");
+    }
+
+    @Benchmark
+    public List<String> getMostPopularMovies() {
+        return service.getMostPopularMovies(3);
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.App.bench;
+
+import org.example.App.services.PasswordHasher;
+import org.example.App.services.SessionStore;
+import org.example.App.services.UserService;
+import org.example.App.services.UserSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密碼雜湊成本：每秒可完成的雜湊 / 比對 / 登入次數
+ * - iterations：PBKDF2 工作量
+ * - 單執行緒結果即「每核心每秒登入數」；以 BenchmarkRunner -Dbench.threads 對照多核心
+ * - loginAsync 走 UserService 的雜湊執行緒池（-Dpassword.threads），可看出池大小限制下的上限
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordBenchmark {
+
+    @Param({"10000", "100000", "310000"})
+    public int iterations;
+
+    PasswordHasher hasher;
+    String stored;
+    UserService service;
+
+    @Setup
+    public void setup() {
+        hasher = new PasswordHasher(iterations);
+        stored = hasher.hash("pass1234");
+        service = new UserService(SessionStore.DEFAULT_IDLE_TIMEOUT, hasher);
+        service.registerUser("bench", "pass1234", "bench@example.com", "0900000000");
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public String hash() {
+        return hasher.hash("pass1234");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify("pass1234", stored);
+    }
+
+    /** 完整登入（含雜湊池排隊）；成功後立即登出，避免階段數累積 */
+    @Benchmark
+    public boolean loginAsync() {
+        UserSession s = service.loginAsync("bench", "pass1234").join();
+        service.logout(s);
+        return s != null;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.App.bench;
+
+import org.example.App.services.PriceService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PriceService 熱點：跨影城比價、套用折扣
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceBenchmark {
+
+    @Param({"2D", "IMAX"})
+    public String format;
+
+    @Param({"ADULT", "STUDENT"})
+    public String ticketType;
+
+    @Param({"EARLY20", "GROUP10"})
+    public String discountCode;
+
+    PriceService service;
+    PriceService.DiscountContext ctx;
+
+    @Setup
+    public void setup() {
+        service = new PriceService();
+        ctx = new PriceService.DiscountContext(LocalDate.now().plusDays(10), 12, true, true);
+    }
+
+    @Benchmark
+    public List<PriceService.PriceQuote> compare() {
+        return service.compare(format, ticketType);
+    }
+
+    @Benchmark
+    public int getLowestPrice() {
+        return service.getLowestPrice(format, ticketType);
+    }
+
+    @Benchmark
+    public int applyDiscount() {
+        return service.applyDiscount(320, discountCode, ctx);
+    }
+}
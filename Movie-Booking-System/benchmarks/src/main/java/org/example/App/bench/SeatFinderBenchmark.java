@@ -0,0 +1,73 @@
+package org.example.App.bench;
+
+import org.example.App.services.SeatMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自動選位：500 座位廳（20 排 x 25 位）找 qty 個連號
+ * - occupancy：已售比例（%）
+ * - bestBlock：SeatMap.findBestBlock（每排空位段索引）
+ * - partyBlocks：SeatMap.findPartyBlocks（找不到單排連號時拆成相鄰數排；滿座率高時最吃力）
+ * - firstFitScan：舊版 BookingModule 作法（逐位組座位字串查可用，取第一組連號）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatFinderBenchmark {
+
+    static final int ROWS = 20;
+    static final int COLS = 25;
+
+    @Param({"0", "50", "90"})
+    public int occupancy;
+
+    @Param({"2", "6", "12"})
+    public int qty;
+
+    SeatMap map;
+
+    @Setup
+    public void setup() {
+        map = new SeatMap(ROWS, COLS);
+        Random rnd = new Random(42);
+        for (int i = 0; i < map.getCapacity(); i++) {
+            if (rnd.nextInt(100) < occupancy) map.reserveAll(new int[]{i});
+        }
+    }
+
+    @Benchmark
+    public int[] bestBlock() {
+        return map.findBestBlock(qty);
+    }
+
+    @Benchmark
+    public int[][] partyBlocks() {
+        return map.findPartyBlocks(qty);
+    }
+
+    @Benchmark
+    public List<String> firstFitScan() {
+        for (int row = 0; row < ROWS; row++) {
+            char rowChar = (char) ('A' + row);
+            List<String> tmp = new ArrayList<>();
+            for (int col = 1; col <= COLS; col++) {
+                String seatId = rowChar + String.valueOf(col);
+                if (map.isAvailable(seatId)) {
+                    tmp.add(seatId);
+                    if (tmp.size() == qty) return tmp;
+                } else {
+                    tmp.clear();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.App.bench;
+
+import org.example.App.services.SeatId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 座位編號編碼：舊版（substring + Integer.parseInt + 例外）對照 SeatId 逐字元解析
+ * - 1024 個隨機座位字串，約一成格式錯誤（例外路徑的成本也算進去）
+ * - legacyLabel / label：索引轉回顯示文字（字串串接 vs 預建字串表）
+ * 以 -prof gc 可確認 parse / label 不配置物件
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatIdBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int ROWS = 20;
+    private static final int COLS = 25;
+
+    String[] labels;
+    int[] codes;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        labels = new String[SIZE];
+        codes = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            int row = rnd.nextInt(ROWS);
+            int number = 1 + rnd.nextInt(COLS);
+            labels[i] = i % 10 == 0 ? (char) ('A' + row) + "x" + number : (char) ('A' + row) + String.valueOf(number);
+            codes[i] = SeatId.of(row, number);
+        }
+    }
+
+    @Benchmark
+    public void legacyParse(Blackhole bh) {
+        for (String label : labels) bh.consume(legacyParse(label));
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String label : labels) bh.consume(SeatId.parse(label));
+    }
+
+    @Benchmark
+    public void legacyLabel(Blackhole bh) {
+        for (int code : codes) bh.consume("" + (char) ('A' + SeatId.row(code)) + SeatId.number(code));
+    }
+
+    @Benchmark
+    public void label(Blackhole bh) {
+        for (int code : codes) bh.consume(SeatId.label(code));
+    }
+
+    /** 改寫前 BookingService.isValidSeat 的解析方式 */
+    private static int legacyParse(String seatId) {
+        if (seatId == null || seatId.length() < 2) return -1;
+        char row = Character.toUpperCase(seatId.charAt(0));
+        if (row < 'A' || row >= ('A' + ROWS)) return -1;
+        String numStr = seatId.substring(1);
+        try {
+            int col = Integer.parseInt(numStr);
+            return col >= 1 && col <= COLS ? (row - 'A') * COLS + col - 1 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
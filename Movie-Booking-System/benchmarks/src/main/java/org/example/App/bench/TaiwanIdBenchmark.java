@@ -0,0 +1,79 @@
+package org.example.App.bench;
+
+import org.example.App.services.TaiwanIdValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 身分證字號驗證：舊版（regex + trim/toUpperCase + int[]）對照逐字元查表版，以及批次驗證
+ * - size：名單筆數（約一成格式錯誤、其餘檢查碼隨機）
+ * - legacy / single：單執行緒逐筆驗證整份名單
+ * - batch：TaiwanIdValidator.validateAll（數量夠大時平行）
+ * 以 -prof gc 可確認 single 每筆不配置物件
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaiwanIdBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    List<String> ids;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder sb = new StringBuilder().append((char) ('A' + rnd.nextInt(26)));
+            for (int d = 0; d < 9; d++) sb.append((char) ('0' + rnd.nextInt(10)));
+            if (i % 10 == 0) sb.setCharAt(5, 'x');
+            ids.add(sb.toString());
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        for (String id : ids) bh.consume(legacyValidate(id));
+    }
+
+    @Benchmark
+    public void single(Blackhole bh) {
+        for (String id : ids) bh.consume(TaiwanIdValidator.isValid(id));
+    }
+
+    @Benchmark
+    public boolean[] batch() {
+        return TaiwanIdValidator.validateAll(ids);
+    }
+
+    /** 改寫前 UserService.validateTaiwanId 的實作 */
+    private static boolean legacyValidate(String id) {
+        if (id == null) return false;
+        String s = id.trim().toUpperCase();
+        if (!s.matches("^[A-Z][0-9]{9}$")) return false;
+        int[] map = letterToCode(s.charAt(0));
+        if (map == null) return false;
+        int sum = map[0] + map[1] * 9;
+        for (int i = 1; i <= 9; i++) {
+            sum += (s.charAt(i) - '0') * (i <= 8 ? 9 - i : 1);
+        }
+        return sum % 10 == 0;
+    }
+
+    private static int[] letterToCode(char c) {
+        int idx = "ABCDEFGHJKLMNPQRSTUVXYWZIO".indexOf(c);
+        if (idx < 0) return null;
+        int code = idx + 10;
+        return new int[]{code / 10, code % 10};
+    }
+}
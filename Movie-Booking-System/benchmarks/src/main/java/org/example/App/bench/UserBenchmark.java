@@ -0,0 +1,76 @@
+package org.example.App.bench;
+
+import org.example.App.services.PasswordHasher;
+import org.example.App.services.SessionStore;
+import org.example.App.services.UserService;
+import org.example.App.services.UserSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService 熱點：登入驗證、以 email 申請重設密碼、以 token 查工作階段
+ * - users：預先註冊的帳號數
+ * - 密碼雜湊工作量設為 1，這裡只量查詢與階段管理；雜湊成本見 PasswordBenchmark
+ * - 同一帳號反覆嘗試會觸發限流：authenticateWrongPassword / requestPasswordResetByEmail 量到的是拒絕路徑
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserBenchmark {
+
+    @Param({"100", "100000"})
+    public int users;
+
+    UserService service;
+    String userId;
+    String email;
+    String token;
+
+    @Setup
+    public void setup() {
+        service = new UserService(SessionStore.DEFAULT_IDLE_TIMEOUT, new PasswordHasher(1));
+        for (int i = 0; i < users; i++) {
+            service.registerUser("user" + i, "pass" + i, "user" + i + "@example.com", String.format("09%08d", i));
+        }
+        userId = "user" + (users / 2);
+        email = "USER" + (users / 2) + "@example.com";
+        for (int i = 0; i < users; i++) {
+            UserSession s = service.login("user" + i, "pass" + i);
+            if (i == users / 2) token = s.getToken();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public boolean authenticateSuccess() {
+        return service.authenticate(userId, "pass" + (users / 2));
+    }
+
+    @Benchmark
+    public boolean authenticateWrongPassword() {
+        return service.authenticate(userId, "wrong");
+    }
+
+    @Benchmark
+    public boolean authenticateUnknownUser() {
+        return service.authenticate("nobody", "pass");
+    }
+
+    @Benchmark
+    public String requestPasswordResetByEmail() {
+        return service.requestPasswordReset(email);
+    }
+
+    @Benchmark
+    public UserSession getSession() {
+        return service.getSession(token);
+    }
+}
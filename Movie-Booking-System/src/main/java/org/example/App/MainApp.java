@@ -1,6 +1,7 @@
 package org.example.App;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -16,15 +17,24 @@ import org.example.App.modules.OrderModule;
 import org.example.App.modules.PriceModule;
 import org.example.App.modules.RefundModule;
 import org.example.App.services.BookingService;
+import org.example.App.services.DynamicPricing;
+import org.example.App.services.HallLayout;
 import org.example.App.services.PriceService;
 import org.example.App.services.UserService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class MainApp extends Application {
 
-    private final BookingService bookingService = new BookingService();
-    private final PriceService priceService = new PriceService();
+    private final BookingService bookingService = createBookingService();
+    private final PriceService priceService = createPriceService(bookingService);
     private final UserService userService = new UserService();
 
     private Stage primaryStage;
@@ -39,6 +49,38 @@ public class MainApp extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        bookingService.close();
+        userService.close();
+    }
+
+    /**
+     * 指定 -Dbooking.journal=路徑 時啟用訂單日誌（啟動時自動復原）；
+     * 指定 -Dhall.layouts=路徑 時由設定檔讀取各影城的影廳配置（格式見 HallLayout）
+     */
+    private static BookingService createBookingService() {
+        String journal = System.getProperty("booking.journal");
+        String layouts = System.getProperty("hall.layouts");
+        try {
+            Map<String, HallLayout> hallLayouts = layouts == null || layouts.isBlank()
+                    ? Collections.emptyMap() : HallLayout.load(Paths.get(layouts));
+            if (journal == null || journal.isBlank()) return new BookingService(hallLayouts);
+            return new BookingService(Paths.get(journal), hallLayouts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** 指定 -Dpricing.dynamic=true 時依場次滿座率與距開演時間調整票價 */
+    private static PriceService createPriceService(BookingService bookingService) {
+        PriceService priceService = new PriceService();
+        if (Boolean.getBoolean("pricing.dynamic")) {
+            priceService.setDynamicPricing(DynamicPricing.defaults().attach(bookingService));
+        }
+        return priceService;
+    }
+
     // =========================
     // Login page
     // =========================
@@ -74,13 +116,14 @@ public class MainApp extends Application {
         Button registerBtn = createSecondaryButton("📝 註冊");
         Button forgotBtn = createSecondaryButton("❓ 忘記密碼");
 
-        loginBtn.setOnAction(e -> {
-            if (userService.authenticate(userField.getText(), passField.getText())) {
-                showMainPage();
-            } else {
-                showAlert("❌ 登入失敗", "帳號或密碼錯誤");
-            }
-        });
+        loginBtn.setOnAction(e -> whenHashed(loginBtn,
+                userService.authenticateAsync(userField.getText(), passField.getText()), ok -> {
+                    if (ok) {
+                        showMainPage();
+                    } else {
+                        showAlert("❌ 登入失敗", "帳號或密碼錯誤");
+                    }
+                }));
 
         guestBtn.setOnAction(e -> showMainPage());
 
@@ -127,11 +170,15 @@ public class MainApp extends Application {
 
         Button ok = (Button) dialog.getDialogPane().lookupButton(ButtonType.OK);
         ok.addEventFilter(javafx.event.ActionEvent.ACTION, ev -> {
-            boolean success = userService.registerUser(user.getText(), pwd.getText(), email.getText(), phone.getText());
-            if (!success) {
-                showAlert("❌ 註冊失敗", "可能原因：帳號已存在、密碼太短、資料不完整。\n（密碼至少4碼）");
-                ev.consume();
-            }
+            ev.consume(); // 註冊完成後才關閉
+            whenHashed(ok, userService.registerUserAsync(user.getText(), pwd.getText(), email.getText(), phone.getText()),
+                    success -> {
+                        if (success) {
+                            closeWith(dialog, ButtonType.OK);
+                        } else {
+                            showAlert("❌ 註冊失敗", "可能原因：帳號已存在、密碼太短、資料不完整。\n（密碼至少4碼）");
+                        }
+                    });
         });
 
         dialog.showAndWait();
@@ -172,15 +219,16 @@ public class MainApp extends Application {
             }
         });
 
-        confirm.setOnAction(e -> {
-            boolean ok = userService.confirmPasswordReset(userOrEmail.getText(), codeField.getText(), newPwd.getText());
-            if (ok) {
-                showAlert("✅ 成功", "密碼已重設，請回登入頁重新登入。");
-                dialog.close();
-            } else {
-                showAlert("❌ 失敗", "重設碼不正確或新密碼太短。");
-            }
-        });
+        confirm.setOnAction(e -> whenHashed(confirm,
+                userService.confirmPasswordResetAsync(userOrEmail.getText(), codeField.getText(), newPwd.getText()),
+                ok -> {
+                    if (ok) {
+                        showAlert("✅ 成功", "密碼已重設，請回登入頁重新登入。");
+                        dialog.close();
+                    } else {
+                        showAlert("❌ 失敗", "重設碼不正確或新密碼太短。");
+                    }
+                }));
 
         box.getChildren().addAll(
                 label("帳號/Email"), userOrEmail,
@@ -277,31 +325,56 @@ public class MainApp extends Application {
 
         Button ok = (Button) dialog.getDialogPane().lookupButton(ButtonType.OK);
         ok.addEventFilter(javafx.event.ActionEvent.ACTION, ev -> {
-            if (!oldPwd.getText().isBlank() || !newPwd.getText().isBlank()) {
-                boolean passOk = userService.changePassword(oldPwd.getText(), newPwd.getText());
+            ev.consume(); // 儲存成功後才關閉
+            if (oldPwd.getText().isBlank() && newPwd.getText().isBlank()) {
+                if (saveProfile(area.getText(), nid.getText())) closeWith(dialog, ButtonType.OK);
+                return;
+            }
+            whenHashed(ok, userService.changePasswordAsync(oldPwd.getText(), newPwd.getText()), passOk -> {
                 if (!passOk) {
                     showAlert("❌ 修改失敗", "舊密碼不正確或新密碼太短（至少4碼）。");
-                    ev.consume();
-                    return;
+                } else if (saveProfile(area.getText(), nid.getText())) {
+                    closeWith(dialog, ButtonType.OK);
                 }
-            }
-
-            if (!area.getText().isBlank()) {
-                userService.setAreaForCurrentUser(area.getText());
-            }
-
-            if (!nid.getText().isBlank()) {
-                boolean idOk = userService.setNationalIdForCurrentUser(nid.getText());
-                if (!idOk) {
-                    showAlert("❌ 身分證錯誤", "身分證字號格式或檢查碼不正確。");
-                    ev.consume();
-                }
-            }
+            });
         });
 
         dialog.showAndWait();
     }
 
+    /** 地區 / 身分證字號（空白則不更動）；身分證不正確時提示並回傳 false */
+    private boolean saveProfile(String area, String nationalId) {
+        if (!area.isBlank()) {
+            userService.setAreaForCurrentUser(area);
+        }
+        if (!nationalId.isBlank() && !userService.setNationalIdForCurrentUser(nationalId)) {
+            showAlert("❌ 身分證錯誤", "身分證字號格式或檢查碼不正確。");
+            return false;
+        }
+        return true;
+    }
+
+    private static void closeWith(Dialog<ButtonType> dialog, ButtonType result) {
+        dialog.setResult(result);
+        dialog.close();
+    }
+
+    /**
+     * 密碼相關操作在雜湊執行緒池完成後，回到 FX 執行緒套用結果；等待期間停用按鈕避免重複送出
+     * 雜湊池已滿時提示系統忙碌，不當成帳密錯誤
+     */
+    private void whenHashed(Button trigger, CompletableFuture<Boolean> future, Consumer<Boolean> onResult) {
+        trigger.setDisable(true);
+        future.whenComplete((ok, error) -> Platform.runLater(() -> {
+            trigger.setDisable(false);
+            if (UserService.isBusy(error)) {
+                showAlert("⏳ 系統忙碌", "目前登入人數眾多，請稍後再試。");
+            } else {
+                onResult.accept(Boolean.TRUE.equals(ok));
+            }
+        }));
+    }
+
     private Node createSideMenu() {
         VBox menu = new VBox(10);
         menu.setPadding(new Insets(20));
@@ -369,7 +442,7 @@ public class MainApp extends Application {
         hotBox.setPadding(new Insets(12));
         hotBox.setStyle("-fx-border-color: rgba(255,255,255,0.12); -fx-border-radius: 12;" +
                 "-fx-background-color: rgba(26,38,55,0.75);");
-        Label hotTitle = new Label("🔥 最熱門的電影（依已付款訂單統計，無資料則用評分排序）");
+        Label hotTitle = new Label("🔥 最熱門的電影（依已付款票數統計，無資料則用評分排序）");
         hotTitle.setStyle("-fx-text-fill: #ffb300; -fx-font-weight: bold;");
         hotBox.getChildren().add(hotTitle);
         int rank = 1;
@@ -10,7 +10,9 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.util.Duration;
 import org.example.App.services.BookingService;
+import org.example.App.services.HallLayout;
 import org.example.App.services.PriceService;
+import org.example.App.services.SeatHold;
 import org.example.App.services.UserService;
 
 import java.time.LocalDate;
@@ -25,6 +27,9 @@ public class BookingModule {
 
     private final List<String> selectedSeats = new ArrayList<>();
 
+    /** 選位確認後的座位暫留（付款完成前其他人無法選走） */
+    private SeatHold currentHold;
+
     public BookingModule(BookingService bookingService, PriceService priceService, UserService userService) {
         this.bookingService = bookingService;
         this.priceService = priceService;
@@ -113,9 +118,7 @@ public class BookingModule {
 
         // 配餐
         ComboBox<String> mealSelector = createStyledComboBox();
-        mealSelector.getItems().addAll(
-                "不加購", "爆米花 + 可樂套餐", "熱狗堡 + 可樂套餐", "雞塊 + 可樂套餐", "雙人分享套餐"
-        );
+        mealSelector.getItems().addAll(priceService.getMeals());
         mealSelector.setValue("不加購");
 
         // 座位選擇
@@ -178,19 +181,13 @@ public class BookingModule {
             int qty = ticketQuantity.getValue();
             LocalDate showDate = datePicker.getValue();
 
-            Integer base = priceService.getPrice(cinema, fmt, ticketTypeKey);
-            if (base == null) {
-                base = priceService.getLowestPrice(fmt, ticketTypeKey);
-            }
-            int basePrice = base == null || base < 0 ? 0 : base;
-
             boolean student = "STUDENT".equals(ticketTypeKey);
             boolean studentVerified = student
                     && idVerified.isSelected()
                     && userService.validateTaiwanId(idField.getText());
 
             PriceService.DiscountContext ctx = new PriceService.DiscountContext(
-                    showDate, qty, userService.isLoggedIn(), studentVerified
+                    showDate, qty, userService.isLoggedIn(), studentVerified, cinema, fmt
             );
 
             // ===== 刷新折扣（避免 setValue 觸發 listener 造成遞迴）=====
@@ -214,20 +211,34 @@ public class BookingModule {
                 updatingDiscount[0] = false;
             }
 
-            // 計算總價
+            // 計算總價（票券 + 折扣 + 配餐一次計價）
             String discountCode = extractDiscountCode(discountSelector.getValue());
-            int unitAfterDiscount = basePrice;
-            if (discountCode != null) {
-                unitAfterDiscount = priceService.applyDiscount(basePrice, discountCode, ctx);
+            String showKey = movieSelector.getValue() == null || showDate == null || timeSelector.getValue() == null
+                    ? null
+                    : bookingService.buildShowKey(movieSelector.getValue(), cinema, showDate,
+                            LocalTime.parse(timeSelector.getValue()));
+            PriceService.CartQuote quote = quoteCart(cinema, fmt, ticketTypeKey, qty,
+                    mealSelector.getValue(), discountCode, ctx, showKey);
+            if (quote == null) {
+                priceLabel.setText(String.format("票價：NT$ 0 /張（%s）  |  總計：NT$ 0", fmt));
+            } else {
+                int unitAfterDiscount = (quote.ticketSubtotal - quote.discountTotal) / Math.max(qty, 1);
+                priceLabel.setText(quote.mealSubtotal > 0
+                        ? String.format("票價：NT$ %d /張（%s）  |  配餐：NT$ %d  |  總計：NT$ %d",
+                                unitAfterDiscount, fmt, quote.mealSubtotal, quote.total)
+                        : String.format("票價：NT$ %d /張（%s）  |  總計：NT$ %d", unitAfterDiscount, fmt, quote.total));
             }
-            int total = unitAfterDiscount * qty;
 
-            priceLabel.setText(String.format("票價：NT$ %d /張（%s）  |  總計：NT$ %d", unitAfterDiscount, fmt, total));
-
-            // 餘票（以電影為單位簡化）
-            String movieTitle = movieSelector.getValue();
-            int remaining = bookingService.getRemaining(movieTitle);
-            remainingLabel.setText("目前剩餘（示範）：" + remaining + " 張");
+            // 場次餘票（已售出與付款中暫留的座位都不算）
+            LocalDate selectedDate = datePicker.getValue();
+            String selectedTime = timeSelector.getValue();
+            if (movieSelector.getValue() == null || cinema == null || selectedDate == null || selectedTime == null) {
+                remainingLabel.setText("目前剩餘：—");
+            } else {
+                int remaining = bookingService.getRemaining(
+                        movieSelector.getValue(), cinema, selectedDate, LocalTime.parse(selectedTime));
+                remainingLabel.setText("本場次剩餘：" + remaining + " 張");
+            }
         };
 
         movieSelector.valueProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
@@ -235,7 +246,9 @@ public class BookingModule {
         formatSelector.valueProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
         ticketTypeSelector.valueProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
         datePicker.valueProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
+        timeSelector.valueProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
         ticketQuantity.valueProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
+        mealSelector.valueProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
         idVerified.selectedProperty().addListener((obs, o, n) -> refreshPriceAndDiscount.run());
         idField.textProperty().addListener((obs, o, n) -> {
             if (idVerified.isSelected()) refreshPriceAndDiscount.run();
@@ -307,17 +320,20 @@ public class BookingModule {
                 return;
             }
 
-            // 計價
-            Integer base = priceService.getPrice(cinema, fmt, ticketTypeKey);
-            if (base == null) base = priceService.getLowestPrice(fmt, ticketTypeKey);
-            if (base == null || base < 0) {
-                showAlert("❌ 票價資料不足，請更換影城/格式/票種");
+            // 座位暫留需仍有效，且與目前選擇的場次一致
+            String showKey = bookingService.buildShowKey(movie, cinema, showDate, showTime);
+            if (currentHold == null || bookingService.getHold(currentHold.getHoldId()) == null
+                    || !currentHold.getShowKey().equals(showKey)) {
+                releaseCurrentHold();
+                selectedSeats.clear();
+                showAlert("❌ 座位保留已逾時或場次已變更，請重新選位");
                 return;
             }
 
+            // 計價
             boolean studentVerified = "STUDENT".equals(ticketTypeKey) && idVerified.isSelected() && idOk;
             PriceService.DiscountContext ctx = new PriceService.DiscountContext(showDate, qty,
-                    userService.isLoggedIn(), studentVerified);
+                    userService.isLoggedIn(), studentVerified, cinema, fmt);
 
             String discountCode = extractDiscountCode(discountSelector.getValue());
             if (discountCode != null && !priceService.isDiscountApplicable(discountCode, ctx)) {
@@ -325,23 +341,27 @@ public class BookingModule {
                 return;
             }
 
-            int unitAfter = (discountCode == null) ? base : priceService.applyDiscount(base, discountCode, ctx);
-            int total = unitAfter * qty;
-
             String meal = mealSelector.getValue();
+            PriceService.CartQuote quote = quoteCart(cinema, fmt, ticketTypeKey, qty, meal, discountCode, ctx, showKey);
+            if (quote == null) {
+                showAlert("❌ 票價資料不足，請更換影城/格式/票種");
+                return;
+            }
+            int total = quote.total;
 
-            // 付款
+            // 付款（付款期間延長座位保留；取消或逾時則釋放）
+            bookingService.extendHold(currentHold.getHoldId(), BookingService.DEFAULT_HOLD_LEASE);
             PaymentResult pay = showPayment(total);
-            if (!pay.success) return;
+            if (!pay.success) {
+                releaseCurrentHold();
+                selectedSeats.clear();
+                return;
+            }
 
-            // 建立訂單（座位會在此刻占用）
-            BookingService.Booking booking = bookingService.createBooking(
+            // 建立訂單（保留的座位在此刻轉為售出）
+            BookingService.Booking booking = bookingService.createBookingFromHold(
+                    currentHold.getHoldId(),
                     userService.getCurrentUserId(),
-                    movie,
-                    cinema,
-                    showDate,
-                    showTime,
-                    new ArrayList<>(selectedSeats),
                     total,
                     ticketTypeText,
                     discountCode,
@@ -349,8 +369,10 @@ public class BookingModule {
                     pay.paymentMethod,
                     idVerified.isSelected() ? idNum.toUpperCase() : null
             );
+            currentHold = null;
 
             if (booking == null) {
+                selectedSeats.clear();
                 showAlert("❌ 訂單建立失敗：可能座位已被佔用或資料不完整\n\n請重新選位再試一次");
                 return;
             }
@@ -379,9 +401,10 @@ public class BookingModule {
         dialog.setHeaderText("請選擇 " + ticketQty + " 個座位（可自動/手動）");
 
         selectedSeats.clear();
+        releaseCurrentHold();
 
         String showKey = bookingService.buildShowKey(movieTitle, cinema, date, time);
-        Set<String> booked = bookingService.getBookedSeats(showKey);
+        Set<String> booked = bookingService.getUnavailableSeats(showKey);
 
         VBox content = new VBox(15);
         content.setPadding(new Insets(15));
@@ -396,10 +419,12 @@ public class BookingModule {
         seatGrid.setVgap(5);
         seatGrid.setAlignment(Pos.CENTER);
 
-        for (int row = 0; row < BookingService.SEAT_ROWS; row++) {
-            char rowChar = (char) ('A' + row);
-            for (int col = 1; col <= BookingService.SEAT_COLS; col++) {
-                String seatId = rowChar + String.valueOf(col);
+        // 依影廳配置排座位格；走道 / 缺位留空
+        HallLayout layout = bookingService.getShowLayout(showKey);
+        for (int row = 0; row < layout.getRows(); row++) {
+            for (int col = 0; col < layout.getCols(); col++) {
+                if (!layout.hasSeat(row, col)) continue;
+                String seatId = layout.seatIdOf(row * layout.getCols() + col);
                 Button seatBtn = createSeatButton(seatId);
 
                 boolean isTaken = booked.contains(seatId);
@@ -423,7 +448,7 @@ public class BookingModule {
                     }
                 });
 
-                seatGrid.add(seatBtn, col - 1, row);
+                seatGrid.add(seatBtn, col, row);
             }
         }
 
@@ -466,6 +491,13 @@ public class BookingModule {
                     showAlert("❌ 請選擇正確數量的座位\n\n目前：" + selectedSeats.size() + " / 需要：" + ticketQty);
                     return null;
                 }
+                // 確認選位即暫留座位，避免付款時才發現被他人訂走
+                currentHold = bookingService.holdSeats(movieTitle, cinema, date, time, new ArrayList<>(selectedSeats));
+                if (currentHold == null) {
+                    selectedSeats.clear();
+                    showAlert("❌ 部分座位剛被他人選走，請重新選位");
+                    return null;
+                }
             }
             return button;
         });
@@ -473,6 +505,12 @@ public class BookingModule {
         dialog.showAndWait();
     }
 
+    private void releaseCurrentHold() {
+        if (currentHold == null) return;
+        bookingService.releaseHold(currentHold.getHoldId());
+        currentHold = null;
+    }
+
     private void autoSelectSeats(String showKey, int ticketQty, GridPane seatGrid) {
         selectedSeats.clear();
 
@@ -484,39 +522,20 @@ public class BookingModule {
             }
         }
 
-        // 優先選同排連號
-        outer:
-        for (int row = 0; row < BookingService.SEAT_ROWS; row++) {
-            char rowChar = (char) ('A' + row);
-            int consecutive = 0;
-            List<String> tmp = new ArrayList<>();
-
-            for (int col = 1; col <= BookingService.SEAT_COLS; col++) {
-                String seatId = rowChar + String.valueOf(col);
-                if (bookingService.isSeatAvailable(showKey, seatId)) {
-                    consecutive++;
-                    tmp.add(seatId);
-                    if (consecutive == ticketQty) {
-                        selectedSeats.addAll(tmp);
-                        break outer;
-                    }
-                } else {
-                    consecutive = 0;
-                    tmp.clear();
-                }
-            }
-        }
+        // 優先選同排連號（靠中央、接近理想排）；不行就拆成相鄰數排
+        List<List<String>> blocks = bookingService.findPartySeats(showKey, ticketQty);
+        if (blocks != null) blocks.forEach(selectedSeats::addAll);
 
-        // 如果找不到連號，就隨機選
+        // 連相鄰數排都湊不出來，就隨機選
         if (selectedSeats.size() != ticketQty) {
             selectedSeats.clear();
+            Set<String> unavailable = bookingService.getUnavailableSeats(showKey);
+            HallLayout layout = bookingService.getShowLayout(showKey);
             List<String> candidates = new ArrayList<>();
-            for (int row = 0; row < BookingService.SEAT_ROWS; row++) {
-                char rowChar = (char) ('A' + row);
-                for (int col = 1; col <= BookingService.SEAT_COLS; col++) {
-                    String seatId = rowChar + String.valueOf(col);
-                    if (bookingService.isSeatAvailable(showKey, seatId)) candidates.add(seatId);
-                }
+            for (int idx = 0; idx < layout.getGridSize(); idx++) {
+                if (!layout.hasSeat(idx)) continue;
+                String seatId = layout.seatIdOf(idx);
+                if (!unavailable.contains(seatId)) candidates.add(seatId);
             }
             Collections.shuffle(candidates);
             for (String s : candidates) {
@@ -707,7 +726,7 @@ public class BookingModule {
                         "影城：" + booking.cinema + "\n" +
                         "日期：" + booking.bookingDate + "\n" +
                         "時間：" + booking.bookingTime + "\n" +
-                        "座位：" + String.join(", ", booking.seats) + "\n\n" +
+                        "座位：" + String.join(", ", booking.getSeatLabels()) + "\n\n" +
                         "票種：" + (booking.ticketType == null ? "—" : booking.ticketType) + "\n" +
                         "優惠：" + (booking.discountCode == null ? "—" : booking.discountCode) + "\n" +
                         "配餐：" + (booking.meal == null ? "不加購" : booking.meal) + "\n\n" +
@@ -781,6 +800,27 @@ public class BookingModule {
         }
     }
 
+    /**
+     * 以購物車 API 計價；所選影城沒有此格式 + 票種時，改用最低價影城的票價（與原本單價邏輯一致）
+     * showKey 為目前場次（啟用動態票價時依場次調整，可為 null）
+     */
+    private PriceService.CartQuote quoteCart(String cinema, String fmt, String ticketTypeKey, int qty,
+                                             String meal, String discountCode, PriceService.DiscountContext ctx,
+                                             String showKey) {
+        String pricedAt = cinema;
+        if (priceService.getPrice(cinema, fmt, ticketTypeKey) == null) {
+            List<PriceService.PriceQuote> quotes = priceService.compare(fmt, ticketTypeKey);
+            if (quotes.isEmpty()) return null;
+            pricedAt = quotes.get(0).cinema;
+        }
+        PriceService.CartRequest cart = new PriceService.CartRequest(pricedAt, fmt, ctx)
+                .addTickets(ticketTypeKey, null, qty)
+                .addMeal(meal, 1);
+        cart.showKey = showKey;
+        cart.discountCode = discountCode;
+        return priceService.priceCart(cart);
+    }
+
     private String extractDiscountCode(String selection) {
         if (selection == null) return null;
         if (selection.equals("不使用折扣")) return null;
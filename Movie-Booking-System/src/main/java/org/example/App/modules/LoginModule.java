@@ -1,5 +1,6 @@
 package org.example.App.modules;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -7,6 +8,9 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import org.example.App.services.UserService;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 /**
  * 獨立的登入/註冊/忘記密碼畫面（示範）
  * MainApp 已內建登入頁，所以此模組可視需求使用。
@@ -43,13 +47,13 @@ public class LoginModule {
         pwd.setPromptText("密碼");
 
         Button btn = new Button("登入");
-        btn.setOnAction(e -> {
-            if (userService.authenticate(user.getText(), pwd.getText())) {
+        btn.setOnAction(e -> whenHashed(btn, userService.authenticateAsync(user.getText(), pwd.getText()), ok -> {
+            if (ok) {
                 alert("✅ 登入成功：" + userService.getCurrentUserId());
             } else {
                 alert("❌ 登入失敗：帳號或密碼錯誤");
             }
-        });
+        }));
 
         root.getChildren().addAll(new Label("帳號"), user, new Label("密碼"), pwd, btn);
         return root;
@@ -73,10 +77,9 @@ public class LoginModule {
         phone.setPromptText("Phone");
 
         Button btn = new Button("註冊");
-        btn.setOnAction(e -> {
-            boolean ok = userService.registerUser(user.getText(), pwd.getText(), email.getText(), phone.getText());
-            alert(ok ? "✅ 註冊成功" : "❌ 註冊失敗（帳號重複或資料不完整）");
-        });
+        btn.setOnAction(e -> whenHashed(btn,
+                userService.registerUserAsync(user.getText(), pwd.getText(), email.getText(), phone.getText()),
+                ok -> alert(ok ? "✅ 註冊成功" : "❌ 註冊失敗（帳號重複或資料不完整）")));
 
         root.getChildren().addAll(new Label("帳號"), user, new Label("密碼"), pwd, new Label("Email"), email, new Label("Phone"), phone, btn);
         return root;
@@ -111,10 +114,9 @@ public class LoginModule {
         newPwd.setPromptText("新密碼 (至少4碼)");
 
         Button confirm = new Button("確認重設");
-        confirm.setOnAction(e -> {
-            boolean ok = userService.confirmPasswordReset(userOrEmail.getText(), code.getText(), newPwd.getText());
-            alert(ok ? "✅ 密碼已重設" : "❌ 重設失敗（重設碼/新密碼不正確）");
-        });
+        confirm.setOnAction(e -> whenHashed(confirm,
+                userService.confirmPasswordResetAsync(userOrEmail.getText(), code.getText(), newPwd.getText()),
+                ok -> alert(ok ? "✅ 密碼已重設" : "❌ 重設失敗（重設碼/新密碼不正確）")));
 
         root.getChildren().addAll(
                 new Label("帳號或 Email"), userOrEmail,
@@ -127,6 +129,19 @@ public class LoginModule {
         return root;
     }
 
+    /** 雜湊完成後回到 FX 執行緒套用結果；雜湊池已滿時提示忙碌 */
+    private void whenHashed(Button trigger, CompletableFuture<Boolean> future, Consumer<Boolean> onResult) {
+        trigger.setDisable(true);
+        future.whenComplete((ok, error) -> Platform.runLater(() -> {
+            trigger.setDisable(false);
+            if (UserService.isBusy(error)) {
+                alert("⏳ 系統忙碌，請稍後再試");
+            } else {
+                onResult.accept(Boolean.TRUE.equals(ok));
+            }
+        }));
+    }
+
     private void alert(String msg) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION, msg);
         alert.setTitle("提示");
@@ -130,7 +130,7 @@ public class OrderModule {
                 b.cinema,
                 b.bookingDate,
                 b.bookingTime,
-                b.seats == null ? "—" : String.join(", ", b.seats),
+                b.seats == null ? "—" : String.join(", ", b.getSeatLabels()),
                 b.ticketType == null ? "—" : b.ticketType,
                 b.discountCode == null ? "—" : b.discountCode,
                 b.meal == null ? "—" : b.meal,
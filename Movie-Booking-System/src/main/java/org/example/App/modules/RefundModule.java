@@ -137,57 +137,56 @@ public class RefundModule {
             return;
         }
 
-        for (BookingService.Booking b : bookingService.getAllBookings()) {
-            if (b.bookingId.equals(bookingId)) {
-
-                // ✅ 原本邏輯：必須登入且只能查自己的訂單（否則會擋）
-                if (!userService.isLoggedIn() || !b.userId.equals(userService.getCurrentUserId())) {
-                    showAlert("❌ 您沒有權限查詢此訂單");
-                    refundBtn.setDisable(true);
-                    return;
-                }
-
-                LocalDate showDate = b.bookingDate;
-                LocalDate today = LocalDate.now();
-                long daysUntilShow = ChronoUnit.DAYS.between(today, showDate);
-
-                double refundRate;
-                String refundInfo;
-
-                if (daysUntilShow >= 7) {
-                    refundRate = 1.0;
-                    refundInfo = "✓ 演出前 7 天以上：全額退款 100%";
-                } else if (daysUntilShow >= 3) {
-                    refundRate = 0.8;
-                    refundInfo = "✓ 演出前 3-6 天：退款 80%";
-                } else if (daysUntilShow >= 1) {
-                    refundRate = 0.5;
-                    refundInfo = "✓ 演出前 1-2 天：退款 50%";
-                } else {
-                    refundRate = 0.0;
-                    refundInfo = "✗ 演出當日或已過期：不可退票";
-                }
-
-                int refundAmount = (int) (b.totalPrice * refundRate);
-                int serviceFee = refundAmount / 10;
-                int actualRefund = refundAmount - serviceFee;
-
-                String details = String.format(
-                        "訂單 ID: %s\n狀態: %s\n電影: %s\n影城: %s\n日期: %s %s\n座位: %s\n\n" +
-                                "原金額: NT$ %d\n退款金額: NT$ %d\n手續費(10%%): NT$ %d\n實退: NT$ %d\n\n" +
-                                "距今 %d 天\n%s",
-                        b.bookingId, b.status, b.movieTitle, b.cinema,
-                        b.bookingDate, b.bookingTime, String.join(", ", b.seats),
-                        b.totalPrice, refundAmount, serviceFee, actualRefund,
-                        daysUntilShow, refundInfo
-                );
-
-                resultArea.setText(details);
-
-                refundBtn.setDisable(refundRate == 0.0);
-                refundBtn.setUserData(new Object[]{b, refundAmount, serviceFee, actualRefund});
+        BookingService.Booking b = bookingService.getBookingById(bookingId);
+        if (b != null) {
+
+            // ✅ 原本邏輯：必須登入且只能查自己的訂單（否則會擋）
+            if (!userService.isLoggedIn() || !b.userId.equals(userService.getCurrentUserId())) {
+                showAlert("❌ 您沒有權限查詢此訂單");
+                refundBtn.setDisable(true);
                 return;
             }
+
+            LocalDate showDate = b.bookingDate;
+            LocalDate today = LocalDate.now();
+            long daysUntilShow = ChronoUnit.DAYS.between(today, showDate);
+
+            double refundRate;
+            String refundInfo;
+
+            if (daysUntilShow >= 7) {
+                refundRate = 1.0;
+                refundInfo = "✓ 演出前 7 天以上：全額退款 100%";
+            } else if (daysUntilShow >= 3) {
+                refundRate = 0.8;
+                refundInfo = "✓ 演出前 3-6 天：退款 80%";
+            } else if (daysUntilShow >= 1) {
+                refundRate = 0.5;
+                refundInfo = "✓ 演出前 1-2 天：退款 50%";
+            } else {
+                refundRate = 0.0;
+                refundInfo = "✗ 演出當日或已過期：不可退票";
+            }
+
+            int refundAmount = (int) (b.totalPrice * refundRate);
+            int serviceFee = refundAmount / 10;
+            int actualRefund = refundAmount - serviceFee;
+
+            String details = String.format(
+                    "訂單 ID: %s\n狀態: %s\n電影: %s\n影城: %s\n日期: %s %s\n座位: %s\n\n" +
+                            "原金額: NT$ %d\n退款金額: NT$ %d\n手續費(10%%): NT$ %d\n實退: NT$ %d\n\n" +
+                            "距今 %d 天\n%s",
+                    b.bookingId, b.status, b.movieTitle, b.cinema,
+                    b.bookingDate, b.bookingTime, String.join(", ", b.getSeatLabels()),
+                    b.totalPrice, refundAmount, serviceFee, actualRefund,
+                    daysUntilShow, refundInfo
+            );
+
+            resultArea.setText(details);
+
+            refundBtn.setDisable(refundRate == 0.0);
+            refundBtn.setUserData(new Object[]{b, refundAmount, serviceFee, actualRefund});
+            return;
         }
 
         showAlert("❌ 找不到該訂單，請檢查訂單 ID 是否正確");
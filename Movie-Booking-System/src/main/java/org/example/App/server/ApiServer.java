@@ -0,0 +1,611 @@
+package org.example.App.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.App.services.BookingService;
+import org.example.App.services.DynamicPricing;
+import org.example.App.services.HallLayout;
+import org.example.App.services.PriceService;
+import org.example.App.services.SeatHold;
+import org.example.App.services.UserService;
+import org.example.App.services.UserSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 無介面的 HTTP API 伺服器（只用 JDK 內建 HttpServer）
+ * - 多個售票機 / 網頁前端共用同一份 BookingService 庫存
+ * - 輸入：query string 或 application/x-www-form-urlencoded；輸出：JSON
+ * - Java 21 以上每個請求跑在 virtual thread；Java 17 退回固定大小執行緒池（-Dapi.threads）
+ *
+ * 啟動：java -cp target/classes org.example.App.server.ApiServer [port]
+ *
+ * GET  /api/movies                              電影列表
+ * GET  /api/cinemas                             影城列表
+ * GET  /api/popular?limit=3                     熱門電影
+ * GET  /api/seats?movie=&cinema=&date=&time=    場次座位（影廳配置 layout：每排一字串，S 為座位、. 為走道/缺位；
+ *                                               不可選座位 + 餘票）
+ * GET  /api/seats/best?...&qty=4                建議最佳連號座位（只查詢不暫留；split=true 時可拆成相鄰數排）
+ * GET  /api/prices?format=2D&ticketType=ADULT   跨影城比價
+ * POST /api/cart                                整車計價（cinema, format, tickets=ADULT:2,CHILD:1:PREMIUM,
+ *                                               meals=雙人分享套餐:1, date, member, student, discountCode, best；
+ *                                               另給 movie + time 時依該場次計算動態票價）
+ * POST /api/login                              登入（userId, password），回傳 token
+ * POST /api/logout                             登出
+ *
+ * 以下需帶 Authorization: Bearer {token}；只能存取自己的訂單（管理員不限）
+ * GET  /api/bookings                            自己的訂單（管理員可加 userId=）
+ * POST /api/bookings                            訂位（movie, cinema, date, time, seats=A1,A2, format=2D, ticketType=ADULT,
+ *                                               seatCategory, meal, discountCode, paymentMethod, idNumber）；
+ *                                               先暫留座位，票價由伺服器計算
+ * GET  /api/bookings/{id}                       訂單查詢
+ * POST /api/bookings/{id}/pay                   付款
+ * POST /api/bookings/{id}/refund                退票
+ */
+public class ApiServer implements AutoCloseable {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_PLATFORM_THREADS = 64;
+    /** 購物車每項餐點的份數上限 */
+    private static final int MAX_MEAL_QUANTITY = 100;
+    private static final Logger LOG = Logger.getLogger(ApiServer.class.getName());
+
+    private final BookingService bookingService;
+    private final PriceService priceService;
+    private final UserService userService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** 請求錯誤：直接回傳對應的 HTTP 狀態碼與訊息 */
+    static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public ApiServer(BookingService bookingService, PriceService priceService, UserService userService,
+                     String host, int port) throws IOException {
+        this.bookingService = bookingService;
+        this.priceService = priceService;
+        this.userService = userService;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = newRequestExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** 實際監聽的 port（建構時傳 0 則為系統分配） */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** 執行期有 virtual thread（Java 21+）就用，否則用固定執行緒池 */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Integer.getInteger("api.threads", DEFAULT_PLATFORM_THREADS);
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "api-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // =========================
+    //  Routing
+    // =========================
+
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            String method = ex.getRequestMethod();
+            Map<String, String> params = readParams(ex);
+            List<String> path = segments(ex.getRequestURI().getPath());
+            Object body = route(method, path, params, bearerToken(ex));
+            int status = "POST".equals(method) && path.size() == 2 && "bookings".equals(path.get(1)) ? 201 : 200;
+            send(ex, status, Json.write(body));
+        } catch (ApiException e) {
+            send(ex, e.status, Json.obj().put("error", e.getMessage()).toString());
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, "處理 " + ex.getRequestMethod() + " " + ex.getRequestURI() + " 失敗", e);
+            send(ex, 500, Json.obj().put("error", "伺服器錯誤").toString());
+        } finally {
+            ex.close();
+        }
+    }
+
+    /** path 已去掉開頭的 "/"，第一段固定為 "api" */
+    private Object route(String method, List<String> path, Map<String, String> p, String token) {
+        String resource = path.size() > 1 ? path.get(1) : "";
+        boolean get = "GET".equals(method);
+        boolean post = "POST".equals(method);
+
+        switch (resource) {
+            case "movies":
+                if (get && path.size() == 2) return movies();
+                break;
+            case "cinemas":
+                if (get && path.size() == 2) return cinemas();
+                break;
+            case "popular":
+                if (get && path.size() == 2) return bookingService.getMostPopularMovies(intParam(p, "limit", 3));
+                break;
+            case "seats":
+                if (get && path.size() == 2) return seats(p);
+                if (get && path.size() == 3 && "best".equals(path.get(2))) return bestSeats(p);
+                break;
+            case "prices":
+                if (get && path.size() == 2) return prices(p);
+                break;
+            case "cart":
+                if ((get || post) && path.size() == 2) return cart(p);
+                break;
+            case "login":
+                if (post && path.size() == 2) return login(p);
+                break;
+            case "logout":
+                if (post && path.size() == 2) return logout(token);
+                break;
+            case "bookings": {
+                UserSession session = requireSession(token);
+                if (path.size() == 2 && get) return userBookings(session, p);
+                if (path.size() == 2 && post) return createBooking(session, p);
+                if (path.size() == 3 && get) return toJson(requireOwnBooking(session, path.get(2)));
+                if (path.size() == 4 && post && "pay".equals(path.get(3))) return pay(session, path.get(2));
+                if (path.size() == 4 && post && "refund".equals(path.get(3))) return refund(session, path.get(2));
+                break;
+            }
+            default:
+                break;
+        }
+        throw new ApiException(404, "找不到 " + method + " /" + String.join("/", path));
+    }
+
+    // =========================
+    //  Handlers
+    // =========================
+
+    private Object movies() {
+        List<Object> out = new ArrayList<>();
+        for (BookingService.Movie m : bookingService.getMovies()) {
+            out.add(Json.obj()
+                    .put("title", m.title)
+                    .put("director", m.director)
+                    .put("description", m.description)
+                    .put("rating", m.rating)
+                    .put("duration", m.duration));
+        }
+        return out;
+    }
+
+    private Object cinemas() {
+        List<Object> out = new ArrayList<>();
+        for (BookingService.Cinema c : bookingService.getCinemas()) {
+            out.add(Json.obj().put("name", c.name).put("area", c.area).put("address", c.address));
+        }
+        return out;
+    }
+
+    private Object seats(Map<String, String> p) {
+        String movie = requireMovie(p);
+        String cinema = require(p, "cinema");
+        LocalDate date = dateParam(p);
+        LocalTime time = timeParam(p);
+        String showKey = bookingService.buildShowKey(movie, cinema, date, time);
+        HallLayout layout = bookingService.getShowLayout(showKey);
+        return Json.obj()
+                .put("showKey", showKey)
+                .put("rows", layout.getRows())
+                .put("cols", layout.getCols())
+                .put("capacity", layout.getCapacity())
+                .put("layout", Arrays.asList(layout.toRowStrings()))
+                .put("remaining", bookingService.getShowRemaining(showKey))
+                .put("unavailable", new ArrayList<>(bookingService.getUnavailableSeats(showKey)));
+    }
+
+    private Object bestSeats(Map<String, String> p) {
+        String movie = requireMovie(p);
+        String showKey = bookingService.buildShowKey(movie, require(p, "cinema"), dateParam(p), timeParam(p));
+        int qty = quantity(require(p, "qty"), "qty", bookingService.getShowLayout(showKey).getCapacity());
+        if (Boolean.parseBoolean(p.get("split"))) {
+            List<List<String>> blocks = bookingService.findPartySeats(showKey, qty);
+            if (blocks == null) throw new ApiException(409, "相鄰排數內沒有足夠的空位");
+            List<String> seats = new ArrayList<>();
+            blocks.forEach(seats::addAll);
+            return Json.obj().put("showKey", showKey).put("seats", seats).put("blocks", blocks);
+        }
+        List<String> seats = bookingService.findBestSeats(showKey, qty);
+        if (seats == null) throw new ApiException(409, "沒有足夠的連號空位");
+        return Json.obj().put("showKey", showKey).put("seats", seats);
+    }
+
+    private Object prices(Map<String, String> p) {
+        List<Object> out = new ArrayList<>();
+        for (PriceService.PriceQuote q : priceService.compare(require(p, "format"), require(p, "ticketType"))) {
+            out.add(Json.obj()
+                    .put("cinema", q.cinema)
+                    .put("format", q.format)
+                    .put("ticketType", q.ticketType)
+                    .put("price", q.price));
+        }
+        return out;
+    }
+
+    private Object cart(Map<String, String> p) {
+        LocalDate showDate = p.get("date") == null || p.get("date").isBlank() ? null : dateParam(p);
+        PriceService.DiscountContext ctx = new PriceService.DiscountContext(showDate, 0,
+                Boolean.parseBoolean(p.get("member")), Boolean.parseBoolean(p.get("student")));
+        PriceService.CartRequest cart = new PriceService.CartRequest(require(p, "cinema"), require(p, "format"), ctx);
+        String movie = p.get("movie");
+        if (showDate != null && movie != null && !movie.isBlank() && p.get("time") != null) {
+            cart.showKey = bookingService.buildShowKey(movie.trim(), cart.cinema, showDate, timeParam(p));
+        }
+
+        // 總票數不可超過影廳座位數
+        int remaining = cart.showKey != null ? bookingService.getShowLayout(cart.showKey).getCapacity()
+                : bookingService.getHallLayout(cart.cinema).getCapacity();
+        for (String item : require(p, "tickets").split("\\s*,\\s*")) {
+            String[] parts = item.split(":");
+            if (parts.length < 2 || parts.length > 3) throw new ApiException(400, "tickets 格式應為 票種:張數[:座位類別]");
+            int qty = quantity(parts[1], "tickets", remaining);
+            remaining -= qty;
+            cart.addTickets(parts[0].trim(), parts.length == 3 ? parts[2].trim() : null, qty);
+        }
+        String meals = p.get("meals");
+        if (meals != null && !meals.isBlank()) {
+            for (String item : meals.split("\\s*,\\s*")) {
+                int sep = item.lastIndexOf(':');
+                if (sep <= 0) throw new ApiException(400, "meals 格式應為 餐點:份數");
+                cart.addMeal(item.substring(0, sep).trim(),
+                        quantity(item.substring(sep + 1), "meals", MAX_MEAL_QUANTITY));
+            }
+        }
+        cart.discountCode = p.get("discountCode");
+        cart.bestDiscount = Boolean.parseBoolean(p.get("best"));
+
+        PriceService.CartQuote quote = priceService.priceCart(cart);
+        if (quote == null) throw new ApiException(404, "查無票價、座位類別或餐點");
+        List<Object> lines = new ArrayList<>();
+        for (PriceService.CartLine l : quote.lines) {
+            lines.add(Json.obj()
+                    .put("kind", l.kind)
+                    .put("description", l.description)
+                    .put("unitPrice", l.unitPrice)
+                    .put("quantity", l.quantity)
+                    .put("amount", l.amount));
+        }
+        List<String> applied = new ArrayList<>();
+        for (PriceService.Discount d : quote.appliedDiscounts) applied.add(d.code);
+        return Json.obj()
+                .put("lines", lines)
+                .put("discounts", applied)
+                .put("ticketSubtotal", quote.ticketSubtotal)
+                .put("mealSubtotal", quote.mealSubtotal)
+                .put("discountTotal", quote.discountTotal)
+                .put("total", quote.total);
+    }
+
+    /** 登入在雜湊池比對（此處為請求執行緒，可等待）；池滿回 503 */
+    private Object login(Map<String, String> p) {
+        UserSession session;
+        try {
+            session = userService.loginAsync(require(p, "userId"), require(p, "password")).join();
+        } catch (CompletionException e) {
+            if (UserService.isBusy(e)) throw new ApiException(503, "系統忙碌中，請稍後再試");
+            throw e;
+        }
+        if (session == null) throw new ApiException(401, "帳號或密碼錯誤，或嘗試過於頻繁");
+        return Json.obj().put("token", session.getToken()).put("userId", session.getUserId());
+    }
+
+    private Object logout(String token) {
+        UserSession session = token == null ? null : userService.getSession(token);
+        if (session != null) userService.logout(session);
+        return Json.obj().put("ok", true);
+    }
+
+    private Object userBookings(UserSession session, Map<String, String> p) {
+        String userId = session.getUserId();
+        String requested = p.get("userId");
+        if (requested != null && !requested.isBlank() && !requested.trim().equals(userId)) {
+            if (!userService.isCurrentUserAdmin(session)) throw new ApiException(403, "無權查詢其他使用者的訂單");
+            userId = requested.trim();
+        }
+        List<Object> out = new ArrayList<>();
+        for (BookingService.Booking b : bookingService.getUserBookings(userId)) out.add(toJson(b));
+        return out;
+    }
+
+    /**
+     * 與桌面版訂位流程相同：先暫留座位，再依場次以購物車計價（會員價、折扣、動態票價），最後把暫留轉成訂單
+     * 訂位者一律取自工作階段；中途失敗會釋放暫留
+     */
+    private Object createBooking(UserSession session, Map<String, String> p) {
+        String movie = requireMovie(p);
+        String cinema = require(p, "cinema");
+        LocalDate date = dateParam(p);
+        LocalTime time = timeParam(p);
+        if (date.isBefore(LocalDate.now())) throw new ApiException(400, "日期不可早於今天");
+        List<String> seats = Arrays.asList(require(p, "seats").split("\\s*,\\s*"));
+        String format = optional(p, "format", "2D");
+        String ticketType = optional(p, "ticketType", "ADULT").toUpperCase();
+        String meal = optional(p, "meal", null);
+        String discountCode = optional(p, "discountCode", null);
+
+        String idNumber = optional(p, "idNumber", null);
+        if (idNumber != null) {
+            idNumber = idNumber.toUpperCase();
+            if (!userService.validateTaiwanId(idNumber)) throw new ApiException(400, "身分證字號格式錯誤");
+        }
+        boolean student = "STUDENT".equals(ticketType);
+        if (student && idNumber == null) throw new ApiException(400, "學生票需提供身分證字號 idNumber");
+
+        PriceService.DiscountContext ctx = new PriceService.DiscountContext(date, seats.size(), true, student,
+                cinema, format);
+        if (discountCode != null && !priceService.isDiscountApplicable(discountCode, ctx)) {
+            throw new ApiException(400, "折扣 " + discountCode + " 不符合使用條件");
+        }
+
+        SeatHold hold = bookingService.holdSeats(movie, cinema, date, time, seats);
+        if (hold == null) throw new ApiException(409, "座位無效或已被訂走");
+        BookingService.Booking b = null;
+        try {
+            PriceService.CartRequest cart = new PriceService.CartRequest(cinema, format, ctx)
+                    .addTickets(ticketType, optional(p, "seatCategory", null), seats.size())
+                    .addMeal(meal, 1);
+            cart.showKey = hold.getShowKey();
+            cart.discountCode = discountCode;
+            PriceService.CartQuote quote = priceService.priceCart(cart);
+            if (quote == null) throw new ApiException(404, "查無票價、座位類別或餐點");
+
+            b = bookingService.createBookingFromHold(hold.getHoldId(), session.getUserId(), quote.total,
+                    ticketType, discountCode, meal, p.get("paymentMethod"), idNumber);
+            if (b == null) throw new ApiException(409, "座位保留已逾時，請重新訂位");
+            return toJson(b);
+        } finally {
+            if (b == null) bookingService.releaseHold(hold.getHoldId());
+        }
+    }
+
+    private Object pay(UserSession session, String bookingId) {
+        BookingService.Booking b = requireOwnBooking(session, bookingId);
+        if (!bookingService.confirmPayment(b)) throw new ApiException(409, "訂單已退票，無法付款");
+        return toJson(b);
+    }
+
+    private Object refund(UserSession session, String bookingId) {
+        BookingService.Booking b = requireOwnBooking(session, bookingId);
+        bookingService.refundBooking(bookingId);
+        return toJson(b);
+    }
+
+    private static Object toJson(BookingService.Booking b) {
+        return Json.obj()
+                .put("bookingId", b.bookingId)
+                .put("userId", b.userId)
+                .put("movie", b.movieTitle)
+                .put("cinema", b.cinema)
+                .put("date", b.bookingDate)
+                .put("time", b.bookingTime)
+                .put("seats", b.getSeatLabels())
+                .put("totalPrice", b.totalPrice)
+                .put("ticketType", b.ticketType)
+                .put("discountCode", b.discountCode)
+                .put("status", b.status)
+                .put("ticketCode", b.ticketCode)
+                .put("createdAt", b.createdAt)
+                .put("paidAt", b.paidAt)
+                .put("refundedAt", b.refundedAt);
+    }
+
+    // =========================
+    //  Params
+    // =========================
+
+    private UserSession requireSession(String token) {
+        UserSession session = token == null ? null : userService.getSession(token);
+        if (session == null) throw new ApiException(401, "請先登入");
+        return session;
+    }
+
+    /** 訂單需屬於目前使用者（管理員不限） */
+    private BookingService.Booking requireOwnBooking(UserSession session, String bookingId) {
+        BookingService.Booking b = bookingService.getBookingById(bookingId);
+        if (b == null) throw new ApiException(404, "查無訂單 " + bookingId);
+        if (!session.getUserId().equals(b.userId) && !userService.isCurrentUserAdmin(session)) {
+            throw new ApiException(403, "無權存取此訂單");
+        }
+        return b;
+    }
+
+    private String requireMovie(Map<String, String> p) {
+        String movie = require(p, "movie");
+        if (bookingService.getMovieByTitle(movie) == null) throw new ApiException(404, "查無電影 " + movie);
+        return movie;
+    }
+
+    private static String require(Map<String, String> p, String name) {
+        String v = p.get(name);
+        if (v == null || v.isBlank()) throw new ApiException(400, "缺少參數 " + name);
+        return v.trim();
+    }
+
+    private static String optional(Map<String, String> p, String name, String def) {
+        String v = p.get(name);
+        return v == null || v.isBlank() ? def : v.trim();
+    }
+
+    private static int intParam(Map<String, String> p, String name, int def) {
+        String v = p.get(name);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " 必須為整數");
+        }
+    }
+
+    /** 正整數且不超過 max；超過上限也以 400 拒絕，避免極大數量進入計價 */
+    private static int quantity(String raw, String name, int max) {
+        int n;
+        try {
+            n = Integer.parseInt(raw.trim());
+        } catch (NumberFormatException e) {
+            n = 0;
+        }
+        if (n <= 0) throw new ApiException(400, name + " 的數量必須為正整數");
+        if (n > max) throw new ApiException(400, name + " 的數量超過上限 " + Math.max(max, 0));
+        return n;
+    }
+
+    private static LocalDate dateParam(Map<String, String> p) {
+        try {
+            return LocalDate.parse(require(p, "date"));
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "date 格式應為 yyyy-MM-dd");
+        }
+    }
+
+    private static LocalTime timeParam(Map<String, String> p) {
+        try {
+            return LocalTime.parse(require(p, "time"));
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "time 格式應為 HH:mm");
+        }
+    }
+
+    /** Authorization: Bearer {token}；沒有則為 null */
+    private static String bearerToken(HttpExchange ex) {
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        if (auth == null || !auth.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        String token = auth.substring(7).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    /** query string 與 form body 合併（body 優先） */
+    private static Map<String, String> readParams(HttpExchange ex) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(ex.getRequestURI().getRawQuery(), params);
+        if ("POST".equals(ex.getRequestMethod())) {
+            try (InputStream in = ex.getRequestBody()) {
+                parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String raw, Map<String, String> out) {
+        if (raw == null || raw.isEmpty()) return;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                out.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "參數編碼錯誤");
+            }
+        }
+    }
+
+    private static List<String> segments(String path) {
+        List<String> out = new ArrayList<>();
+        for (String s : path.split("/")) {
+            if (s.isEmpty()) continue;
+            try {
+                out.add(URLDecoder.decode(s, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "路徑編碼錯誤");
+            }
+        }
+        return out;
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // =========================
+    //  Main
+    // =========================
+
+    /**
+     * -Dapi.host（預設 127.0.0.1）、port 參數或 -Dapi.port（預設 8080）、
+     * -Dbooking.journal（同桌面版，啟用訂單日誌）、-Dhall.layouts（同桌面版，影廳配置檔）、
+     * -Dpricing.dynamic=true（動態票價）
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("api.port", DEFAULT_PORT);
+        String host = System.getProperty("api.host", "127.0.0.1");
+
+        String journal = System.getProperty("booking.journal");
+        String layouts = System.getProperty("hall.layouts");
+        Map<String, HallLayout> hallLayouts = layouts == null || layouts.isBlank()
+                ? Collections.emptyMap() : HallLayout.load(Paths.get(layouts));
+        BookingService bookingService = journal == null || journal.isBlank()
+                ? new BookingService(hallLayouts) : new BookingService(Paths.get(journal), hallLayouts);
+        PriceService priceService = new PriceService();
+        if (Boolean.getBoolean("pricing.dynamic")) {
+            priceService.setDynamicPricing(DynamicPricing.defaults().attach(bookingService));
+        }
+        UserService userService = new UserService();
+        ApiServer api = new ApiServer(bookingService, priceService, userService, host, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.close();
+            userService.close();
+            bookingService.close();
+        }, "api-shutdown"));
+        api.start();
+        System.out.println("Movie booking API listening on http://" + host + ":" + api.getPort() + "/api/");
+    }
+}
@@ -155,7 +155,7 @@ public class AdminModule {
         box.setPadding(new Insets(15));
         box.setStyle("-fx-background-color: #0b1220;");
 
-        Label subtitle = new Label("電影列表 & 餘票（示範：以電影為單位）");
+        Label subtitle = new Label("場次餘票（僅列出已有訂位的場次，其餘場次皆為滿額）");
         subtitle.setStyle("-fx-text-fill: rgba(255,255,255,0.9); -fx-font-size: 16; -fx-font-weight: bold;");
 
         TableView<MovieStock> table = new TableView<>();
@@ -163,7 +163,15 @@ public class AdminModule {
 
         TableColumn<MovieStock, String> movieCol = new TableColumn<>("電影");
         movieCol.setCellValueFactory(new PropertyValueFactory<>("title"));
-        movieCol.setPrefWidth(300);
+        movieCol.setPrefWidth(240);
+
+        TableColumn<MovieStock, String> cinemaCol = new TableColumn<>("影城");
+        cinemaCol.setCellValueFactory(new PropertyValueFactory<>("cinema"));
+        cinemaCol.setPrefWidth(140);
+
+        TableColumn<MovieStock, String> showCol = new TableColumn<>("場次");
+        showCol.setCellValueFactory(new PropertyValueFactory<>("showtime"));
+        showCol.setPrefWidth(160);
 
         TableColumn<MovieStock, Integer> remainCol = new TableColumn<>("剩餘座位");
         remainCol.setCellValueFactory(new PropertyValueFactory<>("remaining"));
@@ -181,7 +189,7 @@ public class AdminModule {
             }
         });
 
-        table.getColumns().addAll(movieCol, remainCol);
+        table.getColumns().addAll(movieCol, cinemaCol, showCol, remainCol);
 
         Button refreshBtn = new Button("🔄 刷新");
         refreshBtn.setStyle("-fx-padding: 8 20; -fx-font-size: 12; -fx-background-color: #32b8c6; -fx-text-fill: white; -fx-border-radius: 5;");
@@ -196,8 +204,8 @@ public class AdminModule {
 
     private void reloadMovieStock(TableView<MovieStock> table) {
         table.getItems().clear();
-        for (BookingService.Movie m : bookingService.getMovies()) {
-            table.getItems().add(new MovieStock(m.title, bookingService.getRemaining(m.title)));
+        for (BookingService.ShowStock s : bookingService.getShowStocks()) {
+            table.getItems().add(new MovieStock(s.movieTitle, s.cinema, s.date + " " + s.time, s.getRemaining()));
         }
     }
 
@@ -297,14 +305,20 @@ public class AdminModule {
 
     public static class MovieStock {
         public String title;
+        public String cinema;
+        public String showtime;
         public int remaining;
 
-        public MovieStock(String title, int remaining) {
+        public MovieStock(String title, String cinema, String showtime, int remaining) {
             this.title = title;
+            this.cinema = cinema;
+            this.showtime = showtime;
             this.remaining = remaining;
         }
 
         public String getTitle() { return title; }
+        public String getCinema() { return cinema; }
+        public String getShowtime() { return showtime; }
         public int getRemaining() { return remaining; }
     }
 
@@ -0,0 +1,413 @@
+package org.example.App.services;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * 訂單生命週期的預寫日誌（write-ahead journal）
+ * - 只追加：CREATE / PAY / REFUND 三種紀錄
+ * - 群組提交：背景執行緒一次取出佇列中所有紀錄，寫入後只做一次 fsync
+ * - 每筆紀錄 [長度][CRC32][內容]；復原時遇到截斷或 CRC 不符即停止並截掉尾端
+ *
+ * 呼叫端在持有場次鎖時 append（只入佇列，不做 I/O），
+ * 釋放鎖後再 await 等待落盤，因此同場次的紀錄順序與記憶體狀態一致。
+ *
+ * 寫入失敗：截回該批次開頭，已寫一半的紀錄不會留在有效紀錄之間；
+ * 連截回都失敗時日誌標記為故障，之後的 append 一律回傳失敗的 future。
+ * 呼叫端 await 失敗時需自行還原記憶體狀態。
+ */
+public class BookingJournal implements Closeable {
+
+    static final byte CREATE = 1;
+    static final byte PAY = 2;
+    static final byte REFUND = 3;
+
+    private static final int MAX_BATCH = 4096;
+    private static final int HEADER_BYTES = 8;
+    /** 單筆紀錄上限（一般 CREATE 約數百 bytes）；replay 時超過視同損毀，避免依損毀的長度配置巨大緩衝 */
+    static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    /** 無法復原的 I/O 錯誤（截回失敗）；非 null 後不再寫入 */
+    private volatile IOException failure;
+
+    private long recoveredRecords;
+    private long recoveryMillis;
+
+    private static final class Pending {
+        final byte[] payload;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+
+    /** 關閉用的哨兵紀錄 */
+    private static final Pending SHUTDOWN = new Pending(new byte[0]);
+
+    public BookingJournal(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.writer = new Thread(this::writeLoop, "booking-journal");
+        this.writer.setDaemon(true);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /** 是否因 I/O 錯誤停止寫入 */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /** 上次 replay 讀到的有效紀錄數 */
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    /** 上次 replay 花費的毫秒數 */
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    // =========================
+    //  Append
+    // =========================
+
+    public CompletableFuture<Void> appendCreate(BookingService.Booking b) {
+        return append(out -> {
+            out.writeByte(CREATE);
+            writeString(out, b.bookingId);
+            writeString(out, b.userId);
+            writeString(out, b.movieTitle);
+            writeString(out, b.cinema);
+            out.writeLong(b.bookingDate.toEpochDay());
+            out.writeLong(b.bookingTime.toNanoOfDay());
+            int[] seats = b.seats == null ? new int[0] : b.seats;
+            out.writeShort(seats.length);
+            for (int seat : seats) out.writeUTF(SeatId.label(seat)); // 檔案格式維持座位文字
+            out.writeInt(b.totalPrice);
+            writeString(out, b.ticketType);
+            writeString(out, b.discountCode);
+            writeString(out, b.meal);
+            writeString(out, b.paymentMethod);
+            writeString(out, b.idNumber);
+            writeDateTime(out, b.createdAt);
+        });
+    }
+
+    public CompletableFuture<Void> appendPay(BookingService.Booking b) {
+        return append(out -> {
+            out.writeByte(PAY);
+            writeString(out, b.bookingId);
+            writeString(out, b.ticketCode);
+            writeDateTime(out, b.paidAt);
+        });
+    }
+
+    public CompletableFuture<Void> appendRefund(BookingService.Booking b) {
+        return append(out -> {
+            out.writeByte(REFUND);
+            writeString(out, b.bookingId);
+            writeDateTime(out, b.refundedAt);
+        });
+    }
+
+    /** 等待紀錄落盤（寫入失敗時丟出 UncheckedIOException） */
+    public static void await(CompletableFuture<Void> f) {
+        if (f == null) return;
+        try {
+            f.join();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+            throw e;
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** 不丟例外：已關閉 / 故障 / 編碼失敗都以失敗的 future 回報，呼叫端統一在 await 處理 */
+    private CompletableFuture<Void> append(RecordWriter w) {
+        if (closed) return CompletableFuture.failedFuture(new IOException("journal closed"));
+        IOException failed = failure;
+        if (failed != null) return CompletableFuture.failedFuture(failed);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            w.write(out);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (bytes.size() > MAX_RECORD_BYTES) {
+            return CompletableFuture.failedFuture(new IOException("journal record too large: " + bytes.size()));
+        }
+        Pending p = new Pending(bytes.toByteArray());
+        queue.add(p);
+        // 與 close() 競爭：寫入執行緒已結束時，佇列中剩下的紀錄不會再有人處理
+        if (closed && !writer.isAlive()) failQueued(new IOException("journal closed"));
+        return p.done;
+    }
+
+    // =========================
+    //  Group commit
+    // =========================
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            stop = batch.remove(SHUTDOWN);
+
+            IOException failed = failure;
+            if (failed != null) {
+                for (Pending p : batch) p.done.completeExceptionally(failed);
+                batch.clear();
+                continue;
+            }
+            long batchStart = -1;
+            try {
+                batchStart = channel.position();
+                for (Pending p : batch) {
+                    crc.reset();
+                    crc.update(p.payload);
+                    header.clear();
+                    header.putInt(p.payload.length).putInt((int) crc.getValue()).flip();
+                    ByteBuffer body = ByteBuffer.wrap(p.payload);
+                    while (header.hasRemaining()) channel.write(header);
+                    while (body.hasRemaining()) channel.write(body);
+                }
+                if (!batch.isEmpty()) channel.force(false);
+                for (Pending p : batch) p.done.complete(null);
+            } catch (IOException e) {
+                rollbackBatch(batchStart, e);
+                for (Pending p : batch) p.done.completeExceptionally(e);
+            }
+            batch.clear();
+        }
+    }
+
+    /** 截掉失敗批次已寫入的部分，讓之後的紀錄接在最後一筆有效紀錄後面 */
+    private void rollbackBatch(long batchStart, IOException cause) {
+        try {
+            if (batchStart < 0) throw cause;
+            channel.truncate(batchStart);
+            channel.position(batchStart);
+            channel.force(false);
+        } catch (IOException e) {
+            if (e != cause) cause.addSuppressed(e);
+            failure = cause;
+        }
+    }
+
+    private void failQueued(IOException cause) {
+        Pending p;
+        while ((p = queue.poll()) != null) p.done.completeExceptionally(cause);
+    }
+
+    // =========================
+    //  Recovery
+    // =========================
+
+    /**
+     * 依序重播到 service，結束後截掉不完整的尾端並開始接受新紀錄。
+     * 只能在 append 之前呼叫一次。
+     */
+    public void replay(BookingService service) throws IOException {
+        long start = System.nanoTime();
+        long records = 0;
+        long validEnd = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            CRC32 crc = new CRC32();
+            byte[] buf = new byte[256];
+            RecordInput record = new RecordInput();
+            DataInputStream recordIn = new DataInputStream(record);
+            Map<Object, Object> dict = new HashMap<>();
+            while (true) {
+                int len;
+                int expect;
+                try {
+                    len = in.readInt();
+                    expect = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (len <= 0 || len > MAX_RECORD_BYTES) break; // 損毀的表頭：與 CRC 不符同樣截斷
+                if (buf.length < len) buf = new byte[Math.max(len, buf.length * 2)];
+                try {
+                    in.readFully(buf, 0, len);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buf, 0, len);
+                if ((int) crc.getValue() != expect) break;
+
+                record.reset(buf, len);
+                apply(service, recordIn, dict);
+                validEnd += HEADER_BYTES + len;
+                records++;
+            }
+        }
+
+        channel.truncate(validEnd);
+        channel.position(validEnd);
+        recoveredRecords = records;
+        recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+        startWriter();
+    }
+
+    /** 只在 replay 把位置移到有效尾端後啟動；重複呼叫不做事 */
+    private void startWriter() {
+        if (writer.getState() == Thread.State.NEW) writer.start();
+    }
+
+    /**
+     * 套用一筆紀錄。
+     * dict 用來共用重複值（片名、影城、日期…），數百萬筆訂單復原時可大幅減少常駐記憶體與 GC。
+     */
+    private void apply(BookingService service, DataInputStream in, Map<Object, Object> dict) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case CREATE: {
+                String bookingId = readString(in);
+                String userId = dedup(dict, readString(in));
+                String movieTitle = dedup(dict, readString(in));
+                String cinema = dedup(dict, readString(in));
+                LocalDate date = dedup(dict, LocalDate.ofEpochDay(in.readLong()));
+                LocalTime time = dedup(dict, LocalTime.ofNanoOfDay(in.readLong()));
+                int n = in.readUnsignedShort();
+                int[] seats = new int[n];
+                for (int i = 0; i < n; i++) seats[i] = SeatId.parse(in.readUTF());
+                int totalPrice = in.readInt();
+                BookingService.Booking b = new BookingService.Booking(
+                        bookingId, userId, movieTitle, cinema, date, time, seats, totalPrice,
+                        dedup(dict, readString(in)), dedup(dict, readString(in)), dedup(dict, readString(in)),
+                        dedup(dict, readString(in)), readString(in));
+                b.createdAt = readDateTime(in);
+                service.restoreCreate(b);
+                break;
+            }
+            case PAY:
+                service.restorePay(readString(in), readString(in), readDateTime(in));
+                break;
+            case REFUND:
+                service.restoreRefund(readString(in), readDateTime(in));
+                break;
+            default:
+                throw new IOException("unknown journal record type " + type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T dedup(Map<Object, Object> dict, T value) {
+        if (value == null) return null;
+        Object prev = dict.putIfAbsent(value, value);
+        return prev == null ? value : (T) prev;
+    }
+
+    /** 可重複使用的紀錄輸入（避免每筆紀錄都建立新的 stream） */
+    private static final class RecordInput extends ByteArrayInputStream {
+        RecordInput() {
+            super(new byte[0]);
+        }
+
+        void reset(byte[] data, int length) {
+            this.buf = data;
+            this.pos = 0;
+            this.count = length;
+            this.mark = 0;
+        }
+    }
+
+    // =========================
+    //  Close
+    // =========================
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (writer.isAlive()) {
+            queue.add(SHUTDOWN);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        failQueued(new IOException("journal closed"));
+        channel.close();
+    }
+
+    // =========================
+    //  Encoding helpers
+    // =========================
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime t) throws IOException {
+        out.writeBoolean(t != null);
+        if (t != null) {
+            out.writeLong(t.toLocalDate().toEpochDay());
+            out.writeLong(t.toLocalTime().toNanoOfDay());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        LocalDate d = LocalDate.ofEpochDay(in.readLong());
+        return LocalDateTime.of(d, LocalTime.ofNanoOfDay(in.readLong()));
+    }
+}
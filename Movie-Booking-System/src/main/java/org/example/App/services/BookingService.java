@@ -1,9 +1,20 @@
 package org.example.App.services;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
  * 訂票核心服務（示範版）
@@ -11,24 +22,68 @@ import java.util.*;
  * - 影城清單（用於推薦/顯示）
  * - 座位占用（以 movie+cinema+date+time 為一個場次 showKey）
  * - 訂單建立 / 付款確認 / 退票
- * - 餘票更新（以電影為單位簡化）
+ * - 訂單索引（bookingId / userId / showKey）
+ * - 座位暫留（付款期間的租約，到期由時間輪自動釋放）
+ * - 可選的預寫日誌（BookingJournal）：建立/付款/退票落盤後才回傳，啟動時重播
+ * - 場次餘票（每場次一個原子計數，與座位表同步更新）
+ *
+ * 執行緒安全：同一場次的占位/付款/退票在該場次的分段鎖（striped lock）內完成，
+ * 不同場次可平行處理。
  */
-public class BookingService {
+public class BookingService implements AutoCloseable {
 
-    /** 座位配置：與 BookingModule 的座位格一致 */
+    /** 預設座位配置（未另外設定影廳配置的影城使用） */
     public static final int SEAT_ROWS = 8;
     public static final int SEAT_COLS = 12;
     public static final int SEAT_CAPACITY = SEAT_ROWS * SEAT_COLS; // 96
+    public static final HallLayout DEFAULT_LAYOUT = HallLayout.rectangle(SEAT_ROWS, SEAT_COLS);
+
+    /** 付款畫面的交易限時 */
+    public static final Duration PAYMENT_TIMEOUT = Duration.ofSeconds(180);
+
+    /** 預設暫留時間：交易限時再加寬限，避免使用者在最後一步時暫留先到期 */
+    public static final Duration DEFAULT_HOLD_LEASE = PAYMENT_TIMEOUT.plusSeconds(60);
+
+    /** 訂單編號/票券代碼：同一程序內共用，節點編號可用 -Dbooking.nodeId 指定 */
+    private static final IdGenerator ID_GENERATOR = new IdGenerator(Integer.getInteger("booking.nodeId", 0));
 
     private final List<Movie> movies = new ArrayList<>();
     private final List<Cinema> cinemas = new ArrayList<>();
-    private final List<Booking> bookings = new ArrayList<>();
+    private final List<Booking> bookings = Collections.synchronizedList(new ArrayList<>());
+
+    /** 訂單索引：建立時寫入，付款/退票只改狀態不改 key，因此不需搬移 */
+    private final Map<String, Booking> bookingsById = new ConcurrentHashMap<>();
+    private final Map<String, List<Booking>> bookingsByUser = new ConcurrentHashMap<>();
+    private final Map<String, List<Booking>> bookingsByShow = new ConcurrentHashMap<>();
+
+    /** 已被訂走的座位（依 showKey 場次管理，bitset 版座位表，大小依該影城的 HallLayout） */
+    private final Map<String, SeatMap> seatMapsByShow = new ConcurrentHashMap<>();
+
+    /** 影城 -> 影廳配置；未設定者用 DEFAULT_LAYOUT。場次座位表建立時決定，之後不隨設定變動 */
+    private final Map<String, HallLayout> layoutsByCinema = new ConcurrentHashMap<>();
+
+    /** 尚無人訂位的場次查詢用：每種配置一份空座位表（唯讀） */
+    private final Map<HallLayout, SeatMap> emptySeatMaps = new ConcurrentHashMap<>();
+
+    /** 場次餘票：在場次鎖內與座位表一起更新，讀取不需加鎖 */
+    private final Map<String, ShowStock> stockByShow = new ConcurrentHashMap<>();
 
-    /** 以電影為單位的剩餘（示範：不區分場次） */
-    private final Map<String, Integer> movieRemaining = new HashMap<>();
+    /** 場次分段鎖：showKey 雜湊到固定數量的鎖，同場次必定落在同一把鎖 */
+    private static final int LOCK_STRIPES = 64;
+    private final ReentrantLock[] showLocks = new ReentrantLock[LOCK_STRIPES];
 
-    /** 已被訂走的座位（依 showKey 場次管理） */
-    private final Map<String, Set<String>> bookedSeatsByShow = new HashMap<>();
+    /** 預寫日誌（純記憶體模式為 null） */
+    private final BookingJournal journal;
+
+    /** 暫留中的座位租約；到期由時間輪（100ms 一格）檢查，第一次暫留時才啟動計時執行緒 */
+    private final Map<String, SeatHold> holdsById = new ConcurrentHashMap<>();
+    private final HashedWheelTimer holdTimer = new HashedWheelTimer(100, 512);
+
+    /** 已付款票數排行（付款/退票時增量更新） */
+    private final PopularityTracker popularity = new PopularityTracker();
+
+    /** 餘票變動監聽（例如動態票價） */
+    private final List<StockListener> stockListeners = new CopyOnWriteArrayList<>();
 
     /** ✅ 定義 Movie 內部類 */
     public static class Movie {
@@ -60,6 +115,44 @@ public class BookingService {
         }
     }
 
+    /** ✅ 場次餘票（剩餘 = 容量 - 已售出 - 暫留中） */
+    public static class ShowStock {
+        public final String showKey;
+        public final String movieTitle;
+        public final String cinema;
+        public final LocalDate date;
+        public final LocalTime time;
+        public final int capacity;
+        private final AtomicInteger remaining;
+
+        ShowStock(String showKey, String movieTitle, String cinema, LocalDate date, LocalTime time, int capacity) {
+            this.showKey = showKey;
+            this.movieTitle = movieTitle;
+            this.cinema = cinema;
+            this.date = date;
+            this.time = time;
+            this.capacity = capacity;
+            this.remaining = new AtomicInteger(capacity);
+        }
+
+        public int getRemaining() {
+            return remaining.get();
+        }
+
+        /** 已售出 + 暫留中 */
+        public int getOccupied() {
+            return capacity - remaining.get();
+        }
+    }
+
+    /**
+     * 場次餘票變動通知（場次建立時與每次座位表變動後）
+     * 在場次鎖內同步呼叫：實作需快速，且不可再呼叫 BookingService 的寫入方法。
+     */
+    public interface StockListener {
+        void onStockChanged(ShowStock stock);
+    }
+
     /** ✅ 訂單（Booking） */
     public static class Booking {
         public String bookingId;
@@ -68,7 +161,7 @@ public class BookingService {
         public String cinema;
         public LocalDate bookingDate;  // 此處作為「場次日期」
         public LocalTime bookingTime;  // 此處作為「場次時間」
-        public List<String> seats;
+        public int[] seats;            // SeatId 編碼；顯示用 getSeatLabels()
         public int totalPrice;
 
         // 額外資訊
@@ -86,7 +179,7 @@ public class BookingService {
         public LocalDateTime refundedAt;
 
         public Booking(String bookingId, String userId, String movieTitle, String cinema,
-                       LocalDate bookingDate, LocalTime bookingTime, List<String> seats,
+                       LocalDate bookingDate, LocalTime bookingTime, int[] seats,
                        int totalPrice, String ticketType, String discountCode, String meal,
                        String paymentMethod, String idNumber) {
             this.bookingId = bookingId;
@@ -95,7 +188,7 @@ public class BookingService {
             this.cinema = cinema;
             this.bookingDate = bookingDate;
             this.bookingTime = bookingTime;
-            this.seats = new ArrayList<>(seats);
+            this.seats = seats;
             this.totalPrice = totalPrice;
             this.ticketType = ticketType;
             this.discountCode = discountCode;
@@ -107,24 +200,75 @@ public class BookingService {
             this.createdAt = LocalDateTime.now();
         }
 
-        private String generateTicketCode() {
-            // 6 位數碼（示範），避免太長
-            long n = Math.abs(System.currentTimeMillis()) % 1_000_000;
-            return "TK" + String.format("%06d", n);
+        /** 座位顯示文字（"A1" ...），只在 UI / API 輸出時使用 */
+        public List<String> getSeatLabels() {
+            return SeatId.labels(seats);
+        }
+
+        public int getSeatCount() {
+            return seats == null ? 0 : seats.length;
         }
 
         private void issueTicketIfNeeded() {
             if (this.ticketCode == null) {
-                this.ticketCode = generateTicketCode();
+                this.ticketCode = ID_GENERATOR.nextTicketCode();
             }
         }
     }
 
     public BookingService() {
+        this(Collections.emptyMap());
+    }
+
+    /** 不啟用日誌，套用各影城的影廳配置 */
+    public BookingService(Map<String, HallLayout> hallLayouts) {
+        this.journal = null;
+        initialize();
+        layoutsByCinema.putAll(hallLayouts);
+    }
+
+    /** 以日誌檔啟動：先重播既有紀錄，之後的建立/付款/退票都會寫入日誌 */
+    public BookingService(Path journalFile) throws IOException {
+        this(journalFile, Collections.emptyMap());
+    }
+
+    /** 同上，並在重播前套用各影城的影廳配置（重播出的座位表才會是正確大小） */
+    public BookingService(Path journalFile, Map<String, HallLayout> hallLayouts) throws IOException {
+        this.journal = new BookingJournal(journalFile);
+        initialize();
+        layoutsByCinema.putAll(hallLayouts);
+        try {
+            journal.replay(this);
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+    }
+
+    private void initialize() {
+        for (int i = 0; i < showLocks.length; i++) {
+            showLocks[i] = new ReentrantLock();
+        }
         initializeMovies();
         initializeCinemas();
     }
 
+    /** 日誌（純記憶體模式為 null） */
+    public BookingJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void close() {
+        holdTimer.close();
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private void initializeMovies() {
         movies.add(new Movie(
                 "阿凡達：火與燼",
@@ -161,11 +305,6 @@ public class BookingService {
                 9.0,
                 144
         ));
-
-        // 以「座位格容量」當作每部片的示範餘票上限
-        for (Movie movie : movies) {
-            movieRemaining.put(movie.title, SEAT_CAPACITY);
-        }
     }
 
     private void initializeCinemas() {
@@ -209,15 +348,9 @@ public class BookingService {
         return list.subList(0, Math.min(limit, list.size()));
     }
 
-    /** 最熱門電影（依已付款訂單數排序） */
+    /** 依已付款票數排行（O(K)）；沒有任何已付款訂單時改用評分排序 */
     public List<String> getMostPopularMovies(int limit) {
-        Map<String, Integer> count = new HashMap<>();
-        for (Booking b : bookings) {
-            if (!"已付款".equals(b.status)) continue;
-            count.put(b.movieTitle, count.getOrDefault(b.movieTitle, 0) + 1);
-        }
-        List<String> titles = new ArrayList<>(count.keySet());
-        titles.sort((a, b) -> Integer.compare(count.getOrDefault(b, 0), count.getOrDefault(a, 0)));
+        List<String> titles = popularity.top(limit);
         if (titles.isEmpty()) {
             // 沒有資料就用評分排序
             List<Movie> ms = getMovies();
@@ -227,19 +360,108 @@ public class BookingService {
         return titles.subList(0, Math.min(limit, titles.size()));
     }
 
+    /** 近期熱門（近一小時 / 一天 / 一週的已付款票數）；視窗內無資料時回傳空清單 */
+    public List<String> getTrendingMovies(PopularityTracker.Window window, int limit) {
+        return popularity.top(window, limit);
+    }
+
+    public PopularityTracker getPopularity() {
+        return popularity;
+    }
+
+    // =========================
+    //  Hall layout
+    // =========================
+
+    /** 設定影城的影廳配置；只影響之後才建立座位表的場次 */
+    public void setHallLayout(String cinema, HallLayout layout) {
+        if (cinema == null) return;
+        if (layout == null) layoutsByCinema.remove(cinema);
+        else layoutsByCinema.put(cinema, layout);
+    }
+
+    public HallLayout getHallLayout(String cinema) {
+        HallLayout layout = cinema == null ? null : layoutsByCinema.get(cinema);
+        return layout == null ? DEFAULT_LAYOUT : layout;
+    }
+
+    /** 場次實際使用的配置（已有座位表者以座位表為準） */
+    public HallLayout getShowLayout(String showKey) {
+        if (showKey == null) return DEFAULT_LAYOUT;
+        SeatMap map = seatMapsByShow.get(showKey);
+        return map != null ? map.getLayout() : getHallLayout(cinemaOf(showKey));
+    }
+
     /** 場次 key（座位占用用） */
     public String buildShowKey(String movieTitle, String cinema, LocalDate date, LocalTime time) {
         return movieTitle + "|" + cinema + "|" + date + "|" + time;
     }
 
-    /** 取得某場次已被訂走的座位 */
+    /** 取得某場次已被訂走的座位（唯讀檢視，不複製；與並行訂位為弱一致） */
     public Set<String> getBookedSeats(String showKey) {
-        Set<String> set = bookedSeatsByShow.getOrDefault(showKey, Collections.emptySet());
-        return new HashSet<>(set);
+        SeatMap map = seatMapsByShow.get(showKey);
+        return map == null ? Collections.emptySet() : map.bookedView();
     }
 
     public boolean isSeatAvailable(String showKey, String seatId) {
-        return !bookedSeatsByShow.getOrDefault(showKey, Collections.emptySet()).contains(seatId);
+        SeatMap map = seatMapsByShow.get(showKey);
+        if (map == null) return getShowLayout(showKey).indexOf(seatId) >= 0;
+        ReentrantLock lock = lockFor(showKey);
+        lock.lock();
+        try {
+            return map.isAvailable(seatId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 取得某場次不可選的座位（已售出 + 他人暫留中；唯讀檢視，不持鎖讀取，與並行訂位為弱一致） */
+    public Set<String> getUnavailableSeats(String showKey) {
+        SeatMap map = seatMapsByShow.get(showKey);
+        return map == null ? Collections.emptySet() : map.unavailableView();
+    }
+
+    /** 取得場次座位表（尚無人訂位時為 null） */
+    public SeatMap getSeatMap(String showKey) {
+        return seatMapsByShow.get(showKey);
+    }
+
+    /**
+     * 建議最佳連號座位（同排、靠中央、接近理想排），只查詢不暫留
+     * 沒有足夠的連號空位回傳 null
+     */
+    public List<String> findBestSeats(String showKey, int qty) {
+        SeatMap map = seatMapsByShow.get(showKey);
+        if (map == null) {
+            SeatMap empty = emptySeatMap(showKey);
+            return seatIdsOf(empty, empty.findBestBlock(qty));
+        }
+        ReentrantLock lock = lockFor(showKey);
+        lock.lock();
+        try {
+            return seatIdsOf(map, map.findBestBlock(qty));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 建議團體座位：單排連號優先，不行就拆成最少的相鄰數排（例如 3 + 3），只查詢不暫留
+     * 回傳各排的座位（由前排到後排）；找不到回傳 null
+     */
+    public List<List<String>> findPartySeats(String showKey, int qty) {
+        SeatMap map = seatMapsByShow.get(showKey);
+        if (map == null) {
+            SeatMap empty = emptySeatMap(showKey);
+            return seatBlocksOf(empty, empty.findPartyBlocks(qty));
+        }
+        ReentrantLock lock = lockFor(showKey);
+        lock.lock();
+        try {
+            return seatBlocksOf(map, map.findPartyBlocks(qty));
+        } finally {
+            lock.unlock();
+        }
     }
 
     // =========================
@@ -249,31 +471,48 @@ public class BookingService {
     /**
      * 建立訂單（已確認：尚未付款）
      * - 會先「占用座位」（避免同場次重複選位）
+     * - 檢查與占用在同一把場次鎖內完成：全部座位成功或全部不占
      */
     public Booking createBooking(String userId, String movieTitle, String cinema,
                                  LocalDate date, LocalTime time, List<String> seats, int totalPrice,
                                  String ticketType, String discountCode, String meal,
                                  String paymentMethod, String idNumber) {
+        return createBooking(userId, movieTitle, cinema, date, time, SeatId.parseAll(seats), totalPrice,
+                ticketType, discountCode, meal, paymentMethod, idNumber);
+    }
 
-        String showKey = buildShowKey(movieTitle, cinema, date, time);
+    /** 同上，座位以 SeatId 編碼傳入（不解析字串）；seatCodes 由訂單保存，呼叫端之後不可再修改 */
+    public Booking createBooking(String userId, String movieTitle, String cinema,
+                                 LocalDate date, LocalTime time, int[] seatCodes, int totalPrice,
+                                 String ticketType, String discountCode, String meal,
+                                 String paymentMethod, String idNumber) {
 
-        // 1) 座位檢查
-        if (seats == null || seats.isEmpty()) return null;
-        for (String seat : seats) {
-            if (!isValidSeat(seat)) return null;
-            if (!isSeatAvailable(showKey, seat)) return null;
-        }
+        String showKey = buildShowKey(movieTitle, cinema, date, time);
 
-        // 2) 占用座位
-        reserveSeats(showKey, seats);
+        // 1) 座位檢查 + 2) 占用座位（全部可用才一次寫入）
+        if (seatCodes == null || seatCodes.length == 0) return null;
+        SeatMap map = seatMapOf(showKey, movieTitle, cinema, date, time);
+        int[] indexes = map.toIndexes(seatCodes);
+        if (indexes == null) return null;
 
-        // 3) 建立訂單
-        String bookingId = "BK" + (System.currentTimeMillis() % 1_000_000);
+        // 3) 建立訂單（占位成功才登錄，並在同一把鎖內寫入日誌佇列）
+        String bookingId = ID_GENERATOR.nextBookingId();
         Booking booking = new Booking(
                 bookingId, userId, movieTitle, cinema, date, time,
-                seats, totalPrice, ticketType, discountCode, meal, paymentMethod, idNumber
+                seatCodes, totalPrice, ticketType, discountCode, meal, paymentMethod, idNumber
         );
-        bookings.add(booking);
+        CompletableFuture<Void> durable;
+        ReentrantLock lock = lockFor(showKey);
+        lock.lock();
+        try {
+            if (!map.reserveAll(indexes)) return null;
+            syncStock(showKey, map);
+            indexBooking(booking, showKey);
+            durable = journal == null ? null : journal.appendCreate(booking);
+        } finally {
+            lock.unlock();
+        }
+        awaitCreate(durable, booking, showKey);
         return booking;
     }
 
@@ -284,52 +523,341 @@ public class BookingService {
                 null, null, null, null, null);
     }
 
-    /** 確認付款：生成電子票券 + 更新餘票 */
-    public boolean confirmPayment(Booking booking) {
-        if (booking == null) return false;
-        if ("已退票".equals(booking.status)) return false;
-        if ("已付款".equals(booking.status)) return true;
+    // =========================
+    //  Seat hold（付款期間暫留）
+    // =========================
 
-        booking.status = "已付款";
-        booking.paidAt = LocalDateTime.now();
-        booking.issueTicketIfNeeded();
+    public SeatHold holdSeats(String movieTitle, String cinema, LocalDate date, LocalTime time,
+                              List<String> seats) {
+        return holdSeats(movieTitle, cinema, date, time, seats, DEFAULT_HOLD_LEASE);
+    }
 
-        // 更新餘票（以電影為單位簡化）
-        updateRemaining(booking.movieTitle, booking.seats != null ? booking.seats.size() : 0);
-        return true;
+    /**
+     * 暫留座位：全部可用才一次暫留，否則回傳 null
+     * 租約到期前未轉單或延長，座位會自動釋放
+     */
+    public SeatHold holdSeats(String movieTitle, String cinema, LocalDate date, LocalTime time,
+                              List<String> seats, Duration lease) {
+        if (seats == null || seats.isEmpty()) return null;
+        if (lease == null || lease.isNegative() || lease.isZero()) return null;
+
+        int[] seatCodes = SeatId.parseAll(seats);
+        if (seatCodes == null) return null;
+
+        String showKey = buildShowKey(movieTitle, cinema, date, time);
+        SeatMap map = seatMapOf(showKey, movieTitle, cinema, date, time);
+        int[] indexes = map.toIndexes(seatCodes);
+        if (indexes == null) return null;
+
+        SeatHold hold = new SeatHold(ID_GENERATOR.nextHoldId(), movieTitle, cinema, date, time, showKey,
+                seatCodes, indexes, System.currentTimeMillis() + lease.toMillis());
+        ReentrantLock lock = lockFor(showKey);
+        lock.lock();
+        try {
+            if (!map.holdAll(indexes)) return null;
+            if (!scheduleExpiry(hold)) {
+                map.releaseHeld(indexes);
+                return null;
+            }
+            syncStock(showKey, map);
+            holdsById.put(hold.getHoldId(), hold);
+        } finally {
+            lock.unlock();
+        }
+        return hold;
+    }
+
+    public SeatHold holdBestSeats(String movieTitle, String cinema, LocalDate date, LocalTime time, int qty) {
+        return holdBestSeats(movieTitle, cinema, date, time, qty, DEFAULT_HOLD_LEASE);
+    }
+
+    /**
+     * 自動選位並暫留：找位與暫留在同一把場次鎖內完成，並行選位不會搶到同一組座位
+     * 沒有足夠的連號空位回傳 null
+     */
+    public SeatHold holdBestSeats(String movieTitle, String cinema, LocalDate date, LocalTime time,
+                                  int qty, Duration lease) {
+        return holdFound(movieTitle, cinema, date, time, qty, lease, map -> map.findBestBlock(qty));
+    }
+
+    public SeatHold holdPartySeats(String movieTitle, String cinema, LocalDate date, LocalTime time, int qty) {
+        return holdPartySeats(movieTitle, cinema, date, time, qty, DEFAULT_HOLD_LEASE);
+    }
+
+    /**
+     * 團體自動選位並暫留（規則同 findPartySeats），找位與暫留在同一把場次鎖內完成
+     * 找不到回傳 null
+     */
+    public SeatHold holdPartySeats(String movieTitle, String cinema, LocalDate date, LocalTime time,
+                                   int qty, Duration lease) {
+        return holdFound(movieTitle, cinema, date, time, qty, lease, map -> flatten(map.findPartyBlocks(qty)));
+    }
+
+    /** 在場次鎖內以 finder 找位並暫留 */
+    private SeatHold holdFound(String movieTitle, String cinema, LocalDate date, LocalTime time,
+                               int qty, Duration lease, Function<SeatMap, int[]> finder) {
+        if (qty <= 0) return null;
+        if (lease == null || lease.isNegative() || lease.isZero()) return null;
+
+        String showKey = buildShowKey(movieTitle, cinema, date, time);
+        SeatMap map = seatMapOf(showKey, movieTitle, cinema, date, time);
+        String holdId = ID_GENERATOR.nextHoldId();
+        SeatHold hold;
+        ReentrantLock lock = lockFor(showKey);
+        lock.lock();
+        try {
+            int[] indexes = finder.apply(map);
+            if (indexes == null || !map.holdAll(indexes)) return null;
+            hold = new SeatHold(holdId, movieTitle, cinema, date, time, showKey,
+                    map.toSeatCodes(indexes), indexes, System.currentTimeMillis() + lease.toMillis());
+            if (!scheduleExpiry(hold)) {
+                map.releaseHeld(indexes);
+                return null;
+            }
+            syncStock(showKey, map);
+            holdsById.put(holdId, hold);
+        } finally {
+            lock.unlock();
+        }
+        return hold;
+    }
+
+    /** 取得仍有效的暫留（已到期/已轉單/已釋放回傳 null） */
+    public SeatHold getHold(String holdId) {
+        SeatHold hold = holdId == null ? null : holdsById.get(holdId);
+        if (hold == null || hold.isExpired(System.currentTimeMillis())) return null;
+        return hold;
+    }
+
+    /** 延長租約（從現在起算 lease；不會縮短既有租約）；已失效回傳 false */
+    public boolean extendHold(String holdId, Duration lease) {
+        SeatHold hold = holdId == null ? null : holdsById.get(holdId);
+        if (hold == null || lease == null || lease.isNegative()) return false;
+        ReentrantLock lock = lockFor(hold.getShowKey());
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (!hold.active || hold.isExpired(now)) return false;
+            hold.setExpiresAtMillis(Math.max(hold.getExpiresAtMillis(), now + lease.toMillis()));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 主動釋放暫留（例如取消付款）；已失效回傳 false */
+    public boolean releaseHold(String holdId) {
+        SeatHold hold = holdId == null ? null : holdsById.get(holdId);
+        if (hold == null) return false;
+        ReentrantLock lock = lockFor(hold.getShowKey());
+        lock.lock();
+        try {
+            if (!hold.active) return false;
+            dropHold(hold);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 付款成功：把暫留轉成訂單（已確認：尚未付款，之後再 confirmPayment）
+     * 暫留已到期或已釋放時回傳 null
+     */
+    public Booking createBookingFromHold(String holdId, String userId, int totalPrice,
+                                         String ticketType, String discountCode, String meal,
+                                         String paymentMethod, String idNumber) {
+        SeatHold hold = holdId == null ? null : holdsById.get(holdId);
+        if (hold == null) return null;
+
+        Booking booking = new Booking(
+                ID_GENERATOR.nextBookingId(), userId, hold.getMovieTitle(), hold.getCinema(),
+                hold.getDate(), hold.getTime(), hold.seatCodes(), totalPrice,
+                ticketType, discountCode, meal, paymentMethod, idNumber
+        );
+        CompletableFuture<Void> durable;
+        ReentrantLock lock = lockFor(hold.getShowKey());
+        lock.lock();
+        try {
+            if (!hold.active) return null;
+            if (hold.isExpired(System.currentTimeMillis())) {
+                dropHold(hold);
+                return null;
+            }
+            SeatMap map = seatMapsByShow.get(hold.getShowKey());
+            if (!map.commitHeld(hold.indexes)) return null;
+            hold.active = false;
+            holdsById.remove(hold.getHoldId());
+            indexBooking(booking, hold.getShowKey());
+            durable = journal == null ? null : journal.appendCreate(booking);
+        } finally {
+            lock.unlock();
+        }
+        awaitCreate(durable, booking, hold.getShowKey());
+        return booking;
     }
 
-    /** 更新剩餘座位（以電影為單位） */
-    public void updateRemaining(String movieTitle, int quantity) {
-        int remaining = movieRemaining.getOrDefault(movieTitle, SEAT_CAPACITY);
-        movieRemaining.put(movieTitle, Math.max(0, remaining - Math.max(0, quantity)));
+    /**
+     * 排程到期釋放；在公開暫留之前呼叫（持有場次鎖，到點的任務會等鎖）
+     * 計時器已關閉（服務已 close）時回傳 false，呼叫端不可再保留座位
+     */
+    private boolean scheduleExpiry(SeatHold hold) {
+        long delay = hold.getExpiresAtMillis() - System.currentTimeMillis();
+        try {
+            holdTimer.schedule(() -> expireHold(hold), delay);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /** 計時器到點：若租約已被延長則重新排程，否則釋放 */
+    private void expireHold(SeatHold hold) {
+        boolean extended;
+        ReentrantLock lock = lockFor(hold.getShowKey());
+        lock.lock();
+        try {
+            if (!hold.active) return;
+            extended = !hold.isExpired(System.currentTimeMillis());
+            if (!extended) dropHold(hold);
+        } finally {
+            lock.unlock();
+        }
+        if (extended) scheduleExpiry(hold);
+    }
+
+    /** 呼叫端需持有該場次的鎖 */
+    private void dropHold(SeatHold hold) {
+        hold.active = false;
+        holdsById.remove(hold.getHoldId());
+        SeatMap map = seatMapsByShow.get(hold.getShowKey());
+        if (map == null) return;
+        map.releaseHeld(hold.indexes);
+        syncStock(hold.getShowKey(), map);
+    }
+
+    /** 確認付款：生成電子票券 + 更新餘票；日誌寫入失敗時還原為未付款並丟出 UncheckedIOException */
+    public boolean confirmPayment(Booking booking) {
+        if (booking == null) return false;
+        CompletableFuture<Void> durable;
+        String ticketCode;
+        ReentrantLock lock = lockFor(showKeyOf(booking));
+        lock.lock();
+        try {
+            if ("已退票".equals(booking.status)) return false;
+            if ("已付款".equals(booking.status)) return true;
+
+            booking.status = "已付款";
+            booking.paidAt = LocalDateTime.now();
+            booking.issueTicketIfNeeded();
+            ticketCode = booking.ticketCode;
+            recordPaid(booking);
+            durable = journal == null ? null : journal.appendPay(booking);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            BookingJournal.await(durable);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                // 期間已被退票則交給退票流程，不再改動
+                if ("已付款".equals(booking.status) && ticketCode.equals(booking.ticketCode)) {
+                    recordRefund(booking);
+                    booking.status = "已確認";
+                    booking.paidAt = null;
+                    booking.ticketCode = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        return true;
     }
 
     /** 退票：
      * - 狀態改為已退票
-     * - 釋放座位（同場次可再選）
-     * - 餘票回補（示範版：加回電影餘票）
+     * - 落盤後才釋放座位（同場次可再選），場次餘票隨座位表回補；
+     *   日誌寫入失敗時還原原狀態並丟出 UncheckedIOException，座位不會被別人訂走
      */
     public boolean refundBooking(String bookingId) {
-        for (Booking booking : bookings) {
-            if (!booking.bookingId.equals(bookingId)) continue;
+        Booking booking = getBookingById(bookingId);
+        if (booking == null) return false;
 
+        String showKey = showKeyOf(booking);
+        CompletableFuture<Void> durable;
+        String previousStatus;
+        ReentrantLock lock = lockFor(showKey);
+        lock.lock();
+        try {
             if ("已退票".equals(booking.status)) return true;
 
+            previousStatus = booking.status;
+            if ("已付款".equals(previousStatus)) recordRefund(booking);
             booking.status = "已退票";
             booking.refundedAt = LocalDateTime.now();
+            durable = journal == null ? null : journal.appendRefund(booking);
+            if (durable == null) releaseSeats(showKey, booking.seats);
+        } finally {
+            lock.unlock();
+        }
+        if (durable == null) return true;
 
-            String showKey = buildShowKey(booking.movieTitle, booking.cinema, booking.bookingDate, booking.bookingTime);
-            releaseSeats(showKey, booking.seats);
+        RuntimeException failure = null;
+        try {
+            BookingJournal.await(durable);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        lock.lock();
+        try {
+            if (failure == null || bookingsById.get(booking.bookingId) != booking) {
+                // 落盤成功，或訂單本身已因建立失敗被撤銷：座位一律釋放
+                releaseSeats(showKey, booking.seats);
+            } else {
+                booking.status = previousStatus;
+                booking.refundedAt = null;
+                if ("已付款".equals(previousStatus)) recordPaid(booking);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (failure != null) throw failure;
+        return true;
+    }
 
-            // 回補餘票（示範）
-            int remaining = movieRemaining.getOrDefault(booking.movieTitle, SEAT_CAPACITY);
-            int add = booking.seats != null ? booking.seats.size() : 0;
-            movieRemaining.put(booking.movieTitle, Math.min(SEAT_CAPACITY, remaining + add));
+    // =========================
+    //  Journal replay（只在建構時單執行緒呼叫）
+    // =========================
 
-            return true;
-        }
-        return false;
+    void restoreCreate(Booking booking) {
+        String showKey = showKeyOf(booking);
+        SeatMap map = seatMapOf(showKey, booking.movieTitle, booking.cinema, booking.bookingDate, booking.bookingTime);
+        int[] indexes = map.toIndexes(booking.seats);
+        if (indexes != null) map.reserveAll(indexes);
+        syncStock(showKey, map);
+        indexBooking(booking, showKey);
+        ID_GENERATOR.observeBookingId(booking.bookingId);
+    }
+
+    void restorePay(String bookingId, String ticketCode, LocalDateTime paidAt) {
+        Booking booking = getBookingById(bookingId);
+        if (booking == null || !"已確認".equals(booking.status)) return;
+        booking.status = "已付款";
+        booking.paidAt = paidAt;
+        booking.ticketCode = ticketCode;
+        ID_GENERATOR.observeTicketCode(ticketCode);
+        recordPaid(booking);
+    }
+
+    void restoreRefund(String bookingId, LocalDateTime refundedAt) {
+        Booking booking = getBookingById(bookingId);
+        if (booking == null || "已退票".equals(booking.status)) return;
+        if ("已付款".equals(booking.status)) recordRefund(booking);
+        booking.status = "已退票";
+        booking.refundedAt = refundedAt;
+        releaseSeats(showKeyOf(booking), booking.seats);
     }
 
     // =========================
@@ -337,54 +865,224 @@ public class BookingService {
     // =========================
 
     public List<Booking> getUserBookings(String userId) {
-        List<Booking> userBookings = new ArrayList<>();
-        for (Booking booking : bookings) {
-            if (booking.userId.equals(userId)) userBookings.add(booking);
-        }
-        return userBookings;
+        if (userId == null) return new ArrayList<>();
+        return snapshot(bookingsByUser.get(userId));
+    }
+
+    /** 某場次的全部訂單（含已退票） */
+    public List<Booking> getShowBookings(String showKey) {
+        if (showKey == null) return new ArrayList<>();
+        return snapshot(bookingsByShow.get(showKey));
     }
 
     public List<Booking> getAllBookings() {
-        return new ArrayList<>(bookings);
+        synchronized (bookings) {
+            return new ArrayList<>(bookings);
+        }
     }
 
     public Booking getBookingById(String bookingId) {
-        for (Booking b : bookings) {
-            if (b.bookingId.equals(bookingId)) return b;
-        }
-        return null;
+        return bookingId == null ? null : bookingsById.get(bookingId);
+    }
+
+    /** 場次餘票（O(1)，不需加鎖）；尚無人訂位的場次為滿額 */
+    public int getRemaining(String movieTitle, String cinema, LocalDate date, LocalTime time) {
+        return getShowRemaining(buildShowKey(movieTitle, cinema, date, time));
+    }
+
+    public int getShowRemaining(String showKey) {
+        ShowStock stock = showKey == null ? null : stockByShow.get(showKey);
+        return stock == null ? getShowLayout(showKey).getCapacity() : stock.getRemaining();
     }
 
-    public int getRemaining(String movieTitle) {
-        return movieRemaining.getOrDefault(movieTitle, SEAT_CAPACITY);
+    public ShowStock getShowStock(String showKey) {
+        return showKey == null ? null : stockByShow.get(showKey);
+    }
+
+    /** 註冊餘票變動監聽；已存在的場次不會補發通知（可先用 getShowStocks() 取得現況） */
+    public void addStockListener(StockListener listener) {
+        if (listener != null) stockListeners.add(listener);
+    }
+
+    public void removeStockListener(StockListener listener) {
+        stockListeners.remove(listener);
+    }
+
+    /** 已有訂位/暫留的場次餘票（後台庫存用，依電影、日期、時間、影城排序） */
+    public List<ShowStock> getShowStocks() {
+        List<ShowStock> list = new ArrayList<>(stockByShow.values());
+        list.sort(Comparator.comparing((ShowStock st) -> st.movieTitle)
+                .thenComparing(st -> st.date)
+                .thenComparing(st -> st.time)
+                .thenComparing(st -> st.cinema));
+        return list;
     }
 
     // =========================
     //  Seat helpers
     // =========================
 
-    private boolean isValidSeat(String seatId) {
-        if (seatId == null || seatId.length() < 2) return false;
-        char row = Character.toUpperCase(seatId.charAt(0));
-        if (row < 'A' || row >= ('A' + SEAT_ROWS)) return false;
-        String numStr = seatId.substring(1);
+    /** 空座位表只會被讀取（找位），不會寫入 */
+    private SeatMap emptySeatMap(String showKey) {
+        return emptySeatMaps.computeIfAbsent(getShowLayout(showKey), SeatMap::new);
+    }
+
+    /** showKey = 電影|影城|日期|時間，取出影城（電影名稱含 '|' 也不受影響） */
+    private static String cinemaOf(String showKey) {
+        if (showKey == null) return null;
+        int timeSep = showKey.lastIndexOf('|');
+        int dateSep = timeSep <= 0 ? -1 : showKey.lastIndexOf('|', timeSep - 1);
+        int cinemaSep = dateSep <= 0 ? -1 : showKey.lastIndexOf('|', dateSep - 1);
+        return cinemaSep < 0 ? null : showKey.substring(cinemaSep + 1, dateSep);
+    }
+
+    private static List<String> seatIdsOf(SeatMap map, int[] indexes) {
+        if (indexes == null) return null;
+        List<String> out = new ArrayList<>(indexes.length);
+        for (int idx : indexes) out.add(map.seatIdOf(idx));
+        return out;
+    }
+
+    private static List<List<String>> seatBlocksOf(SeatMap map, int[][] blocks) {
+        if (blocks == null) return null;
+        List<List<String>> out = new ArrayList<>(blocks.length);
+        for (int[] block : blocks) out.add(seatIdsOf(map, block));
+        return out;
+    }
+
+    private static int[] flatten(int[][] blocks) {
+        if (blocks == null) return null;
+        int n = 0;
+        for (int[] block : blocks) n += block.length;
+        int[] out = new int[n];
+        int pos = 0;
+        for (int[] block : blocks) {
+            System.arraycopy(block, 0, out, pos, block.length);
+            pos += block.length;
+        }
+        return out;
+    }
+
+    /** 等待建立訂單落盤；失敗時撤銷（移除索引、釋放座位）並丟出 UncheckedIOException */
+    private void awaitCreate(CompletableFuture<Void> durable, Booking booking, String showKey) {
         try {
-            int col = Integer.parseInt(numStr);
-            return col >= 1 && col <= SEAT_COLS;
-        } catch (NumberFormatException e) {
-            return false;
+            BookingJournal.await(durable);
+        } catch (RuntimeException e) {
+            ReentrantLock lock = lockFor(showKey);
+            lock.lock();
+            try {
+                if (!"已退票".equals(booking.status)) {
+                    if ("已付款".equals(booking.status)) recordRefund(booking);
+                    releaseSeats(showKey, booking.seats);
+                }
+                booking.status = "已退票"; // 其他執行緒手上的參考不能再付款
+                unindexBooking(booking, showKey);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /** 寫入訂單清單與各索引 */
+    private void indexBooking(Booking booking, String showKey) {
+        bookings.add(booking);
+        bookingsById.put(booking.bookingId, booking);
+        if (booking.userId != null) {
+            bookingsByUser.computeIfAbsent(booking.userId, k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(booking);
+        }
+        bookingsByShow.computeIfAbsent(showKey, k -> Collections.synchronizedList(new ArrayList<>()))
+                .add(booking);
+    }
+
+    private void unindexBooking(Booking booking, String showKey) {
+        bookings.remove(booking);
+        bookingsById.remove(booking.bookingId, booking);
+        List<Booking> byUser = booking.userId == null ? null : bookingsByUser.get(booking.userId);
+        if (byUser != null) byUser.remove(booking);
+        List<Booking> byShow = bookingsByShow.get(showKey);
+        if (byShow != null) byShow.remove(booking);
+    }
+
+    private static List<Booking> snapshot(List<Booking> list) {
+        if (list == null) return new ArrayList<>();
+        synchronized (list) {
+            return new ArrayList<>(list);
         }
     }
 
-    private void reserveSeats(String showKey, List<String> seats) {
-        Set<String> set = bookedSeatsByShow.computeIfAbsent(showKey, k -> new HashSet<>());
-        set.addAll(seats);
+    private String showKeyOf(Booking booking) {
+        return buildShowKey(booking.movieTitle, booking.cinema, booking.bookingDate, booking.bookingTime);
+    }
+
+    /** 取得場次所屬的分段鎖（spread 後取低位，避免 hashCode 低位分佈不均） */
+    private ReentrantLock lockFor(String showKey) {
+        int h = showKey.hashCode();
+        h ^= h >>> 16;
+        return showLocks[h & (LOCK_STRIPES - 1)];
+    }
+
+    private void recordPaid(Booking booking) {
+        popularity.recordPaid(booking.movieTitle, ticketCount(booking), paidAtMillis(booking));
     }
 
-    private void releaseSeats(String showKey, List<String> seats) {
-        if (seats == null || seats.isEmpty()) return;
-        Set<String> set = bookedSeatsByShow.get(showKey);
-        if (set == null) return;
-        set.removeAll(seats);
+    private void recordRefund(Booking booking) {
+        popularity.recordRefund(booking.movieTitle, ticketCount(booking), paidAtMillis(booking));
+    }
+
+    private static int ticketCount(Booking booking) {
+        return booking.getSeatCount();
+    }
+
+    private static long paidAtMillis(Booking booking) {
+        return booking.paidAt == null ? System.currentTimeMillis()
+                : booking.paidAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 取得（必要時建立）場次座位表與餘票計數
+     * 餘票在同一個 computeIfAbsent 內、座位表公開之前建立：
+     * 拿得到座位表的執行緒一定也拿得到餘票，第一筆訂位的 syncStock 不會落空
+     */
+    private SeatMap seatMapOf(String showKey, String movieTitle, String cinema, LocalDate date, LocalTime time) {
+        SeatMap map = seatMapsByShow.get(showKey);
+        if (map != null) return map;
+        ShowStock[] created = new ShowStock[1];
+        map = seatMapsByShow.computeIfAbsent(showKey, k -> {
+            SeatMap m = new SeatMap(getHallLayout(cinema));
+            ShowStock stock = new ShowStock(k, movieTitle, cinema, date, time, m.getCapacity());
+            if (stockByShow.putIfAbsent(k, stock) == null) created[0] = stock;
+            return m;
+        });
+        if (created[0] != null) notifyStock(created[0]);
+        return map;
+    }
+
+    /** 座位表變動後同步餘票；呼叫端需持有該場次的鎖 */
+    private void syncStock(String showKey, SeatMap map) {
+        ShowStock stock = stockByShow.get(showKey);
+        if (stock == null) return;
+        stock.remaining.set(map.getAvailableCount());
+        notifyStock(stock);
+    }
+
+    private void notifyStock(ShowStock stock) {
+        for (StockListener l : stockListeners) l.onStockChanged(stock);
+    }
+
+    /** 呼叫端需持有該場次的鎖 */
+    private void releaseSeats(String showKey, int[] seatCodes) {
+        if (seatCodes == null || seatCodes.length == 0) return;
+        SeatMap map = seatMapsByShow.get(showKey);
+        if (map == null) return;
+        int[] indexes = new int[seatCodes.length];
+        int n = 0;
+        for (int code : seatCodes) {
+            int idx = map.indexOfCode(code);
+            if (idx >= 0) indexes[n++] = idx;
+        }
+        map.releaseAll(n == indexes.length ? indexes : Arrays.copyOf(indexes, n));
+        syncStock(showKey, map);
     }
 }
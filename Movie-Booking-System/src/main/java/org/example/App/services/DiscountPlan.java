@@ -0,0 +1,174 @@
+package org.example.App.services;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 折扣規則編譯結果
+ * - 每條規則的條件攤平成平行陣列（天數、張數、日期區間、身分旗標、影城/格式集合）
+ * - 評估時先把情境算成數值一次，再以單一迴圈測完所有規則，不做字串 switch
+ * - 折扣碼以大寫為 key 建索引，查詢 O(1)
+ *
+ * 不可變；Discount 的 type / rule 被換掉時（Discount 版本號變動）isStale() 會回報，由 PriceService 重新編譯。
+ */
+final class DiscountPlan {
+
+    private static final int NEED_MEMBER = 1;
+    private static final int NEED_STUDENT = 1 << 1;
+    private static final int NEED_SHOW_DATE = 1 << 2;
+    private static final int NEVER = 1 << 3;
+
+    private final PriceService.Discount[] discounts;
+    private final long version;
+
+    private final int[] flags;
+    private final int[] minDays;
+    private final int[] maxDays;
+    private final int[] minQuantity;
+    private final long[] fromDay;
+    private final long[] untilDay;
+    private final List<Set<String>> cinemas;
+    private final List<Set<String>> formats;
+    private final boolean[] stackable;
+    private final Map<String, Integer> byCode;
+
+    DiscountPlan(List<PriceService.Discount> source) {
+        // 先取版本號再讀規則：編譯期間有人改動，下次查詢就會重編
+        version = PriceService.Discount.version();
+        int n = source.size();
+        discounts = source.toArray(new PriceService.Discount[0]);
+        flags = new int[n];
+        minDays = new int[n];
+        maxDays = new int[n];
+        minQuantity = new int[n];
+        fromDay = new long[n];
+        untilDay = new long[n];
+        cinemas = new ArrayList<>(Collections.nCopies(n, null));
+        formats = new ArrayList<>(Collections.nCopies(n, null));
+        stackable = new boolean[n];
+        byCode = new HashMap<>(n * 2);
+
+        for (int i = 0; i < n; i++) {
+            PriceService.Discount d = discounts[i];
+            if (d.code != null) byCode.putIfAbsent(d.code.toUpperCase(Locale.ROOT), i);
+
+            PriceService.DiscountRule rule = d.getRule();
+            PriceService.DiscountRule r = rule != null ? rule : builtInRule(d.getType());
+            if (r == null) {
+                flags[i] = NEVER;
+                continue;
+            }
+            int f = 0;
+            if (r.memberOnly) f |= NEED_MEMBER;
+            if (r.studentOnly) f |= NEED_STUDENT;
+            if (r.minDaysBefore >= 0 || r.maxDaysBefore >= 0 || r.showFrom != null || r.showUntil != null) {
+                f |= NEED_SHOW_DATE;
+            }
+            flags[i] = f;
+            minDays[i] = r.minDaysBefore >= 0 ? r.minDaysBefore : Integer.MIN_VALUE;
+            maxDays[i] = r.maxDaysBefore >= 0 ? r.maxDaysBefore : Integer.MAX_VALUE;
+            minQuantity[i] = r.minQuantity;
+            fromDay[i] = r.showFrom != null ? r.showFrom.toEpochDay() : Long.MIN_VALUE;
+            untilDay[i] = r.showUntil != null ? r.showUntil.toEpochDay() : Long.MAX_VALUE;
+            cinemas.set(i, r.cinemas);
+            formats.set(i, r.formats);
+            stackable[i] = r.stackable;
+        }
+    }
+
+    /** 內建類型（原本 switch 的四種）對應的規則；未知類型一律不適用 */
+    static PriceService.DiscountRule builtInRule(String type) {
+        if (type == null) return null;
+        switch (type) {
+            case "EARLY_BIRD":
+                return new PriceService.DiscountRule().minDaysBefore(7);
+            case "STUDENT":
+                return new PriceService.DiscountRule().studentOnly();
+            case "GROUP":
+                return new PriceService.DiscountRule().minQuantity(10);
+            case "MEMBER":
+                return new PriceService.DiscountRule().memberOnly().stackable();
+            default:
+                return null;
+        }
+    }
+
+    /** 編譯後有 Discount 的 type 或 rule 被替換過；只比對版本號，O(1) */
+    boolean isStale() {
+        return version != PriceService.Discount.version();
+    }
+
+    int size() {
+        return discounts.length;
+    }
+
+    PriceService.Discount discountAt(int i) {
+        return discounts[i];
+    }
+
+    boolean isStackable(int i) {
+        return stackable[i];
+    }
+
+    /** 折扣碼（不分大小寫）對應的規則序號，查無回傳 -1 */
+    int indexOf(String code) {
+        if (code == null) return -1;
+        Integer i = byCode.get(code.toUpperCase(Locale.ROOT));
+        return i == null ? -1 : i;
+    }
+
+    // =========================
+    //  Evaluation
+    // =========================
+
+    /** 一次評估全部規則，out[i] 表示第 i 條是否適用 */
+    boolean[] evaluate(PriceService.DiscountContext ctx, LocalDate today) {
+        boolean[] out = new boolean[discounts.length];
+        if (ctx == null) return out;
+        Facts facts = new Facts(ctx, today);
+        for (int i = 0; i < out.length; i++) out[i] = matches(i, ctx, facts);
+        return out;
+    }
+
+    boolean applies(int i, PriceService.DiscountContext ctx, LocalDate today) {
+        return i >= 0 && ctx != null && matches(i, ctx, new Facts(ctx, today));
+    }
+
+    /** 情境先轉成數值與旗標，所有規則共用 */
+    private static final class Facts {
+        final int have;
+        final long showDay;
+        final long daysBefore;
+
+        Facts(PriceService.DiscountContext ctx, LocalDate today) {
+            int h = 0;
+            if (ctx.isMember) h |= NEED_MEMBER;
+            if (ctx.isStudentVerified) h |= NEED_STUDENT;
+            if (ctx.showDate != null) h |= NEED_SHOW_DATE;
+            have = h;
+            showDay = ctx.showDate == null ? 0 : ctx.showDate.toEpochDay();
+            daysBefore = ctx.showDate == null ? 0 : ChronoUnit.DAYS.between(today, ctx.showDate);
+        }
+    }
+
+    private boolean matches(int i, PriceService.DiscountContext ctx, Facts facts) {
+        int need = flags[i];
+        if ((need & facts.have) != need) return false;   // NEVER 永遠不會在 have 裡
+        if (ctx.quantity < minQuantity[i]) return false;
+        if ((need & NEED_SHOW_DATE) != 0) {
+            if (facts.daysBefore < minDays[i] || facts.daysBefore > maxDays[i]) return false;
+            if (facts.showDay < fromDay[i] || facts.showDay > untilDay[i]) return false;
+        }
+        Set<String> c = cinemas.get(i);
+        if (c != null && (ctx.cinema == null || !c.contains(ctx.cinema))) return false;
+        Set<String> f = formats.get(i);
+        return f == null || (ctx.format != null && f.contains(ctx.format));
+    }
+}
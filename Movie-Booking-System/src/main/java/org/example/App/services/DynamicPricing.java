@@ -0,0 +1,228 @@
+package org.example.App.services;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 動態票價（依場次滿座率與距開演時間調整）
+ * - 兩條可設定的階梯曲線：滿座率（%）→ 百分比、距開演分鐘數 → 百分比，兩者相乘後再夾在上下限內
+ * - 滿座率曲線依容量預先展開成「已占座位數 → 百分比」查表，座位變動時查一次表即可
+ * - 每個場次快取目前的百分比，以及距開演曲線下一次換階的時間點；
+ *   座位變動（BookingService.StockListener）或時間跨過換階點時才重算
+ *
+ * 查詢 percentFor / adjust 為 O(1)：一次 map 查詢 + 一次時間比較，不需加鎖。
+ * 尚無座位表的場次（還沒賣出 / 暫留過）以滿座率 0% 計，距開演時間仍照算（由場次 key 解析開演時間，不快取）。
+ */
+public class DynamicPricing implements BookingService.StockListener {
+
+    /**
+     * 階梯曲線：x >= 門檻時取該階的百分比（取最後一個符合的），小於第一個門檻時取 basePercent
+     * 交給 DynamicPricing 之後不應再修改。
+     */
+    public static class Curve {
+        private final int basePercent;
+        private int[] thresholds = new int[0];
+        private int[] percents = new int[0];
+
+        public Curve(int basePercent) {
+            this.basePercent = basePercent;
+        }
+
+        /** 新增一階；門檻可任意順序加入，重複門檻以後加入者為準 */
+        public Curve step(int threshold, int percent) {
+            int i = Arrays.binarySearch(thresholds, threshold);
+            if (i >= 0) {
+                percents[i] = percent;
+                return this;
+            }
+            int at = -i - 1;
+            thresholds = insert(thresholds, at, threshold);
+            percents = insert(percents, at, percent);
+            return this;
+        }
+
+        /** 符合的階序號；小於第一個門檻時為 -1 */
+        int stepOf(long x) {
+            int i = 0;
+            while (i < thresholds.length && x >= thresholds[i]) i++;
+            return i - 1;
+        }
+
+        int percentOf(int step) {
+            return step < 0 ? basePercent : percents[step];
+        }
+
+        int percentAt(long x) {
+            return percentOf(stepOf(x));
+        }
+
+        int thresholdOf(int step) {
+            return thresholds[step];
+        }
+
+        private static int[] insert(int[] a, int at, int v) {
+            int[] out = new int[a.length + 1];
+            System.arraycopy(a, 0, out, 0, at);
+            out[at] = v;
+            System.arraycopy(a, at, out, at + 1, a.length - at);
+            return out;
+        }
+    }
+
+    /** 預設：滿座率 50% / 70% / 90% 起加價；7 天前購票 95 折；開演前 1 小時內加價 */
+    public static DynamicPricing defaults() {
+        return new DynamicPricing(
+                new Curve(100).step(50, 105).step(70, 115).step(90, 130),
+                new Curve(110).step(60, 100).step(7 * 24 * 60, 95),
+                80, 150);
+    }
+
+    private final Curve occupancy;
+    private final Curve leadTime;
+    private final int minPercent;
+    private final int maxPercent;
+    private final ZoneId zone;
+
+    /** 容量 -> 已占座位數對應的百分比 */
+    private final Map<Integer, int[]> occupancyTables = new ConcurrentHashMap<>();
+    private final Map<String, ShowPrice> shows = new ConcurrentHashMap<>();
+
+    public DynamicPricing(Curve occupancy, Curve leadTime, int minPercent, int maxPercent) {
+        this(occupancy, leadTime, minPercent, maxPercent, ZoneId.systemDefault());
+    }
+
+    DynamicPricing(Curve occupancy, Curve leadTime, int minPercent, int maxPercent, ZoneId zone) {
+        this.occupancy = occupancy;
+        this.leadTime = leadTime;
+        this.minPercent = minPercent;
+        this.maxPercent = maxPercent;
+        this.zone = zone;
+    }
+
+    /** 接上 BookingService：先載入現有場次，之後隨座位變動增量更新 */
+    public DynamicPricing attach(BookingService bookingService) {
+        bookingService.addStockListener(this);
+        for (BookingService.ShowStock stock : bookingService.getShowStocks()) onStockChanged(stock);
+        return this;
+    }
+
+    // =========================
+    //  Update
+    // =========================
+
+    @Override
+    public void onStockChanged(BookingService.ShowStock stock) {
+        ShowPrice show = shows.computeIfAbsent(stock.showKey, k -> new ShowPrice(
+                stock.date.atTime(stock.time).atZone(zone).toInstant().toEpochMilli(),
+                occupancyTable(stock.capacity)));
+        show.setOccupied(stock.getOccupied(), System.currentTimeMillis());
+    }
+
+    // =========================
+    //  Query
+    // =========================
+
+    /** 場次目前的票價百分比；尚未有座位變動的場次以滿座率 0% 計算 */
+    public int percentFor(String showKey) {
+        return percentFor(showKey, System.currentTimeMillis());
+    }
+
+    int percentFor(String showKey, long nowMillis) {
+        if (showKey == null) return 100;
+        ShowPrice show = shows.get(showKey);
+        if (show != null) return show.percent(nowMillis);
+        long startMillis = startMillisOf(showKey);
+        if (startMillis == Long.MIN_VALUE) return 100;
+        return combine(occupancy.percentAt(0), leadTime.percentAt(minutesBefore(startMillis, nowMillis)));
+    }
+
+    /** 以場次百分比調整票價（四捨五入） */
+    public int adjust(int basePrice, String showKey) {
+        return adjust(basePrice, showKey, System.currentTimeMillis());
+    }
+
+    int adjust(int basePrice, String showKey, long nowMillis) {
+        int percent = percentFor(showKey, nowMillis);
+        return percent == 100 ? basePrice : (int) Math.round(basePrice * percent / 100.0);
+    }
+
+    private int[] occupancyTable(int capacity) {
+        return occupancyTables.computeIfAbsent(capacity, c -> {
+            int[] table = new int[c + 1];
+            for (int occupied = 0; occupied <= c; occupied++) {
+                table[occupied] = occupancy.percentAt(c == 0 ? 100 : occupied * 100L / c);
+            }
+            return table;
+        });
+    }
+
+    private int combine(int occupancyPercent, int leadPercent) {
+        int percent = (int) Math.round(occupancyPercent * leadPercent / 100.0);
+        return Math.max(minPercent, Math.min(maxPercent, percent));
+    }
+
+    private static long minutesBefore(long startMillis, long nowMillis) {
+        return Math.floorDiv(startMillis - nowMillis, 60_000L);
+    }
+
+    /** 場次 key（電影|影城|日期|時間）的開演時間；格式不符回傳 Long.MIN_VALUE */
+    private long startMillisOf(String showKey) {
+        int timeSep = showKey.lastIndexOf('|');
+        int dateSep = timeSep <= 0 ? -1 : showKey.lastIndexOf('|', timeSep - 1);
+        if (dateSep < 0) return Long.MIN_VALUE;
+        try {
+            LocalDate date = LocalDate.parse(showKey.substring(dateSep + 1, timeSep));
+            LocalTime time = LocalTime.parse(showKey.substring(timeSep + 1));
+            return date.atTime(time).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /** 單一場次的快取；寫入（座位變動 / 換階）加鎖，讀取只看 volatile 欄位 */
+    private final class ShowPrice {
+        final long startMillis;
+        final int[] occupancyPercents;
+        int occupied;
+        int leadPercent;
+        volatile long leadValidUntil = Long.MIN_VALUE;
+        volatile int percent = 100;
+
+        ShowPrice(long startMillis, int[] occupancyPercents) {
+            this.startMillis = startMillis;
+            this.occupancyPercents = occupancyPercents;
+        }
+
+        int percent(long nowMillis) {
+            if (nowMillis >= leadValidUntil) refreshLead(nowMillis);
+            return percent;
+        }
+
+        synchronized void setOccupied(int occupied, long nowMillis) {
+            this.occupied = Math.max(0, Math.min(occupied, occupancyPercents.length - 1));
+            if (nowMillis >= leadValidUntil) {
+                refreshLead(nowMillis);
+            } else {
+                recompute();
+            }
+        }
+
+        /** 距開演時間只會遞減：目前在第 i 階時，剩餘時間低於第 i 階門檻的那一刻就是下次換階 */
+        synchronized void refreshLead(long nowMillis) {
+            if (nowMillis < leadValidUntil) return;
+            int step = leadTime.stepOf(minutesBefore(startMillis, nowMillis));
+            leadPercent = leadTime.percentOf(step);
+            recompute();
+            leadValidUntil = step < 0 ? Long.MAX_VALUE : startMillis - leadTime.thresholdOf(step) * 60_000L + 1;
+        }
+
+        private void recompute() {
+            percent = combine(occupancyPercents[occupied], leadPercent);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.App.services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 影廳座位配置（走道、空格、缺位）
+ * - 以 rows x cols 格子表示，seats 位元表標記哪些格子真的有座位（index = row * cols + col，與 SeatMap 相同）
+ * - 排名：第 r 排為 'A' + r（最多 26 排）
+ * - 座號：欄對照表。整欄都沒有座位的欄視為走道、不編號；其餘欄由左至右編 1, 2, 3 ...，
+ *   個別缺位保留號碼不用（同一欄各排座號一致）
+ * - 不可變，可由同影城的所有場次共用
+ *
+ * 文字格式（parse / toRowStrings）：每排一個字串，'S' 或 '#' 為座位，其他字元（'.'、'_'、空白）為空格；
+ * 各排長度可不同，較短的排右側視為空格。
+ *
+ * 設定檔格式（load，UTF-8）：「[影城名稱]」一行開始一個影廳，其後每行一排；空白行略過。
+ */
+public final class HallLayout {
+
+    public static final int MAX_ROWS = 26;
+
+    private final String name;
+    private final int rows;
+    private final int cols;
+    private final long[] seats;
+    private final int capacity;
+    /** 格子欄 -> 座號（0 = 走道） */
+    private final int[] colNumbers;
+    /** 座號 -> 格子欄（索引 0 不用） */
+    private final int[] colOfNumber;
+
+    private HallLayout(String name, int rows, int cols, long[] seats) {
+        if (rows <= 0 || cols <= 0) throw new IllegalArgumentException("rows/cols must be positive");
+        if (rows > MAX_ROWS) throw new IllegalArgumentException("at most " + MAX_ROWS + " rows");
+        if (cols > 0xFFFF) throw new IllegalArgumentException("cols too large");
+        this.name = name;
+        this.rows = rows;
+        this.cols = cols;
+        this.seats = seats;
+
+        int count = 0;
+        for (long w : seats) count += Long.bitCount(w);
+        if (count == 0) throw new IllegalArgumentException("layout has no seats");
+        this.capacity = count;
+
+        this.colNumbers = new int[cols];
+        int numbered = 0;
+        for (int c = 0; c < cols; c++) {
+            for (int r = 0; r < rows; r++) {
+                if (hasSeat(r * cols + c)) {
+                    colNumbers[c] = ++numbered;
+                    break;
+                }
+            }
+        }
+        this.colOfNumber = new int[numbered + 1];
+        for (int c = 0; c < cols; c++) {
+            if (colNumbers[c] > 0) colOfNumber[colNumbers[c]] = c;
+        }
+    }
+
+    /** 無走道的矩形影廳 */
+    public static HallLayout rectangle(int rows, int cols) {
+        if (rows <= 0 || cols <= 0) throw new IllegalArgumentException("rows/cols must be positive");
+        long[] seats = new long[(rows * cols + 63) >>> 6];
+        for (int i = 0; i < rows * cols; i++) seats[i >>> 6] |= 1L << i;
+        return new HallLayout(rows + "x" + cols, rows, cols, seats);
+    }
+
+    /** 由文字配置建立（格式見類別說明）；name 可為 null */
+    public static HallLayout parse(String name, String... rowStrings) {
+        if (rowStrings == null || rowStrings.length == 0) throw new IllegalArgumentException("no rows");
+        int rows = rowStrings.length;
+        int cols = 0;
+        for (String row : rowStrings) cols = Math.max(cols, row == null ? 0 : row.length());
+        long[] seats = new long[(rows * cols + 63) >>> 6];
+        for (int r = 0; r < rows; r++) {
+            String row = rowStrings[r];
+            if (row == null) continue;
+            for (int c = 0; c < row.length(); c++) {
+                char ch = row.charAt(c);
+                if (ch == 'S' || ch == '#') {
+                    int idx = r * cols + c;
+                    seats[idx >>> 6] |= 1L << idx;
+                }
+            }
+        }
+        return new HallLayout(name, rows, cols, seats);
+    }
+
+    /** 讀取設定檔（格式見類別說明），回傳 影城名稱 -> 配置（依檔案順序）；格式錯誤丟 IllegalArgumentException */
+    public static Map<String, HallLayout> load(Path file) throws IOException {
+        Map<String, HallLayout> layouts = new LinkedHashMap<>();
+        String cinema = null;
+        List<String> rowStrings = new ArrayList<>();
+        int lineNo = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) continue;
+            if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                putSection(layouts, cinema, rowStrings, file);
+                cinema = trimmed.substring(1, trimmed.length() - 1).trim();
+                if (cinema.isEmpty()) throw new IllegalArgumentException(file + ":" + lineNo + ": empty cinema name");
+                if (layouts.containsKey(cinema)) {
+                    throw new IllegalArgumentException(file + ":" + lineNo + ": duplicate cinema " + cinema);
+                }
+                rowStrings.clear();
+            } else if (cinema == null) {
+                throw new IllegalArgumentException(file + ":" + lineNo + ": row before any [cinema] header");
+            } else {
+                rowStrings.add(line);
+            }
+        }
+        putSection(layouts, cinema, rowStrings, file);
+        return layouts;
+    }
+
+    private static void putSection(Map<String, HallLayout> layouts, String cinema, List<String> rowStrings, Path file) {
+        if (cinema == null) return;
+        try {
+            layouts.put(cinema, parse(cinema, rowStrings.toArray(new String[0])));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": [" + cinema + "] " + e.getMessage(), e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /** 格子數（含走道與缺位） */
+    public int getGridSize() {
+        return rows * cols;
+    }
+
+    /** 實際座位數 */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean hasSeat(int index) {
+        return index >= 0 && index < rows * cols && (seats[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean hasSeat(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols && hasSeat(row * cols + col);
+    }
+
+    /** 格子欄的座號；走道回傳 0 */
+    public int seatNumberOf(int col) {
+        return col < 0 || col >= cols ? 0 : colNumbers[col];
+    }
+
+    /**
+     * 解析 "A1" / "c12" 這類座位編號（不建立子字串、不丟例外）
+     * 無效或該位置沒有座位時回傳 -1
+     */
+    public int indexOf(String seatId) {
+        return indexOf(SeatId.parse(seatId));
+    }
+
+    /** SeatId 編碼 -> 格子索引；無效或該位置沒有座位時回傳 -1 */
+    public int indexOf(int seatCode) {
+        if (seatCode < 0) return -1;
+        int row = SeatId.row(seatCode);
+        int number = SeatId.number(seatCode);
+        if (row >= rows || number < 1 || number >= colOfNumber.length) return -1;
+        int idx = row * cols + colOfNumber[number];
+        return hasSeat(idx) ? idx : -1;
+    }
+
+    /** 格子索引 -> SeatId 編碼；走道格子回傳 SeatId.INVALID */
+    public int seatCodeOf(int index) {
+        return SeatId.of(index / cols, colNumbers[index % cols]);
+    }
+
+    /** 索引轉回座位編號（例如 0 -> "A1"）；走道格子沒有編號 */
+    public String seatIdOf(int index) {
+        return SeatId.label(seatCodeOf(index));
+    }
+
+    /** 座位位元表（複本） */
+    public long[] seatMask() {
+        return seats.clone();
+    }
+
+    /** 轉回文字配置（'S' 座位、'.' 空格），可再交給 parse */
+    public String[] toRowStrings() {
+        String[] out = new String[rows];
+        char[] line = new char[cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) line[c] = hasSeat(r * cols + c) ? 'S' : '.';
+            out[r] = new String(line);
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return "HallLayout{" + name + ", " + rows + "x" + cols + ", " + capacity + " seats}";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HallLayout)) return false;
+        HallLayout other = (HallLayout) o;
+        return rows == other.rows && cols == other.cols && Arrays.equals(seats, other.seats);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + cols) + Arrays.hashCode(seats);
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.App.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 雜湊時間輪計時器（hashed timing wheel）
+ * - 單一背景執行緒每 tick 只處理一格，排程/取消為 O(1)，不為每個任務開執行緒
+ * - 新任務先進無鎖佇列，由計時執行緒搬進對應格子（格子只有計時執行緒會碰）
+ * - 取消只做標記，到期時略過
+ *
+ * 任務在計時執行緒上執行，應保持輕量。
+ */
+public class HashedWheelTimer implements AutoCloseable {
+
+    /** 已排程的任務，可取消 */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Queue<Timeout>> wheel;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final boolean autoStart;
+    private final String threadName;
+    private final Object startLock = new Object();
+
+    private volatile Thread worker;
+    private volatile boolean stopped;
+
+    /** 下一個要處理的 tick（起點為 startMillis） */
+    private long tick;
+    private long startMillis = -1;
+
+    public HashedWheelTimer(long tickMillis, int wheelSize) {
+        this(tickMillis, wheelSize, "seat-hold-timer");
+    }
+
+    public HashedWheelTimer(long tickMillis, int wheelSize, String threadName) {
+        this(tickMillis, wheelSize, true, threadName);
+    }
+
+    /** autoStart=false 時不啟動背景執行緒，由呼叫端以 advanceTo 推進（測試用） */
+    HashedWheelTimer(long tickMillis, int wheelSize, boolean autoStart) {
+        this(tickMillis, wheelSize, autoStart, "seat-hold-timer");
+    }
+
+    private HashedWheelTimer(long tickMillis, int wheelSize, boolean autoStart, String threadName) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be positive");
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        List<Queue<Timeout>> buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) buckets.add(new ArrayDeque<>());
+        this.wheel = buckets;
+        this.autoStart = autoStart;
+        this.threadName = threadName;
+    }
+
+    /** 在 delayMillis 後執行 task（至少延遲一個 tick 的精度） */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (stopped) throw new IllegalStateException("timer stopped");
+        Timeout t = new Timeout(task, System.currentTimeMillis() + Math.max(0, delayMillis));
+        pending.add(t);
+        if (autoStart) ensureStarted();
+        return t;
+    }
+
+    /** 尚未處理的任務數（含已取消但未清掉者；僅供觀察） */
+    public int pendingCount() {
+        int n = pending.size();
+        for (Queue<Timeout> bucket : wheel) n += bucket.size();
+        return n;
+    }
+
+    private void ensureStarted() {
+        if (worker != null) return;
+        synchronized (startLock) {
+            if (worker != null || stopped) return;
+            Thread t = new Thread(this::run, threadName);
+            t.setDaemon(true);
+            worker = t;
+            t.start();
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            advanceTo(System.currentTimeMillis());
+            long sleep = startMillis + tick * tickMillis - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (stopped) return;
+                }
+            }
+        }
+    }
+
+    /** 把時間輪推進到 now，執行期間到期的任務（只能由單一執行緒呼叫） */
+    void advanceTo(long now) {
+        if (startMillis < 0) startMillis = now;
+        long target = (now - startMillis) / tickMillis;
+        while (tick <= target) {
+            transferPending();
+            expire(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout t;
+        while ((t = pending.poll()) != null) {
+            if (t.cancelled) continue;
+            long due = Math.max(tick, (t.deadline - startMillis + tickMillis - 1) / tickMillis);
+            t.rounds = (due - tick) / wheel.size();
+            wheel.get((int) (due & mask)).add(t);
+        }
+    }
+
+    /** 格子內 rounds 為 0 的任務都已到期（排入時以無條件進位計算 tick） */
+    private void expire(Queue<Timeout> bucket) {
+        Iterator<Timeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout t = it.next();
+            if (t.cancelled) {
+                it.remove();
+            } else if (t.rounds > 0) {
+                t.rounds--;
+            } else {
+                it.remove();
+                try {
+                    t.task.run();
+                } catch (RuntimeException e) {
+                    // 單一任務失敗不影響計時執行緒
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+        Thread t = worker;
+        if (t != null) t.interrupt();
+    }
+}
@@ -0,0 +1,201 @@
+package org.example.App.services;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 訂單編號 / 票券代碼產生器（lock-free）
+ * - 訂單編號：毫秒時間 + 節點 + 序號，全域唯一且依建立時間排序
+ *   格式 "BK" + 12 碼 36 進位（固定長度，字串排序 = 時間排序）
+ * - 票券代碼：秒數 + 節點 + 序號，經可逆打散後以 Crockford Base32 輸出 10 碼
+ *   不同節點不會重複；同一節點 2^23 秒（約 97 天，涵蓋一檔期）內不會重複
+ *
+ * 同一毫秒/秒的序號用完時直接借用下一個時間單位（不阻塞、不重複）。
+ * 重啟後從「下一個」毫秒/秒開始編號，並可由 observe* 把日誌中已發出的編號推進狀態，
+ * 避免同一秒內重啟或先前借用了未來時間單位時重複。
+ */
+public class IdGenerator {
+
+    /** 自訂起始時間：2024-01-01T00:00:00Z */
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQ_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    static final int TICKET_SEQ_BITS = 17;
+    static final int TICKET_SECOND_BITS = 23;
+    static final int TICKET_BITS = TICKET_SECOND_BITS + NODE_BITS + TICKET_SEQ_BITS;
+    private static final long TICKET_MASK = (1L << TICKET_BITS) - 1;
+
+    private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int BOOKING_ID_WIDTH = 12;
+
+    private static final long MUL1 = 0x9E3779B97DL;
+    private static final long MUL2 = 0xC2B2AE3D27L;
+    private static final long MUL1_INV = inverseOf(MUL1);
+    private static final long MUL2_INV = inverseOf(MUL2);
+
+    private final long nodeId;
+
+    /** (毫秒 << SEQ_BITS) | 序號 */
+    private final AtomicLong bookingState = new AtomicLong();
+
+    /** (秒 << TICKET_SEQ_BITS) | 序號 */
+    private final AtomicLong ticketState = new AtomicLong();
+
+    public IdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be 0.." + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        this.bookingState.set(((now + 1) << SEQ_BITS) - 1);
+        this.ticketState.set(((now / 1000 + 1) << TICKET_SEQ_BITS) - 1);
+    }
+
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+
+    // =========================
+    //  Booking ID
+    // =========================
+
+    /** 64-bit 數值編號：[毫秒 41][節點 10][序號 12] */
+    public long nextId() {
+        long stamp = next(bookingState, (System.currentTimeMillis() - EPOCH_MILLIS) << SEQ_BITS);
+        long millis = stamp >>> SEQ_BITS;
+        long seq = stamp & ((1L << SEQ_BITS) - 1);
+        return (millis << (NODE_BITS + SEQ_BITS)) | (nodeId << SEQ_BITS) | seq;
+    }
+
+    public String nextBookingId() {
+        return "BK" + toBase36(nextId());
+    }
+
+    /** 座位暫留編號（與訂單編號共用序列） */
+    public String nextHoldId() {
+        return "HD" + toBase36(nextId());
+    }
+
+    /** 重播日誌時呼叫：本節點發出過的訂單編號之後不會再產生（其他節點或格式不符則忽略） */
+    public void observeBookingId(String bookingId) {
+        if (bookingId == null || !bookingId.startsWith("BK")) return;
+        long id;
+        try {
+            id = Long.parseLong(bookingId.substring(2), 36);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (((id >>> SEQ_BITS) & MAX_NODE_ID) != nodeId) return;
+        long stamp = ((id >>> (NODE_BITS + SEQ_BITS)) << SEQ_BITS) | (id & ((1L << SEQ_BITS) - 1));
+        bookingState.accumulateAndGet(stamp, Math::max);
+    }
+
+    /** 取出編號中的建立時間（epoch 毫秒） */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQ_BITS)) + EPOCH_MILLIS;
+    }
+
+    // =========================
+    //  Ticket code
+    // =========================
+
+    /** 10 碼票券代碼（Crockford Base32，無 I/L/O/U）：[秒 23][節點 10][序號 17] 打散 */
+    public String nextTicketCode() {
+        long seconds = (System.currentTimeMillis() - EPOCH_MILLIS) / 1000;
+        long stamp = next(ticketState, seconds << TICKET_SEQ_BITS);
+        long sec = (stamp >>> TICKET_SEQ_BITS) & ((1L << TICKET_SECOND_BITS) - 1);
+        long seq = stamp & ((1L << TICKET_SEQ_BITS) - 1);
+        return "TK" + toBase32(scramble((sec << (NODE_BITS + TICKET_SEQ_BITS)) | (nodeId << TICKET_SEQ_BITS) | seq));
+    }
+
+    /** 重播日誌時呼叫：本節點發出過的票券代碼之後不會再產生（其他節點或格式不符則忽略） */
+    public void observeTicketCode(String ticketCode) {
+        long raw = fromBase32(ticketCode);
+        if (raw < 0) return;
+        long x = unscramble(raw);
+        if (((x >>> TICKET_SEQ_BITS) & MAX_NODE_ID) != nodeId) return;
+        // 代碼只保留秒數低 23 bit：還原成離現在最近的那一輪
+        long span = 1L << TICKET_SECOND_BITS;
+        long now = Math.max((System.currentTimeMillis() - EPOCH_MILLIS) / 1000, ticketState.get() >>> TICKET_SEQ_BITS);
+        long seconds = (now & -span) | (x >>> (NODE_BITS + TICKET_SEQ_BITS));
+        if (seconds > now + span / 2) seconds -= span;
+        long stamp = (seconds << TICKET_SEQ_BITS) | (x & ((1L << TICKET_SEQ_BITS) - 1));
+        ticketState.accumulateAndGet(stamp, Math::max);
+    }
+
+    // =========================
+    //  Helpers
+    // =========================
+
+    /** 取 max(時間下限, 上一個 + 1)：同單位內遞增序號，序號溢位自然進位到下一單位 */
+    private static long next(AtomicLong state, long floor) {
+        while (true) {
+            long prev = state.get();
+            long candidate = Math.max(floor, prev + 1);
+            if (state.compareAndSet(prev, candidate)) return candidate;
+        }
+    }
+
+    /** 50-bit 可逆打散（奇數乘法 + xorshift 皆為雙射），讓相鄰序號不會產生相鄰代碼 */
+    static long scramble(long x) {
+        x = (x * MUL1) & TICKET_MASK;
+        x ^= x >>> 25;
+        x = (x * MUL2) & TICKET_MASK;
+        x ^= x >>> 17;
+        return x;
+    }
+
+    static long unscramble(long x) {
+        x = unshift(x, 17);
+        x = (x * MUL2_INV) & TICKET_MASK;
+        x = unshift(x, 25);
+        return (x * MUL1_INV) & TICKET_MASK;
+    }
+
+    /** x ^= x >>> shift 的反函數 */
+    private static long unshift(long y, int shift) {
+        long x = y;
+        for (int i = shift; i < TICKET_BITS; i += shift) x = y ^ (x >>> shift);
+        return x;
+    }
+
+    /** 奇數在 mod 2^TICKET_BITS 下的乘法反元素（Newton 迭代） */
+    private static long inverseOf(long odd) {
+        long inv = odd;
+        for (int i = 0; i < 6; i++) inv *= 2 - odd * inv;
+        return inv & TICKET_MASK;
+    }
+
+    private static String toBase36(long value) {
+        String s = Long.toString(value, 36).toUpperCase();
+        if (s.length() >= BOOKING_ID_WIDTH) return s;
+        StringBuilder sb = new StringBuilder(BOOKING_ID_WIDTH);
+        for (int i = s.length(); i < BOOKING_ID_WIDTH; i++) sb.append('0');
+        return sb.append(s).toString();
+    }
+
+    /** toBase32 的反向；格式不符回傳 -1 */
+    private static long fromBase32(String code) {
+        int width = TICKET_BITS / 5;
+        if (code == null || code.length() != width + 2 || !code.startsWith("TK")) return -1;
+        long value = 0;
+        for (int i = 2; i < code.length(); i++) {
+            int d = Arrays.binarySearch(BASE32, code.charAt(i));
+            if (d < 0) return -1;
+            value = (value << 5) | d;
+        }
+        return value;
+    }
+
+    private static String toBase32(long value) {
+        char[] out = new char[TICKET_BITS / 5];
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = BASE32[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+}
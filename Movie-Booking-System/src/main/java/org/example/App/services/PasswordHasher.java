@@ -0,0 +1,94 @@
+package org.example.App.services;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 密碼雜湊（PBKDF2-HMAC-SHA256 + 每個帳號各自的隨機 salt）
+ * - 儲存格式：pbkdf2$次數$salt(Base64)$hash(Base64)，次數跟著雜湊值存，調整工作量不影響舊密碼
+ * - 比對使用固定時間比較
+ * - 不是此格式的值視為舊版明文（相容用），由 UserService 在登入成功時改存雜湊
+ *
+ * 本身無狀態、執行緒安全；雜湊很耗 CPU，呼叫端應放在專用執行緒池執行。
+ */
+public class PasswordHasher {
+
+    public static final int DEFAULT_ITERATIONS = 100_000;
+
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom rnd = new SecureRandom();
+
+    public PasswordHasher() {
+        this(Integer.getInteger("password.iterations", DEFAULT_ITERATIONS));
+    }
+
+    /** iterations：工作量（PBKDF2 迭代次數），越大越慢也越難暴力破解 */
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be positive");
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** 產生新的 salt 並雜湊，回傳可直接儲存的字串 */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        rnd.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    /** 比對密碼；stored 格式錯誤回傳 false */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) return false;
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) return false;
+        try {
+            int n = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            if (n < 1) return false;
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, n));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /** 明文或工作量與目前設定不同時需要重新雜湊 */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) return true;
+        int end = stored.indexOf('$', PREFIX.length());
+        return end < 0 || !stored.substring(PREFIX.length(), end).equals(Integer.toString(iterations));
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
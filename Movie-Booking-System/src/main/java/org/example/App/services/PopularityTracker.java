@@ -0,0 +1,203 @@
+package org.example.App.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 熱門電影排行（增量維護）
+ * - 付款 / 退票時更新已付款票數，不再每次掃描全部訂單
+ * - 排行以 TreeSet（票數遞減、片名遞增）保存，取前 K 名為 O(K)
+ * - 滑動視窗（近一小時 / 一天 / 一週）以時間桶環狀陣列實作，
+ *   桶過期時把該桶的票數從視窗排行扣掉
+ *
+ * 所有方法共用同一把鎖；單次更新為 O(log 電影數)。
+ */
+public class PopularityTracker {
+
+    /** 滑動視窗：桶寬 × 桶數 = 視窗長度 */
+    public enum Window {
+        HOUR(60_000L, 60),
+        DAY(15 * 60_000L, 96),
+        WEEK(60 * 60_000L, 168);
+
+        final long bucketMillis;
+        final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    private final Ranking allTime = new Ranking();
+    private final SlidingWindow[] windows;
+
+    public PopularityTracker() {
+        Window[] all = Window.values();
+        windows = new SlidingWindow[all.length];
+        for (int i = 0; i < all.length; i++) windows[i] = new SlidingWindow(all[i]);
+    }
+
+    // =========================
+    //  Update
+    // =========================
+
+    /** 訂單付款：tickets 為票數，paidAtMillis 為付款時間 */
+    public void recordPaid(String movieTitle, int tickets, long paidAtMillis) {
+        record(movieTitle, tickets, paidAtMillis, System.currentTimeMillis());
+    }
+
+    /** 已付款訂單退票：依原付款時間扣回（已滑出視窗的部分不影響視窗排行） */
+    public void recordRefund(String movieTitle, int tickets, long paidAtMillis) {
+        record(movieTitle, -tickets, paidAtMillis, System.currentTimeMillis());
+    }
+
+    synchronized void record(String movieTitle, int delta, long atMillis, long nowMillis) {
+        if (movieTitle == null || delta == 0) return;
+        allTime.add(movieTitle, delta);
+        for (SlidingWindow w : windows) w.add(movieTitle, delta, atMillis, nowMillis);
+    }
+
+    // =========================
+    //  Query
+    // =========================
+
+    /** 累計票數前 limit 名 */
+    public synchronized List<String> top(int limit) {
+        return allTime.top(limit);
+    }
+
+    /** 視窗內票數前 limit 名 */
+    public List<String> top(Window window, int limit) {
+        return top(window, limit, System.currentTimeMillis());
+    }
+
+    public synchronized long count(String movieTitle) {
+        return allTime.get(movieTitle);
+    }
+
+    public long count(Window window, String movieTitle) {
+        return count(window, movieTitle, System.currentTimeMillis());
+    }
+
+    synchronized List<String> top(Window window, int limit, long nowMillis) {
+        SlidingWindow w = windows[window.ordinal()];
+        w.advance(nowMillis);
+        return w.ranking.top(limit);
+    }
+
+    synchronized long count(Window window, String movieTitle, long nowMillis) {
+        SlidingWindow w = windows[window.ordinal()];
+        w.advance(nowMillis);
+        return w.ranking.get(movieTitle);
+    }
+
+    // =========================
+    //  Internals
+    // =========================
+
+    private static final class Entry {
+        final String title;
+        final long count;
+
+        Entry(String title, long count) {
+            this.title = title;
+            this.count = count;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int c = Long.compare(b.count, a.count);
+        return c != 0 ? c : a.title.compareTo(b.title);
+    };
+
+    /** 票數表 + 依票數排序的集合（兩者同步更新） */
+    private static final class Ranking {
+        final Map<String, Long> counts = new HashMap<>();
+        final TreeSet<Entry> order = new TreeSet<>(ORDER);
+
+        long get(String title) {
+            return counts.getOrDefault(title, 0L);
+        }
+
+        void add(String title, long delta) {
+            Long old = counts.get(title);
+            long prev = old == null ? 0 : old;
+            if (old != null) order.remove(new Entry(title, prev));
+            long next = Math.max(0, prev + delta);
+            if (next == 0) {
+                counts.remove(title);
+            } else {
+                counts.put(title, next);
+                order.add(new Entry(title, next));
+            }
+        }
+
+        List<String> top(int limit) {
+            List<String> out = new ArrayList<>(Math.max(0, Math.min(limit, order.size())));
+            Iterator<Entry> it = order.iterator();
+            while (out.size() < limit && it.hasNext()) out.add(it.next().title);
+            return out;
+        }
+    }
+
+    /** 環狀時間桶：slots[i] 保存桶號 epochs[i] 的各片票數 */
+    private static final class SlidingWindow {
+        final Window window;
+        final Ranking ranking = new Ranking();
+        final long[] epochs;
+        final List<Map<String, Long>> slots;
+
+        /** 目前最新的桶號 */
+        long head = Long.MIN_VALUE;
+
+        SlidingWindow(Window window) {
+            this.window = window;
+            this.epochs = new long[window.buckets];
+            this.slots = new ArrayList<>(window.buckets);
+            for (int i = 0; i < window.buckets; i++) {
+                epochs[i] = Long.MIN_VALUE;
+                slots.add(new HashMap<>());
+            }
+        }
+
+        void add(String title, int delta, long atMillis, long nowMillis) {
+            advance(nowMillis);
+            long bucket = Math.min(head, Math.floorDiv(atMillis, window.bucketMillis));
+            if (bucket <= head - window.buckets) return;
+
+            int slot = (int) Math.floorMod(bucket, (long) window.buckets);
+            if (epochs[slot] != bucket) return;
+            Map<String, Long> counts = slots.get(slot);
+            long prev = counts.getOrDefault(title, 0L);
+            long next = Math.max(0, prev + delta);
+            if (next == prev) return;
+            if (next == 0) counts.remove(title);
+            else counts.put(title, next);
+            ranking.add(title, next - prev);
+        }
+
+        /** 推進到 nowMillis 所在的桶，清掉滑出視窗的桶（最多掃一圈） */
+        void advance(long nowMillis) {
+            long bucket = Math.floorDiv(nowMillis, window.bucketMillis);
+            if (bucket <= head) return;
+            long from = head == Long.MIN_VALUE ? bucket - window.buckets + 1
+                    : Math.max(head + 1, bucket - window.buckets + 1);
+            for (long e = from; e <= bucket; e++) {
+                int slot = (int) Math.floorMod(e, (long) window.buckets);
+                Map<String, Long> counts = slots.get(slot);
+                for (Map.Entry<String, Long> c : counts.entrySet()) {
+                    ranking.add(c.getKey(), -c.getValue());
+                }
+                counts.clear();
+                epochs[slot] = e;
+            }
+            head = bucket;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.App.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 票價矩陣
+ * - 影城 / 格式 / 票種各自轉成連續序號，票價存在一維 int[]
+ * - 排列為 [格式][票種][影城]：同一格式 + 票種的各影城票價彼此相鄰，比價是一段連續掃描
+ * - 查詢不組字串、不裝箱
+ * - 建立時一併算好每個格式 + 票種的排序後報價與最低價，比價查詢為 O(1)
+ *
+ * 不可變；改價時由 Builder 複製後整份重建（快取隨之重算），讀取端不需加鎖。
+ */
+final class PriceMatrix {
+
+    /** 此組合沒有票價 */
+    static final int NO_PRICE = -1;
+
+    private final List<String> cinemas;
+    private final List<String> formats;
+    private final List<String> ticketTypes;
+    private final Map<String, Integer> cinemaIndex;
+    private final Map<String, Integer> formatIndex;
+    private final Map<String, Integer> ticketTypeIndex;
+    private final int[] prices;
+
+    /** 依 format * 票種數 + ticketType 索引：排序後的唯讀報價、最低價 */
+    private final List<List<PriceService.PriceQuote>> sortedQuotes;
+    private final int[] lowest;
+
+    private PriceMatrix(List<String> cinemas, List<String> formats, List<String> ticketTypes, int[] prices) {
+        this.cinemas = Collections.unmodifiableList(cinemas);
+        this.formats = Collections.unmodifiableList(formats);
+        this.ticketTypes = Collections.unmodifiableList(ticketTypes);
+        this.cinemaIndex = indexOf(cinemas);
+        this.formatIndex = indexOf(formats);
+        this.ticketTypeIndex = indexOf(ticketTypes);
+        this.prices = prices;
+
+        int rows = formats.size() * ticketTypes.size();
+        this.sortedQuotes = new ArrayList<>(rows);
+        this.lowest = new int[rows];
+        for (int f = 0; f < formats.size(); f++) {
+            for (int t = 0; t < ticketTypes.size(); t++) {
+                List<PriceService.PriceQuote> quotes = buildQuotes(f, t);
+                sortedQuotes.add(quotes);
+                lowest[f * ticketTypes.size() + t] = quotes.isEmpty() ? NO_PRICE : quotes.get(0).price;
+            }
+        }
+    }
+
+    List<String> cinemas() {
+        return cinemas;
+    }
+
+    List<String> formats() {
+        return formats;
+    }
+
+    List<String> ticketTypes() {
+        return ticketTypes;
+    }
+
+    // =========================
+    //  Ordinals
+    // =========================
+
+    int cinemaOrdinal(String cinema) {
+        return ordinal(cinemaIndex, cinema);
+    }
+
+    int formatOrdinal(String format) {
+        return ordinal(formatIndex, format);
+    }
+
+    int ticketTypeOrdinal(String ticketType) {
+        return ordinal(ticketTypeIndex, ticketType);
+    }
+
+    // =========================
+    //  Lookup
+    // =========================
+
+    /** 任一序號無效時回傳 NO_PRICE */
+    int price(int cinema, int format, int ticketType) {
+        if (cinema < 0 || cinema >= cinemas.size() || !valid(format, ticketType)) return NO_PRICE;
+        return prices[rowOffset(format, ticketType) + cinema];
+    }
+
+    int price(String cinema, String format, String ticketType) {
+        return price(cinemaOrdinal(cinema), formatOrdinal(format), ticketTypeOrdinal(ticketType));
+    }
+
+    /** 同一格式 + 票種在矩陣中的起點；其後依影城序號排列 */
+    int rowOffset(int format, int ticketType) {
+        return (format * ticketTypes.size() + ticketType) * cinemas.size();
+    }
+
+    boolean valid(int format, int ticketType) {
+        return format >= 0 && format < formats.size() && ticketType >= 0 && ticketType < ticketTypes.size();
+    }
+
+    /** 各影城中的最低價；沒有任何影城有此組合時回傳 NO_PRICE */
+    int lowest(int format, int ticketType) {
+        return valid(format, ticketType) ? lowest[format * ticketTypes.size() + ticketType] : NO_PRICE;
+    }
+
+    /** 依票價排序的唯讀報價（同價依影城順序）；無效組合回傳空清單 */
+    List<PriceService.PriceQuote> quotes(int format, int ticketType) {
+        return valid(format, ticketType) ? sortedQuotes.get(format * ticketTypes.size() + ticketType) : List.of();
+    }
+
+    private List<PriceService.PriceQuote> buildQuotes(int format, int ticketType) {
+        List<PriceService.PriceQuote> quotes = new ArrayList<>();
+        int start = rowOffset(format, ticketType);
+        for (int c = 0; c < cinemas.size(); c++) {
+            int price = prices[start + c];
+            if (price == NO_PRICE) continue;
+            String cinema = cinemas.get(c);
+            quotes.add(new PriceService.PriceQuote(cinema, formats.get(format), ticketTypes.get(ticketType),
+                    price, cinema + "（示範價）"));
+        }
+        quotes.sort(Comparator.comparingInt(q -> q.price));
+        return Collections.unmodifiableList(quotes);
+    }
+
+    Builder toBuilder() {
+        Builder b = new Builder();
+        for (String c : cinemas) b.cinema(c);
+        for (String f : formats) b.format(f);
+        for (String t : ticketTypes) b.ticketType(t);
+        for (int f = 0; f < formats.size(); f++) {
+            for (int t = 0; t < ticketTypes.size(); t++) {
+                int start = rowOffset(f, t);
+                for (int c = 0; c < cinemas.size(); c++) {
+                    int p = prices[start + c];
+                    if (p != NO_PRICE) b.put(cinemas.get(c), formats.get(f), ticketTypes.get(t), p);
+                }
+            }
+        }
+        return b;
+    }
+
+    private static int ordinal(Map<String, Integer> index, String key) {
+        if (key == null) return -1;
+        Integer i = index.get(key);
+        return i == null ? -1 : i;
+    }
+
+    private static Map<String, Integer> indexOf(List<String> names) {
+        Map<String, Integer> index = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) index.put(names.get(i), i);
+        return index;
+    }
+
+    // =========================
+    //  Builder
+    // =========================
+
+    /** 依加入順序給序號（影城順序即比價同價時的顯示順序） */
+    static final class Builder {
+        private final Map<String, Integer> cinemas = new LinkedHashMap<>();
+        private final Map<String, Integer> formats = new LinkedHashMap<>();
+        private final Map<String, Integer> ticketTypes = new LinkedHashMap<>();
+        private final Map<Long, Integer> entries = new HashMap<>();
+
+        Builder cinema(String name) {
+            cinemas.putIfAbsent(name, cinemas.size());
+            return this;
+        }
+
+        Builder format(String name) {
+            formats.putIfAbsent(name, formats.size());
+            return this;
+        }
+
+        Builder ticketType(String name) {
+            ticketTypes.putIfAbsent(name, ticketTypes.size());
+            return this;
+        }
+
+        /** price < 0 代表移除此組合 */
+        Builder put(String cinema, String format, String ticketType, int price) {
+            cinema(cinema);
+            format(format);
+            ticketType(ticketType);
+            long key = key(cinemas.get(cinema), formats.get(format), ticketTypes.get(ticketType));
+            if (price < 0) entries.remove(key);
+            else entries.put(key, price);
+            return this;
+        }
+
+        PriceMatrix build() {
+            int nc = cinemas.size();
+            int nt = ticketTypes.size();
+            int[] prices = new int[nc * formats.size() * nt];
+            Arrays.fill(prices, NO_PRICE);
+            for (Map.Entry<Long, Integer> e : entries.entrySet()) {
+                long k = e.getKey();
+                int c = (int) (k >>> 42);
+                int f = (int) ((k >>> 21) & 0x1FFFFF);
+                int t = (int) (k & 0x1FFFFF);
+                prices[(f * nt + t) * nc + c] = e.getValue();
+            }
+            return new PriceMatrix(new ArrayList<>(cinemas.keySet()), new ArrayList<>(formats.keySet()),
+                    new ArrayList<>(ticketTypes.keySet()), prices);
+        }
+
+        private static long key(int cinema, int format, int ticketType) {
+            return ((long) cinema << 42) | ((long) format << 21) | ticketType;
+        }
+    }
+}
@@ -1,23 +1,25 @@
 package org.example.App.services;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 價格/優惠服務（示範版）
  * - 比價：回傳各影城對應票價
- * - 優惠：依情境判斷可用折扣（早鳥/學生/團體/會員）
+ * - 優惠：依情境判斷可用折扣（早鳥/學生/團體/會員），規則編譯成 DiscountPlan 一次評估
+ * - 購物車：多票種 / 座位類別 / 餐點 / 折扣一次計價，回傳明細
+ * - 動態票價（可選）：設定 DynamicPricing 後，指定場次的票價依滿座率與距開演時間調整
  */
 public class PriceService {
 
-    /** 影城格式 + 票種 的報價 */
-    public static class PriceQuote {
-        public String cinema;
-        public String format;     // 2D / 3D / IMAX
-        public String ticketType; // ADULT / STUDENT / SENIOR / CHILD
-        public int price;
-        public String source;
+    /** 影城格式 + 票種 的報價（不可變：比價結果會被快取並共用） */
+    public static final class PriceQuote {
+        public final String cinema;
+        public final String format;     // 2D / 3D / IMAX
+        public final String ticketType; // ADULT / STUDENT / SENIOR / CHILD
+        public final int price;
+        public final String source;
 
         public PriceQuote(String cinema, String format, String ticketType, int price, String source) {
             this.cinema = cinema;
@@ -30,10 +32,14 @@ public class PriceService {
 
     /** 優惠資料 */
     public static class Discount {
-        public String code;
+        /** type / rule 每次被替換就加一；DiscountPlan 比對此值判斷是否需重新編譯 */
+        private static final AtomicLong VERSION = new AtomicLong();
+
+        public final String code;       // DiscountPlan 以此建索引，建立後不可改
         public String name;
-        public int percentage; // 例如 20 = 20% off
-        public String type;    // EARLY_BIRD / STUDENT / GROUP / MEMBER
+        public final int percentage;    // 例如 20 = 20% off
+        private volatile String type;       // EARLY_BIRD / STUDENT / GROUP / MEMBER
+        private volatile DiscountRule rule; // 自訂條件；null 時依 type 使用內建條件
 
         public Discount(String code, String name, int percentage, String type) {
             this.code = code;
@@ -41,6 +47,109 @@ public class PriceService {
             this.percentage = percentage;
             this.type = type;
         }
+
+        public Discount(String code, String name, int percentage, DiscountRule rule) {
+            this(code, name, percentage, "CUSTOM");
+            this.rule = rule;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+            VERSION.incrementAndGet();
+        }
+
+        public DiscountRule getRule() {
+            return rule;
+        }
+
+        public void setRule(DiscountRule rule) {
+            this.rule = rule;
+            VERSION.incrementAndGet();
+        }
+
+        static long version() {
+            return VERSION.get();
+        }
+    }
+
+    /**
+     * 宣告式折扣條件（未設定的條件不限制）；加入 PriceService 後視為不可變
+     * - stackable：可與其它可疊加折扣及一個不可疊加折扣同時使用
+     */
+    public static class DiscountRule {
+        public int minDaysBefore = -1;   // 開演前至少幾天購票
+        public int maxDaysBefore = -1;   // 開演前至多幾天購票
+        public LocalDate showFrom;       // 場次日期區間（含）
+        public LocalDate showUntil;
+        public int minQuantity;
+        public boolean memberOnly;
+        public boolean studentOnly;
+        public Set<String> cinemas;      // null = 所有影城
+        public Set<String> formats;      // null = 所有格式
+        public boolean stackable;
+
+        public DiscountRule minDaysBefore(int days) {
+            this.minDaysBefore = days;
+            return this;
+        }
+
+        public DiscountRule maxDaysBefore(int days) {
+            this.maxDaysBefore = days;
+            return this;
+        }
+
+        public DiscountRule showBetween(LocalDate from, LocalDate until) {
+            this.showFrom = from;
+            this.showUntil = until;
+            return this;
+        }
+
+        public DiscountRule minQuantity(int quantity) {
+            this.minQuantity = quantity;
+            return this;
+        }
+
+        public DiscountRule memberOnly() {
+            this.memberOnly = true;
+            return this;
+        }
+
+        public DiscountRule studentOnly() {
+            this.studentOnly = true;
+            return this;
+        }
+
+        public DiscountRule cinemas(String... names) {
+            this.cinemas = new HashSet<>(Arrays.asList(names));
+            return this;
+        }
+
+        public DiscountRule formats(String... names) {
+            this.formats = new HashSet<>(Arrays.asList(names));
+            return this;
+        }
+
+        public DiscountRule stackable() {
+            this.stackable = true;
+            return this;
+        }
+    }
+
+    /** 最佳折扣組合結果 */
+    public static class DiscountResult {
+        public final List<Discount> applied;
+        public final int originalPrice;
+        public final int finalPrice;
+
+        public DiscountResult(List<Discount> applied, int originalPrice, int finalPrice) {
+            this.applied = applied;
+            this.originalPrice = originalPrice;
+            this.finalPrice = finalPrice;
+        }
     }
 
     /** 折扣判斷所需情境 */
@@ -49,6 +158,8 @@ public class PriceService {
         public int quantity;
         public boolean isMember;
         public boolean isStudentVerified;
+        public String cinema;  // 可選：影城限定折扣用
+        public String format;  // 可選：格式限定折扣用
 
         public DiscountContext(LocalDate showDate, int quantity, boolean isMember, boolean isStudentVerified) {
             this.showDate = showDate;
@@ -56,71 +167,183 @@ public class PriceService {
             this.isMember = isMember;
             this.isStudentVerified = isStudentVerified;
         }
+
+        public DiscountContext(LocalDate showDate, int quantity, boolean isMember, boolean isStudentVerified,
+                               String cinema, String format) {
+            this(showDate, quantity, isMember, isStudentVerified);
+            this.cinema = cinema;
+            this.format = format;
+        }
+    }
+
+    /** 購物車中的一列票（票種 + 座位類別 + 張數） */
+    public static class CartTicket {
+        public String ticketType;   // ADULT / STUDENT / SENIOR / CHILD
+        public String seatCategory; // STANDARD / PREMIUM ...（null = STANDARD）
+        public int quantity;
+
+        public CartTicket(String ticketType, String seatCategory, int quantity) {
+            this.ticketType = ticketType;
+            this.seatCategory = seatCategory;
+            this.quantity = quantity;
+        }
+
+        boolean sameKind(String ticketType, String seatCategory) {
+            return Objects.equals(this.ticketType, ticketType)
+                    && Objects.equals(categoryOf(this.seatCategory), categoryOf(seatCategory));
+        }
+    }
+
+    private static String categoryOf(String seatCategory) {
+        return seatCategory == null ? "STANDARD" : seatCategory;
+    }
+
+    /** 購物車計價請求 */
+    public static class CartRequest {
+        public String cinema;
+        public String format;
+        public DiscountContext context;   // quantity 以票數為準，會被覆寫
+        public List<CartTicket> tickets = new ArrayList<>(); // 每種 (票種, 座位類別) 一列
+        public Map<String, Integer> meals = new LinkedHashMap<>(); // 餐點名稱 -> 份數
+        public String showKey;            // 可選：啟用動態票價時依此場次調整票價
+        public String discountCode;       // 指定折扣碼（不符合條件則不套用）
+        public boolean bestDiscount;      // 未指定折扣碼時自動套用最佳組合
+
+        public CartRequest(String cinema, String format, DiscountContext context) {
+            this.cinema = cinema;
+            this.format = format;
+            this.context = context;
+        }
+
+        /** 同票種 + 座位類別合併成一列；張數溢位時丟 ArithmeticException */
+        public CartRequest addTickets(String ticketType, String seatCategory, int quantity) {
+            if (quantity <= 0) return this;
+            for (CartTicket t : tickets) {
+                if (t != null && t.sameKind(ticketType, seatCategory)) {
+                    t.quantity = Math.addExact(t.quantity, quantity);
+                    return this;
+                }
+            }
+            tickets.add(new CartTicket(ticketType, seatCategory, quantity));
+            return this;
+        }
+
+        public CartRequest addMeal(String meal, int quantity) {
+            if (meal != null && quantity > 0) meals.merge(meal, quantity, Integer::sum);
+            return this;
+        }
+    }
+
+    /** 明細列：TICKET / MEAL / DISCOUNT（折扣列 amount 為負數） */
+    public static class CartLine {
+        public String kind;
+        public String description;
+        public int unitPrice;
+        public int quantity;
+        public int amount;
+
+        public CartLine(String kind, String description, int unitPrice, int quantity, int amount) {
+            this.kind = kind;
+            this.description = description;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+            this.amount = amount;
+        }
     }
 
-    private final Map<String, Map<String, Integer>> priceMap = new LinkedHashMap<>();
+    /** 購物車計價結果 */
+    public static class CartQuote {
+        public List<CartLine> lines;
+        public List<Discount> appliedDiscounts;
+        public int ticketSubtotal;
+        public int mealSubtotal;
+        public int discountTotal; // 折抵金額（正數）
+        public int total;
+
+        public CartQuote(List<CartLine> lines, List<Discount> appliedDiscounts,
+                         int ticketSubtotal, int mealSubtotal, int discountTotal) {
+            this.lines = lines;
+            this.appliedDiscounts = appliedDiscounts;
+            this.ticketSubtotal = ticketSubtotal;
+            this.mealSubtotal = mealSubtotal;
+            this.discountTotal = discountTotal;
+            this.total = Math.subtractExact(Math.addExact(ticketSubtotal, mealSubtotal), discountTotal);
+        }
+    }
+
+    /** 票價以 [格式][票種][影城] 存在一維陣列；改價時整份替換 */
+    private volatile PriceMatrix matrix;
     private final List<Discount> discounts = new ArrayList<>();
 
+    /** 座位類別加價、餐點價格（顯示順序即加入順序） */
+    private final Map<String, Integer> seatSurcharges = new LinkedHashMap<>();
+    private final Map<String, Integer> mealPrices = new LinkedHashMap<>();
+
+    /** 動態票價（null = 固定票價） */
+    private volatile DynamicPricing dynamicPricing;
+
+    /** 編譯後的折扣規則；折扣清單變動或被外部改過 type/rule 時重建 */
+    private volatile DiscountPlan discountPlan;
+
+    /** 內建票價表的欄列順序 */
+    private static final String[] FORMATS = {"2D", "3D", "IMAX"};
+    private static final String[] TICKET_TYPES = {"ADULT", "STUDENT", "SENIOR", "CHILD"};
+
     public PriceService() {
         initPrices();
         initDiscounts();
+        initExtras();
+    }
+
+    private void initExtras() {
+        seatSurcharges.put("STANDARD", 0);
+        seatSurcharges.put("PREMIUM", 50);
+        seatSurcharges.put("COUPLE", 100);
+
+        mealPrices.put("不加購", 0);
+        mealPrices.put("爆米花 + 可樂套餐", 150);
+        mealPrices.put("熱狗堡 + 可樂套餐", 160);
+        mealPrices.put("雞塊 + 可樂套餐", 170);
+        mealPrices.put("雙人分享套餐", 280);
     }
 
     private void initPrices() {
-        // Key = format + "-" + ticketType
-        // ticketType: ADULT / STUDENT / SENIOR / CHILD
-
-        Map<String, Integer> vieshow = new HashMap<>();
-        vieshow.put("2D-ADULT", 320);
-        vieshow.put("2D-STUDENT", 280);
-        vieshow.put("2D-SENIOR", 250);
-        vieshow.put("2D-CHILD", 240);
-        vieshow.put("3D-ADULT", 350);
-        vieshow.put("3D-STUDENT", 320);
-        vieshow.put("3D-SENIOR", 300);
-        vieshow.put("3D-CHILD", 290);
-        vieshow.put("IMAX-ADULT", 380);
-        vieshow.put("IMAX-STUDENT", 350);
-        vieshow.put("IMAX-SENIOR", 330);
-        vieshow.put("IMAX-CHILD", 320);
-        priceMap.put("威秀電影城", vieshow);
+        // 列 = format（2D / 3D / IMAX），欄 = ticketType（ADULT / STUDENT / SENIOR / CHILD）
+        PriceMatrix.Builder b = new PriceMatrix.Builder();
+        for (String f : FORMATS) b.format(f);
+        for (String t : TICKET_TYPES) b.ticketType(t);
+
+        int[][] vieshow = {
+                {320, 280, 250, 240},
+                {350, 320, 300, 290},
+                {380, 350, 330, 320},
+        };
+        putTable(b, "威秀電影城", vieshow, 0);
 
         // 信義威秀：此處示範略高 10 元
-        Map<String, Integer> xinyi = new HashMap<>();
-        for (Map.Entry<String, Integer> e : vieshow.entrySet()) {
-            xinyi.put(e.getKey(), e.getValue() + 10);
-        }
-        priceMap.put("信義威秀", xinyi);
-
-        Map<String, Integer> ambassador = new HashMap<>();
-        ambassador.put("2D-ADULT", 340);
-        ambassador.put("2D-STUDENT", 300);
-        ambassador.put("2D-SENIOR", 270);
-        ambassador.put("2D-CHILD", 260);
-        ambassador.put("3D-ADULT", 360);
-        ambassador.put("3D-STUDENT", 330);
-        ambassador.put("3D-SENIOR", 310);
-        ambassador.put("3D-CHILD", 300);
-        ambassador.put("IMAX-ADULT", 390);
-        ambassador.put("IMAX-STUDENT", 360);
-        ambassador.put("IMAX-SENIOR", 340);
-        ambassador.put("IMAX-CHILD", 330);
-        priceMap.put("國賓大戲院", ambassador);
-
-        Map<String, Integer> miramar = new HashMap<>();
-        miramar.put("2D-ADULT", 330);
-        miramar.put("2D-STUDENT", 290);
-        miramar.put("2D-SENIOR", 260);
-        miramar.put("2D-CHILD", 250);
-        miramar.put("3D-ADULT", 355);
-        miramar.put("3D-STUDENT", 325);
-        miramar.put("3D-SENIOR", 305);
-        miramar.put("3D-CHILD", 295);
-        miramar.put("IMAX-ADULT", 385);
-        miramar.put("IMAX-STUDENT", 355);
-        miramar.put("IMAX-SENIOR", 335);
-        miramar.put("IMAX-CHILD", 325);
-        priceMap.put("美麗華影城", miramar);
+        putTable(b, "信義威秀", vieshow, 10);
+
+        putTable(b, "國賓大戲院", new int[][]{
+                {340, 300, 270, 260},
+                {360, 330, 310, 300},
+                {390, 360, 340, 330},
+        }, 0);
+
+        putTable(b, "美麗華影城", new int[][]{
+                {330, 290, 260, 250},
+                {355, 325, 305, 295},
+                {385, 355, 335, 325},
+        }, 0);
+
+        matrix = b.build();
+    }
+
+    private static void putTable(PriceMatrix.Builder b, String cinema, int[][] table, int markup) {
+        for (int f = 0; f < table.length; f++) {
+            for (int t = 0; t < table[f].length; t++) {
+                b.put(cinema, FORMATS[f], TICKET_TYPES[t], table[f][t] + markup);
+            }
+        }
     }
 
     private void initDiscounts() {
@@ -129,53 +352,94 @@ public class PriceService {
         discounts.add(new Discount("STUDENT15", "學生折扣（需身份驗證）", 15, "STUDENT"));
         discounts.add(new Discount("GROUP10", "團體票（10張以上）", 10, "GROUP"));
         discounts.add(new Discount("MEMBER5", "會員折扣", 5, "MEMBER"));
+        discountPlan = new DiscountPlan(discounts);
     }
 
     /** 取得所有影城（顯示用） */
     public List<String> getCinemas() {
-        return new ArrayList<>(priceMap.keySet());
+        return new ArrayList<>(matrix.cinemas());
+    }
+
+    /** 目前票價表中的格式（2D / 3D / IMAX ...） */
+    public List<String> getFormats() {
+        return matrix.formats();
+    }
+
+    /** 目前票價表中的票種（ADULT / STUDENT / SENIOR / CHILD ...） */
+    public List<String> getTicketTypes() {
+        return matrix.ticketTypes();
     }
 
     /**
      * 比價：format=2D/3D/IMAX；ticketType=ADULT/STUDENT/SENIOR/CHILD
+     * 回傳預先排序好的唯讀清單（票價表變動時才重算）；清單與報價皆不可變，可直接共用
      */
     public List<PriceQuote> compare(String format, String ticketType) {
-        String key = format + "-" + ticketType;
-        List<PriceQuote> quotes = new ArrayList<>();
-
-        for (String cinema : priceMap.keySet()) {
-            Map<String, Integer> prices = priceMap.get(cinema);
-            if (prices != null && prices.containsKey(key)) {
-                int price = prices.get(key);
-                quotes.add(new PriceQuote(cinema, format, ticketType, price, cinema + "（示範價）"));
-            }
-        }
-
-        quotes.sort(Comparator.comparingInt(q -> q.price));
-        return quotes;
+        PriceMatrix m = matrix;
+        return m.quotes(m.formatOrdinal(format), m.ticketTypeOrdinal(ticketType));
     }
 
     public int getLowestPrice(String format, String ticketType) {
-        List<PriceQuote> quotes = compare(format, ticketType);
-        return quotes.isEmpty() ? -1 : quotes.get(0).price;
+        PriceMatrix m = matrix;
+        return m.lowest(m.formatOrdinal(format), m.ticketTypeOrdinal(ticketType));
     }
 
     public Integer getPrice(String cinema, String format, String ticketType) {
-        Map<String, Integer> prices = priceMap.get(cinema);
-        if (prices == null) return null;
-        return prices.get(format + "-" + ticketType);
+        int price = priceOf(cinema, format, ticketType);
+        return price == PriceMatrix.NO_PRICE ? null : price;
+    }
+
+    /** 同 getPrice，但不裝箱：查無票價回傳 -1 */
+    public int priceOf(String cinema, String format, String ticketType) {
+        return matrix.price(cinema, format, ticketType);
     }
 
-    /** 取得全部折扣（不代表可用） */
-    public List<Discount> getAllDiscounts() {
+    /** 場次票價：啟用動態票價時依場次調整，否則同 priceOf；查無票價回傳 -1 */
+    public int getShowPrice(String cinema, String format, String ticketType, String showKey) {
+        return adjustForShow(matrix.price(cinema, format, ticketType), showKey);
+    }
+
+    private int adjustForShow(int base, String showKey) {
+        DynamicPricing dp = dynamicPricing;
+        if (base == PriceMatrix.NO_PRICE || dp == null || showKey == null) return base;
+        return dp.adjust(base, showKey);
+    }
+
+    /** 啟用（或以 null 關閉）動態票價；DynamicPricing 需先 attach 到 BookingService */
+    public void setDynamicPricing(DynamicPricing dynamicPricing) {
+        this.dynamicPricing = dynamicPricing;
+    }
+
+    public DynamicPricing getDynamicPricing() {
+        return dynamicPricing;
+    }
+
+    /** 新增/修改單一票價（price < 0 代表移除）；新的影城、格式、票種會自動加入 */
+    public synchronized void setPrice(String cinema, String format, String ticketType, int price) {
+        if (cinema == null || format == null || ticketType == null) return;
+        matrix = matrix.toBuilder().put(cinema, format, ticketType, price).build();
+    }
+
+    /** 取得全部折扣（不代表可用）；與 addDiscount 同鎖複製 */
+    public synchronized List<Discount> getAllDiscounts() {
         return new ArrayList<>(discounts);
     }
 
+    /** 新增（或以相同折扣碼取代）一個折扣，並重新編譯規則 */
+    public synchronized void addDiscount(Discount discount) {
+        if (discount == null || discount.code == null) return;
+        discounts.removeIf(d -> d.code.equalsIgnoreCase(discount.code));
+        discounts.add(discount);
+        discountPlan = new DiscountPlan(discounts);
+    }
+
     /** 取得可用折扣（依情境） */
     public List<Discount> getApplicableDiscounts(DiscountContext ctx) {
         List<Discount> out = new ArrayList<>();
-        for (Discount d : discounts) {
-            if (isApplicable(d, ctx)) out.add(d);
+        DiscountPlan plan = plan();
+        boolean[] ok = plan.evaluate(ctx, LocalDate.now());
+        for (int i = 0; i < ok.length; i++) {
+            if (ok[i]) out.add(plan.discountAt(i));
         }
         return out;
     }
@@ -183,42 +447,165 @@ public class PriceService {
     /** 是否可用 */
     public boolean isDiscountApplicable(String discountCode, DiscountContext ctx) {
         if (discountCode == null || discountCode.isBlank()) return false;
-        Discount d = findDiscount(discountCode);
-        return d != null && isApplicable(d, ctx);
+        DiscountPlan plan = plan();
+        return plan.applies(plan.indexOf(discountCode), ctx, LocalDate.now());
     }
 
     /** 套用折扣（若不符合情境，回傳原價） */
     public int applyDiscount(int price, String discountCode, DiscountContext ctx) {
-        Discount d = findDiscount(discountCode);
-        if (d == null) return price;
-        if (!isApplicable(d, ctx)) return price;
-        double factor = (100.0 - d.percentage) / 100.0;
+        DiscountPlan plan = plan();
+        int i = plan.indexOf(discountCode);
+        if (!plan.applies(i, ctx, LocalDate.now())) return price;
+        double factor = (100.0 - plan.discountAt(i).percentage) / 100.0;
         return (int) Math.round(price * factor);
     }
 
-    private Discount findDiscount(String code) {
-        for (Discount d : discounts) {
-            if (d.code.equalsIgnoreCase(code)) return d;
+    /**
+     * 最佳折扣：在可用折扣中取「折數最高的一個不可疊加折扣」再加上「所有可疊加折扣」。
+     * 折扣依序相乘，結果四捨五入；沒有可用折扣時 applied 為空、finalPrice 為原價。
+     */
+    public DiscountResult getBestDiscount(int price, DiscountContext ctx) {
+        List<Discount> applied = bestCombination(plan(), ctx);
+        return new DiscountResult(applied, price, (int) Math.round(price * factorOf(applied)));
+    }
+
+    private static List<Discount> bestCombination(DiscountPlan plan, DiscountContext ctx) {
+        boolean[] ok = plan.evaluate(ctx, LocalDate.now());
+        List<Discount> applied = new ArrayList<>();
+        Discount bestExclusive = null;
+        for (int i = 0; i < ok.length; i++) {
+            if (!ok[i]) continue;
+            Discount d = plan.discountAt(i);
+            if (plan.isStackable(i)) {
+                applied.add(d);
+            } else if (bestExclusive == null || d.percentage > bestExclusive.percentage) {
+                bestExclusive = d;
+            }
+        }
+        if (bestExclusive != null) applied.add(0, bestExclusive);
+        return Collections.unmodifiableList(applied);
+    }
+
+    private static double factorOf(List<Discount> applied) {
+        double factor = 1.0;
+        for (Discount d : applied) factor *= (100.0 - d.percentage) / 100.0;
+        return factor;
+    }
+
+    // =========================
+    //  Cart
+    // =========================
+
+    public List<String> getMeals() {
+        return new ArrayList<>(mealPrices.keySet());
+    }
+
+    /** 餐點價格；查無回傳 -1 */
+    public int getMealPrice(String meal) {
+        Integer p = meal == null ? null : mealPrices.get(meal);
+        return p == null ? -1 : p;
+    }
+
+    public List<String> getSeatCategories() {
+        return new ArrayList<>(seatSurcharges.keySet());
+    }
+
+    /**
+     * 整車計價（單次呼叫）：
+     * - 票券依（票種, 座位類別）合併成明細列，單價 = 票價（指定 showKey 時為動態票價）+ 座位加價
+     * - 折扣只作用在票券：指定折扣碼或自動最佳組合，規則只評估一次，每張票依折扣後單價四捨五入
+     * - 餐點不打折
+     * 任何票種 / 座位類別 / 餐點查無價格，或張數 / 金額超出 int 時回傳 null。
+     */
+    public CartQuote priceCart(CartRequest cart) {
+        if (cart == null || cart.tickets == null || cart.tickets.isEmpty()) return null;
+        try {
+            return priceCartExact(cart);
+        } catch (ArithmeticException e) {
+            return null; // 張數或金額超出 int
         }
-        return null;
     }
 
-    private boolean isApplicable(Discount d, DiscountContext ctx) {
-        if (ctx == null) return false;
-        switch (d.type) {
-            case "EARLY_BIRD": {
-                if (ctx.showDate == null) return false;
-                long days = ChronoUnit.DAYS.between(LocalDate.now(), ctx.showDate);
-                return days >= 7;
+    private CartQuote priceCartExact(CartRequest cart) {
+        PriceMatrix m = matrix;
+        int c = m.cinemaOrdinal(cart.cinema);
+        int f = m.formatOrdinal(cart.format);
+
+        // 票券：依 (票種, 座位類別) 合併（呼叫端直接加入的重複列也一併合併）
+        Map<String, int[]> groups = new LinkedHashMap<>(); // key -> {unitPrice, quantity}
+        int ticketCount = 0;
+        for (CartTicket t : cart.tickets) {
+            if (t == null || t.quantity <= 0) return null;
+            int base = adjustForShow(m.price(c, f, m.ticketTypeOrdinal(t.ticketType)), cart.showKey);
+            String category = categoryOf(t.seatCategory);
+            Integer surcharge = seatSurcharges.get(category);
+            if (base == PriceMatrix.NO_PRICE || surcharge == null) return null;
+            int[] g = groups.computeIfAbsent(t.ticketType + "|" + category, k -> new int[]{base + surcharge, 0});
+            g[1] = Math.addExact(g[1], t.quantity);
+            ticketCount = Math.addExact(ticketCount, t.quantity);
+        }
+
+        // 折扣：只評估一次
+        DiscountContext ctx = cart.context;
+        if (ctx != null) {
+            ctx = new DiscountContext(ctx.showDate, ticketCount, ctx.isMember, ctx.isStudentVerified,
+                    cart.cinema, cart.format);
+        }
+        DiscountPlan plan = plan();
+        List<Discount> applied;
+        if (cart.discountCode != null && !cart.discountCode.isBlank()) {
+            int i = plan.indexOf(cart.discountCode);
+            applied = plan.applies(i, ctx, LocalDate.now()) ? List.of(plan.discountAt(i)) : List.of();
+        } else {
+            applied = cart.bestDiscount ? bestCombination(plan, ctx) : List.of();
+        }
+        double factor = factorOf(applied);
+
+        List<CartLine> lines = new ArrayList<>();
+        int ticketSubtotal = 0;
+        int discountTotal = 0;
+        for (Map.Entry<String, int[]> e : groups.entrySet()) {
+            int unit = e.getValue()[0];
+            int qty = e.getValue()[1];
+            String[] key = e.getKey().split("\\|", 2);
+            int amount = Math.multiplyExact(unit, qty);
+            lines.add(new CartLine("TICKET", key[0] + " / " + key[1], unit, qty, amount));
+            ticketSubtotal = Math.addExact(ticketSubtotal, amount);
+            discountTotal = Math.addExact(discountTotal,
+                    Math.multiplyExact(unit - (int) Math.round(unit * factor), qty));
+        }
+
+        int mealSubtotal = 0;
+        if (cart.meals != null) {
+            for (Map.Entry<String, Integer> e : cart.meals.entrySet()) {
+                int qty = e.getValue() == null ? 0 : e.getValue();
+                if (qty <= 0) continue;
+                Integer price = mealPrices.get(e.getKey());
+                if (price == null) return null;
+                if (price == 0) continue;
+                int amount = Math.multiplyExact(price, qty);
+                lines.add(new CartLine("MEAL", e.getKey(), price, qty, amount));
+                mealSubtotal = Math.addExact(mealSubtotal, amount);
             }
-            case "STUDENT":
-                return ctx.isStudentVerified;
-            case "GROUP":
-                return ctx.quantity >= 10;
-            case "MEMBER":
-                return ctx.isMember;
-            default:
-                return false;
+        }
+
+        if (discountTotal > 0) {
+            StringBuilder codes = new StringBuilder();
+            for (Discount d : applied) {
+                if (codes.length() > 0) codes.append(" + ");
+                codes.append(d.code);
+            }
+            lines.add(new CartLine("DISCOUNT", codes.toString(), -discountTotal, 1, -discountTotal));
+        }
+        return new CartQuote(Collections.unmodifiableList(lines), applied, ticketSubtotal, mealSubtotal, discountTotal);
+    }
+
+    private DiscountPlan plan() {
+        DiscountPlan plan = discountPlan;
+        if (!plan.isStale()) return plan;
+        synchronized (this) {
+            if (discountPlan.isStale()) discountPlan = new DiscountPlan(discounts);
+            return discountPlan;
         }
     }
 }
@@ -0,0 +1,154 @@
+package org.example.App.services;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每個 key（userId / email ...）的滑動視窗限流器
+ * - 滑動視窗以「本視窗計數 + 上一視窗計數 × 尚未滑出的比例」估算，只需兩個計數
+ * - 每個 key 的狀態壓成一個 long（視窗序號 32 bit | 上一視窗 16 bit | 本視窗 16 bit），以 CAS 更新，不加鎖
+ * - 被拒絕的請求不計數，拒絕路徑只有一次 map 查詢 + 一次讀取
+ * - 記憶體上限：每 1024 次呼叫或新 key 碰到 maxKeys 時清掉兩個視窗都已過期的 key；
+ *   清完仍滿時只淘汰尚未達上限的 key（降到 7/8 maxKeys），已被擋下的 key 不會因淘汰而重新計數
+ * - 清完仍滿（全部都在擋）時新 key 一律拒絕（fail closed），滿載時的強制清理每秒最多一次
+ */
+public class RateLimiter {
+
+    private static final int MAX_LIMIT = 0xFFFF;
+    private static final int PURGE_EVERY = 1024;
+    private static final long FULL_PURGE_GAP_MILLIS = 1000;
+
+    private final int limit;
+    private final long windowMillis;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private volatile long lastFullPurge = Long.MIN_VALUE;
+
+    /** 每個 key 在任一長度為 window 的區間內最多 limit 次 */
+    public RateLimiter(int limit, Duration window, int maxKeys) {
+        if (limit < 1 || limit > MAX_LIMIT) throw new IllegalArgumentException("limit must be 1.." + MAX_LIMIT);
+        if (window == null || window.toMillis() < 1000) throw new IllegalArgumentException("window must be >= 1s");
+        if (maxKeys < 1) throw new IllegalArgumentException("maxKeys must be positive");
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.maxKeys = maxKeys;
+    }
+
+    /** 允許則計入一次並回傳 true；超過限制或 key 表已滿時回傳 false。key 為 null 一律允許 */
+    public boolean tryAcquire(String key) {
+        return tryAcquire(key, System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(String key, long nowMillis) {
+        if (key == null) return true;
+        AtomicLong cell = counters.get(key);
+        if (cell == null) {
+            if (counters.size() >= maxKeys) {
+                purgeWhenFull(nowMillis);
+                if (counters.size() >= maxKeys) return false;
+            }
+            AtomicLong created = new AtomicLong();
+            cell = counters.putIfAbsent(key, created);
+            if (cell == null) cell = created;
+        }
+        maybePurge(nowMillis);
+
+        long window = nowMillis / windowMillis;
+        double carry = 1.0 - (double) (nowMillis % windowMillis) / windowMillis;
+        while (true) {
+            long state = cell.get();
+            long w = state >>> 32;
+            int prev = (int) (state >>> 16) & 0xFFFF;
+            int cur = (int) state & 0xFFFF;
+            if (w != window) {
+                prev = w == window - 1 ? cur : 0;
+                cur = 0;
+            }
+            if (prev * carry + cur >= limit) return false;
+            if (cell.compareAndSet(state, pack(window, prev, cur + 1))) return true;
+        }
+    }
+
+    /** 目前估計的使用次數（不計入） */
+    public int used(String key) {
+        return used(key, System.currentTimeMillis());
+    }
+
+    int used(String key, long nowMillis) {
+        AtomicLong cell = key == null ? null : counters.get(key);
+        if (cell == null) return 0;
+        long state = cell.get();
+        long window = nowMillis / windowMillis;
+        long w = state >>> 32;
+        int prev = (int) (state >>> 16) & 0xFFFF;
+        int cur = (int) state & 0xFFFF;
+        if (w != window) {
+            prev = w == window - 1 ? cur : 0;
+            cur = 0;
+        }
+        double carry = 1.0 - (double) (nowMillis % windowMillis) / windowMillis;
+        return (int) Math.ceil(prev * carry + cur);
+    }
+
+    /** 清除某 key 的計數（例如登入成功後） */
+    public void reset(String key) {
+        if (key != null) counters.remove(key);
+    }
+
+    /** 目前追蹤中的 key 數 */
+    public int size() {
+        return counters.size();
+    }
+
+    private void maybePurge(long nowMillis) {
+        if ((calls.incrementAndGet() % PURGE_EVERY) != 0) return;
+        purge(nowMillis);
+    }
+
+    private void purgeWhenFull(long nowMillis) {
+        long last = lastFullPurge;
+        if (last != Long.MIN_VALUE && nowMillis - last < FULL_PURGE_GAP_MILLIS) return;
+        lastFullPurge = nowMillis;
+        purge(nowMillis);
+    }
+
+    private void purge(long nowMillis) {
+        if (!purging.compareAndSet(false, true)) return;
+        try {
+            long window = nowMillis / windowMillis;
+            counters.values().removeIf(c -> (c.get() >>> 32) < window - 1);
+            if (counters.size() >= maxKeys) {
+                double carry = 1.0 - (double) (nowMillis % windowMillis) / windowMillis;
+                int target = maxKeys - Math.max(1, maxKeys / 8);
+                Iterator<AtomicLong> it = counters.values().iterator();
+                while (counters.size() > target && it.hasNext()) {
+                    if (!blocked(it.next().get(), window, carry)) it.remove();
+                }
+            }
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    /** 此狀態在 window 時是否已達上限 */
+    private boolean blocked(long state, long window, double carry) {
+        long w = state >>> 32;
+        int prev = (int) (state >>> 16) & 0xFFFF;
+        int cur = (int) state & 0xFFFF;
+        if (w != window) {
+            prev = w == window - 1 ? cur : 0;
+            cur = 0;
+        }
+        return prev * carry + cur >= limit;
+    }
+
+    private static long pack(long window, int prev, int cur) {
+        return (window << 32) | ((long) prev << 16) | cur;
+    }
+}
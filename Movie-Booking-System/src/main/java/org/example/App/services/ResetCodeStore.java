@@ -0,0 +1,166 @@
+package org.example.App.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 忘記密碼重設碼（有效期限 + 數量上限）
+ * - key（userId）-> 重設碼存在 ConcurrentHashMap，比對 O(1)、固定時間比較
+ * - 到期：比對時即時判斷；另依建立順序排成佇列（TTL 相同，所以也是到期順序），
+ *   新增時與計時器定期從佇列頭清掉已到期者，不掃描整張表
+ * - 上限：超過 maxEntries 時從最舊的開始淘汰，大量「忘記密碼」時記憶體不會無限成長
+ */
+public class ResetCodeStore implements AutoCloseable {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(15);
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private static final long MAX_SWEEP_INTERVAL = 60_000L;
+
+    private static final class Entry {
+        final String key;
+        final byte[] code;
+        final long expiresAtMillis;
+
+        Entry(String key, String code, long expiresAtMillis) {
+            this.key = key;
+            this.code = code.getBytes(StandardCharsets.UTF_8);
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+    /** 建立順序；被覆蓋或已使用的舊項目留在佇列中，輪到時略過 */
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicBoolean sweepScheduled = new AtomicBoolean();
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final HashedWheelTimer timer;
+    private final LongSupplier clock;
+
+    public ResetCodeStore() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResetCodeStore(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, new HashedWheelTimer(1000, 64, "reset-code-timer"), System::currentTimeMillis);
+    }
+
+    /** 測試用：自訂計時器與時鐘 */
+    ResetCodeStore(Duration ttl, int maxEntries, HashedWheelTimer timer, LongSupplier clock) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive");
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive");
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.timer = timer;
+        this.clock = clock;
+    }
+
+    /** 設定 key 的重設碼（取代舊的） */
+    public void put(String key, String code) {
+        if (key == null || code == null) return;
+        long now = clock.getAsLong();
+        Entry entry = new Entry(key, code, now + ttlMillis);
+        codes.put(key, entry);
+        order.add(entry);
+        queued.incrementAndGet();
+        sweep(now);
+        scheduleSweep();
+    }
+
+    /** 重設碼是否正確且未過期（不會移除，成功使用後呼叫 remove） */
+    public boolean matches(String key, String code) {
+        if (key == null || code == null) return false;
+        Entry entry = codes.get(key);
+        if (entry == null) return false;
+        if (entry.expiresAtMillis <= clock.getAsLong()) {
+            codes.remove(key, entry);
+            return false;
+        }
+        return MessageDigest.isEqual(entry.code, code.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 比對成功就原子地取走重設碼：以 remove(key, entry) 只移除比對過的那一筆，
+     * 同一碼同時確認只有一個成功，期間新索取的碼也不會被誤刪
+     */
+    public boolean consume(String key, String code) {
+        if (key == null || code == null) return false;
+        Entry entry = codes.get(key);
+        if (entry == null) return false;
+        if (entry.expiresAtMillis <= clock.getAsLong()) {
+            codes.remove(key, entry);
+            return false;
+        }
+        if (!MessageDigest.isEqual(entry.code, code.getBytes(StandardCharsets.UTF_8))) return false;
+        return codes.remove(key, entry);
+    }
+
+    public void remove(String key) {
+        if (key != null) codes.remove(key);
+    }
+
+    /** 目前保存的重設碼數（含已到期但尚未清掉者） */
+    public int size() {
+        return codes.size();
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * 從佇列頭開始清：已到期、已被取代 / 使用，或總數超過上限者
+     * 同一時間只有一個執行緒在清，其餘直接略過
+     */
+    int sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) return 0;
+        int removed = 0;
+        try {
+            Entry head;
+            while ((head = order.peek()) != null) {
+                boolean current = codes.get(head.key) == head;
+                boolean overCap = codes.size() > maxEntries || queued.get() > maxEntries;
+                if (current && head.expiresAtMillis > now && !overCap) break;
+                order.poll();
+                queued.decrementAndGet();
+                if (current && codes.remove(head.key, head)) removed++;
+            }
+        } finally {
+            sweeping.set(false);
+        }
+        return removed;
+    }
+
+    /** 佇列非空時才排程定期清理，沒有重設碼時不佔用計時器 */
+    private void scheduleSweep() {
+        if (!sweepScheduled.compareAndSet(false, true)) return;
+        try {
+            timer.schedule(this::onTimer, Math.min(ttlMillis, MAX_SWEEP_INTERVAL));
+        } catch (IllegalStateException e) {
+            sweepScheduled.set(false); // 已關閉
+        }
+    }
+
+    private void onTimer() {
+        sweep(clock.getAsLong());
+        sweepScheduled.set(false);
+        if (!order.isEmpty()) scheduleSweep();
+    }
+
+    @Override
+    public void close() {
+        timer.close();
+    }
+}
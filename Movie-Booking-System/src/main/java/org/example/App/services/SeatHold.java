@@ -0,0 +1,96 @@
+package org.example.App.services;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 座位暫留（租約）
+ * - 選位確認時建立，付款期間其他人無法選走這些座位
+ * - 到期未付款自動釋放；付款成功時轉為正式訂單
+ */
+public class SeatHold {
+
+    private final String holdId;
+    private final String movieTitle;
+    private final String cinema;
+    private final LocalDate date;
+    private final LocalTime time;
+    private final String showKey;
+    /** SeatId 編碼 */
+    private final int[] seatCodes;
+    final int[] indexes;
+
+    /** 到期時間（epoch 毫秒）；延長租約只改這個值，計時器到點時再檢查 */
+    private volatile long expiresAtMillis;
+
+    /** 由場次鎖保護：轉單或釋放後即失效 */
+    boolean active = true;
+
+    SeatHold(String holdId, String movieTitle, String cinema, LocalDate date, LocalTime time,
+             String showKey, int[] seatCodes, int[] indexes, long expiresAtMillis) {
+        this.holdId = holdId;
+        this.movieTitle = movieTitle;
+        this.cinema = cinema;
+        this.date = date;
+        this.time = time;
+        this.showKey = showKey;
+        this.seatCodes = seatCodes;
+        this.indexes = indexes;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public String getMovieTitle() {
+        return movieTitle;
+    }
+
+    public String getCinema() {
+        return cinema;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalTime getTime() {
+        return time;
+    }
+
+    public String getShowKey() {
+        return showKey;
+    }
+
+    /** 顯示用座位編號（"A1" ...） */
+    public List<String> getSeats() {
+        return Collections.unmodifiableList(SeatId.labels(seatCodes));
+    }
+
+    public int[] getSeatCodes() {
+        return seatCodes.clone();
+    }
+
+    public int getSeatCount() {
+        return seatCodes.length;
+    }
+
+    int[] seatCodes() {
+        return seatCodes;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    void setExpiresAtMillis(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
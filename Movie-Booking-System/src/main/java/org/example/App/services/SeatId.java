@@ -0,0 +1,109 @@
+package org.example.App.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 座位編號編碼（"C7" <-> int）
+ * - 編碼 = 排（0-based，A=0）<< 16 | 座號（1..65535），與影廳配置無關，可直接存進訂單 / 暫留
+ * - parse 逐字元解析，不建立子字串、不丟例外；無效回傳 INVALID（-1）
+ * - label 常用範圍（每排前 64 號）預先建好字串，轉回顯示文字時不配置物件
+ *
+ * 字串只在 UI / API 邊界使用，服務內部一律傳編碼或 SeatMap 索引。
+ */
+public final class SeatId {
+
+    public static final int INVALID = -1;
+
+    public static final int MAX_ROWS = HallLayout.MAX_ROWS;
+    public static final int MAX_NUMBER = 0xFFFF;
+
+    private static final int CACHED_NUMBERS = 64;
+    private static final String[][] LABELS = new String[MAX_ROWS][CACHED_NUMBERS + 1];
+
+    static {
+        for (int r = 0; r < MAX_ROWS; r++) {
+            for (int n = 1; n <= CACHED_NUMBERS; n++) LABELS[r][n] = (char) ('A' + r) + String.valueOf(n);
+        }
+    }
+
+    private SeatId() {
+    }
+
+    /** row 為 0-based、number 為 1-based；超出範圍回傳 INVALID */
+    public static int of(int row, int number) {
+        if (row < 0 || row >= MAX_ROWS || number < 1 || number > MAX_NUMBER) return INVALID;
+        return row << 16 | number;
+    }
+
+    public static int row(int code) {
+        return code >>> 16;
+    }
+
+    public static int number(int code) {
+        return code & 0xFFFF;
+    }
+
+    public static boolean isValid(int code) {
+        return code >= 0 && row(code) < MAX_ROWS && number(code) >= 1;
+    }
+
+    /** "A1" / "c12" -> 編碼；格式錯誤回傳 INVALID（不檢查影廳是否有這個座位） */
+    public static int parse(CharSequence label) {
+        if (label == null || label.length() < 2) return INVALID;
+        int row = Character.toUpperCase(label.charAt(0)) - 'A';
+        if (row < 0 || row >= MAX_ROWS) return INVALID;
+        int number = 0;
+        for (int i = 1; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c < '0' || c > '9') return INVALID;
+            number = number * 10 + (c - '0');
+            if (number > MAX_NUMBER) return INVALID;
+        }
+        return number == 0 ? INVALID : row << 16 | number;
+    }
+
+    /** 整批解析；任一無效回傳 null */
+    public static int[] parseAll(List<String> labels) {
+        if (labels == null) return null;
+        int[] out = new int[labels.size()];
+        for (int i = 0; i < out.length; i++) {
+            int code = parse(labels.get(i));
+            if (code < 0) return null;
+            out[i] = code;
+        }
+        return out;
+    }
+
+    /** 編碼 -> "C7"；無效編碼回傳 null */
+    public static String label(int code) {
+        if (!isValid(code)) return null;
+        int number = number(code);
+        if (number <= CACHED_NUMBERS) return LABELS[row(code)][number];
+        return (char) ('A' + row(code)) + String.valueOf(number);
+    }
+
+    /** 整批轉回顯示文字（無效編碼略過） */
+    public static List<String> labels(int[] codes) {
+        if (codes == null) return new ArrayList<>();
+        List<String> out = new ArrayList<>(codes.length);
+        for (int code : codes) {
+            String label = label(code);
+            if (label != null) out.add(label);
+        }
+        return out;
+    }
+
+    /** 顯示用："A1, A2, A3"；沒有座位回傳空字串 */
+    public static String join(int[] codes, String separator) {
+        if (codes == null || codes.length == 0) return "";
+        StringBuilder sb = new StringBuilder(codes.length * (separator.length() + 3));
+        for (int code : codes) {
+            String label = label(code);
+            if (label == null) continue;
+            if (sb.length() > 0) sb.append(separator);
+            sb.append(label);
+        }
+        return sb.toString();
+    }
+}
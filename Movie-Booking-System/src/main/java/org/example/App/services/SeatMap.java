@@ -0,0 +1,552 @@
+package org.example.App.services;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 單一場次的座位占用表（bitset 版）
+ * - 以 row * cols + col 為索引，一個座位只占 1 bit；格子大小與座位編號依 HallLayout
+ * - 走道與缺位以 missing 位元表標記，永遠不可用，也會切斷連號
+ * - 可用檢查 O(1)，批次占用/釋放不需建立字串集合
+ * - bookedView() 回傳唯讀的即時檢視，不複製資料
+ * - 另以 held 位元表記錄「暫留」座位（付款期間的租約），暫留座位對其他人不可用
+ * - 每排維護空位連續段索引（起點 + 長度），異動時只重算受影響的排；
+ *   findBestBlock / findPartyBlocks 依此挑出最佳連號座位（或拆成相鄰數排），不必逐位檢查
+ *
+ * 非執行緒安全：寫入與 findBestBlock 由 BookingService 的場次鎖保護
+ * 例外：bookedView / unavailableView 可不持鎖讀取。每次寫入結束時遞增 volatile 的 version，
+ * 檢視先讀 version 再讀位元表，因此看得到讀取前已完成的寫入；與進行中的寫入並行時為弱一致（盡力而為）
+ */
+public class SeatMap {
+
+    private final HallLayout layout;
+    private final int rows;
+    private final int cols;
+    private final int gridSize;
+    private final long[] words;
+    private final long[] held;
+    /** 沒有座位的格子（走道 / 缺位） */
+    private final long[] missing;
+    private int bookedCount;
+    private int heldCount;
+    /** 寫入完成後遞增，作為不持鎖檢視的 happens-before 邊界 */
+    private volatile int version;
+
+    /** 每排的空位連續段：runs[row][i] = start << 16 | length，依 start 由左到右 */
+    private final int[][] runs;
+    private final int[] runCount;
+    private final int[] longestRun;
+
+    /** 無走道的矩形影廳 */
+    public SeatMap(int rows, int cols) {
+        this(HallLayout.rectangle(rows, cols));
+    }
+
+    public SeatMap(HallLayout layout) {
+        this.layout = layout;
+        this.rows = layout.getRows();
+        this.cols = layout.getCols();
+        this.gridSize = rows * cols;
+        this.words = new long[(gridSize + 63) >>> 6];
+        this.held = new long[words.length];
+        this.missing = layout.seatMask();
+        for (int w = 0; w < missing.length; w++) missing[w] = ~missing[w];
+        this.runs = new int[rows][(cols + 1) / 2];
+        this.runCount = new int[rows];
+        this.longestRun = new int[rows];
+        for (int r = 0; r < rows; r++) refreshRow(r);
+    }
+
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /** 實際座位數（不含走道 / 缺位） */
+    public int getCapacity() {
+        return layout.getCapacity();
+    }
+
+    /** 格子數 rows * cols（索引範圍） */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getBookedCount() {
+        return bookedCount;
+    }
+
+    public int getHeldCount() {
+        return heldCount;
+    }
+
+    public int getAvailableCount() {
+        return getCapacity() - bookedCount - heldCount;
+    }
+
+    // =========================
+    //  Index helpers
+    // =========================
+
+    /** row/col 皆為 0-based（格子座標）；超出範圍或該格沒有座位回傳 -1 */
+    public int indexOf(int row, int col) {
+        return layout.hasSeat(row, col) ? row * cols + col : -1;
+    }
+
+    /**
+     * 解析 "A1" / "c12" 這類座位編號（不建立子字串、不丟例外）
+     * 無效時回傳 -1
+     */
+    public int indexOf(String seatId) {
+        return layout.indexOf(seatId);
+    }
+
+    /** 索引轉回座位編號（例如 0 -> "A1"） */
+    public String seatIdOf(int index) {
+        return layout.seatIdOf(index);
+    }
+
+    /** SeatId 編碼 -> 索引；無效或沒有這個座位回傳 -1 */
+    public int indexOfCode(int seatCode) {
+        return layout.indexOf(seatCode);
+    }
+
+    /** 索引 -> SeatId 編碼 */
+    public int seatCodeOf(int index) {
+        return layout.seatCodeOf(index);
+    }
+
+    // =========================
+    //  Query
+    // =========================
+
+    public boolean isBooked(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isHeld(int index) {
+        return (held[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isAvailable(int index) {
+        return layout.hasSeat(index) && !isBooked(index) && !isHeld(index);
+    }
+
+    public boolean isAvailable(String seatId) {
+        return isAvailable(indexOf(seatId));
+    }
+
+    /** 全部座位皆可用（未售出也未暫留）才回傳 true（索引需先驗證） */
+    public boolean areAllAvailable(int[] indexes) {
+        for (int idx : indexes) {
+            if (isBooked(idx) || isHeld(idx) || isMissing(idx)) return false;
+        }
+        return true;
+    }
+
+    // =========================
+    //  Bulk reserve / release
+    // =========================
+
+    /**
+     * 批次占用：全部可用才會一次寫入，否則不變更並回傳 false
+     * （同一座位重複出現只計一次）
+     */
+    public boolean reserveAll(int[] indexes) {
+        if (!areAllAvailable(indexes)) return false;
+        for (int idx : indexes) {
+            long bit = 1L << idx;
+            if ((words[idx >>> 6] & bit) != 0) continue;
+            words[idx >>> 6] |= bit;
+            bookedCount++;
+        }
+        refreshRows(indexes);
+        version++;
+        return true;
+    }
+
+    /** 批次釋放（未占用的座位略過） */
+    public void releaseAll(int[] indexes) {
+        for (int idx : indexes) {
+            if (idx < 0 || idx >= gridSize || !isBooked(idx)) continue;
+            words[idx >>> 6] &= ~(1L << idx);
+            bookedCount--;
+        }
+        refreshRows(indexes);
+        version++;
+    }
+
+    // =========================
+    //  Hold (lease)
+    // =========================
+
+    /** 批次暫留：全部可用才一次寫入，否則不變更並回傳 false */
+    public boolean holdAll(int[] indexes) {
+        if (!areAllAvailable(indexes)) return false;
+        for (int idx : indexes) {
+            long bit = 1L << idx;
+            if ((held[idx >>> 6] & bit) != 0) continue;
+            held[idx >>> 6] |= bit;
+            heldCount++;
+        }
+        refreshRows(indexes);
+        version++;
+        return true;
+    }
+
+    /** 批次解除暫留（未暫留的座位略過） */
+    public void releaseHeld(int[] indexes) {
+        for (int idx : indexes) {
+            if (idx < 0 || idx >= gridSize || !isHeld(idx)) continue;
+            held[idx >>> 6] &= ~(1L << idx);
+            heldCount--;
+        }
+        refreshRows(indexes);
+        version++;
+    }
+
+    /** 暫留轉為售出：全部仍在暫留中才轉換，否則不變更並回傳 false */
+    public boolean commitHeld(int[] indexes) {
+        for (int idx : indexes) {
+            if (!isHeld(idx)) return false;
+        }
+        for (int idx : indexes) {
+            long bit = 1L << idx;
+            if ((held[idx >>> 6] & bit) == 0) continue;
+            held[idx >>> 6] &= ~bit;
+            heldCount--;
+            words[idx >>> 6] |= bit;
+            bookedCount++;
+        }
+        version++;
+        return true;
+    }
+
+    /** 座位字串轉索引；任一無效即回傳 null */
+    public int[] toIndexes(List<String> seatIds) {
+        int[] out = new int[seatIds.size()];
+        for (int i = 0; i < out.length; i++) {
+            int idx = indexOf(seatIds.get(i));
+            if (idx < 0) return null;
+            out[i] = idx;
+        }
+        return out;
+    }
+
+    /** SeatId 編碼轉索引；任一無效即回傳 null */
+    public int[] toIndexes(int[] seatCodes) {
+        int[] out = new int[seatCodes.length];
+        for (int i = 0; i < out.length; i++) {
+            int idx = layout.indexOf(seatCodes[i]);
+            if (idx < 0) return null;
+            out[i] = idx;
+        }
+        return out;
+    }
+
+    /** 索引轉 SeatId 編碼 */
+    public int[] toSeatCodes(int[] indexes) {
+        int[] out = new int[indexes.length];
+        for (int i = 0; i < out.length; i++) out[i] = layout.seatCodeOf(indexes[i]);
+        return out;
+    }
+
+    // =========================
+    //  Best available
+    // =========================
+
+    /** 某排最長的連續空位數 */
+    public int longestFreeRun(int row) {
+        return row < 0 || row >= rows ? 0 : longestRun[row];
+    }
+
+    /** 最理想的排（由前往後約 3/5 處） */
+    public int idealRow() {
+        return rows * 3 / 5;
+    }
+
+    /**
+     * 找出 qty 個同排連號空位中最好的一組；沒有則回傳 null
+     * - 分數 = 距理想排的距離（以總排數正規化）+ 區塊中心距離場中央（以半排寬正規化），越小越好
+     * - 從理想排往前後交替檢查，排距離本身已不可能更好時即停止；
+     *   最長空位段不足的排 O(1) 略過，其餘只看該排的空位段
+     * - 同分時取較後排、較左側
+     */
+    public int[] findBestBlock(int qty) {
+        if (qty <= 0 || qty > cols) return null;
+        int ideal = idealRow();
+        double best = Double.MAX_VALUE;
+        int bestRow = -1;
+        int bestStart = -1;
+        for (int step = 0; step < 2 * rows; step++) {
+            int row = ideal + (step % 2 == 0 ? -step / 2 : (step + 1) / 2);
+            double rowScore = rowScore(row, ideal);
+            if (rowScore >= best) break;
+            int s = bestStartInRow(row, qty);
+            if (s < 0) continue;
+            double score = rowScore + colScore(s, qty);
+            if (score < best) {
+                best = score;
+                bestRow = row;
+                bestStart = s;
+            }
+        }
+        if (bestRow < 0) return null;
+        return block(bestRow, bestStart, qty);
+    }
+
+    /**
+     * 大團體拆成相鄰數排（例如 6 人 = 前排 3 + 後排 3）
+     * - 先試單排連號（findBestBlock）；不行再依序試 2、3… 排，取排數最少者中分數最好的一組
+     * - k 排時各排人數盡量平均（最多差 1 人，多 1 人的排給最不影響分數者），
+     *   每排取最靠中央的位置，排與排自然上下對齊
+     * - 每個 k 只看 rows-k+1 個連續排窗口、每排只看空位段，
+     *   最多 O(rows² × 每排空位段數)，與人數無關
+     * 回傳各排的座位索引（由前排到後排）；找不到回傳 null
+     */
+    public int[][] findPartyBlocks(int qty) {
+        if (qty <= 0 || qty > getAvailableCount()) return null;
+        int[] single = findBestBlock(qty);
+        if (single != null) return new int[][]{single};
+
+        int ideal = idealRow();
+        for (int k = 2; k <= Math.min(rows, qty); k++) {
+            int small = qty / k;
+            int big = small + 1;
+            int extra = qty % k;
+            if (small > cols) continue;
+
+            int[] starts = new int[k];
+            int[] sizes = new int[k];
+            int[] bigStarts = new int[k];
+            double[] delta = new double[k];
+            double best = Double.MAX_VALUE;
+            int bestTop = -1;
+            int[] bestStarts = null;
+            int[] bestSizes = null;
+
+            for (int top = 0; top + k <= rows; top++) {
+                double score = 0;
+                boolean ok = true;
+                for (int i = 0; i < k; i++) {
+                    int row = top + i;
+                    int s = bestStartInRow(row, small);
+                    if (s < 0) {
+                        ok = false;
+                        break;
+                    }
+                    starts[i] = s;
+                    sizes[i] = small;
+                    score += rowScore(row, ideal) + colScore(s, small);
+                    bigStarts[i] = extra > 0 ? bestStartInRow(row, big) : -1;
+                    delta[i] = bigStarts[i] < 0 ? Double.POSITIVE_INFINITY
+                            : colScore(bigStarts[i], big) - colScore(s, small);
+                }
+                for (int n = 0; ok && n < extra; n++) {
+                    int pick = -1;
+                    for (int i = 0; i < k; i++) {
+                        if (sizes[i] == small && (pick < 0 || delta[i] < delta[pick])) pick = i;
+                    }
+                    if (delta[pick] == Double.POSITIVE_INFINITY) {
+                        ok = false;
+                    } else {
+                        score += delta[pick];
+                        sizes[pick] = big;
+                        starts[pick] = bigStarts[pick];
+                    }
+                }
+                if (ok && score < best) {
+                    best = score;
+                    bestTop = top;
+                    bestStarts = starts.clone();
+                    bestSizes = sizes.clone();
+                }
+            }
+
+            if (bestTop >= 0) {
+                int[][] out = new int[k][];
+                for (int i = 0; i < k; i++) out[i] = block(bestTop + i, bestStarts[i], bestSizes[i]);
+                return out;
+            }
+        }
+        return null;
+    }
+
+    /** 某排放得下 qty 連號時最靠中央的起點；放不下回傳 -1 */
+    private int bestStartInRow(int row, int qty) {
+        if (row < 0 || row >= rows || longestRun[row] < qty) return -1;
+        int[] rowRuns = runs[row];
+        int best = -1;
+        for (int i = 0; i < runCount[row]; i++) {
+            int start = rowRuns[i] >>> 16;
+            int len = rowRuns[i] & 0xFFFF;
+            if (len < qty) continue;
+            int s = Math.max(start, Math.min((cols - qty) / 2, start + len - qty));
+            if (best < 0 || Math.abs(2 * s + qty - cols) < Math.abs(2 * best + qty - cols)) best = s;
+        }
+        return best;
+    }
+
+    /** 距理想排的距離（以總排數正規化） */
+    private double rowScore(int row, int ideal) {
+        return (double) Math.abs(row - ideal) / rows;
+    }
+
+    /** 區塊中心距場中央的距離（以半排寬正規化） */
+    private double colScore(int start, int qty) {
+        return (double) Math.abs(2 * start + qty - cols) / cols;
+    }
+
+    private int[] block(int row, int start, int qty) {
+        int[] out = new int[qty];
+        for (int i = 0; i < qty; i++) out[i] = row * cols + start + i;
+        return out;
+    }
+
+    /** 重算 indexes 涉及的排（同一排連續出現只算一次） */
+    private void refreshRows(int[] indexes) {
+        int last = -1;
+        for (int idx : indexes) {
+            if (idx < 0 || idx >= gridSize) continue;
+            int row = idx / cols;
+            if (row != last) refreshRow(row);
+            last = row;
+        }
+    }
+
+    private void refreshRow(int row) {
+        int base = row * cols;
+        int count = 0;
+        int longest = 0;
+        int c = 0;
+        while (c < cols) {
+            int next = nextBlocked(base + c);
+            int end = next < 0 || next >= base + cols ? cols : next - base;
+            if (end > c) {
+                runs[row][count++] = c << 16 | (end - c);
+                longest = Math.max(longest, end - c);
+            }
+            c = end + 1;
+        }
+        runCount[row] = count;
+        longestRun[row] = longest;
+    }
+
+    // =========================
+    //  View
+    // =========================
+
+    /**
+     * 已占用座位的唯讀檢視（直接讀 bitset，不複製；可不持鎖讀取，弱一致）
+     * contains() 為 O(1)；逐一走訪時才會產生座位字串
+     */
+    public Set<String> bookedView() {
+        return new BitView(false);
+    }
+
+    /** 不可選座位（已售出 + 暫留中）的唯讀即時檢視，供選位畫面使用 */
+    public Set<String> unavailableView() {
+        return new BitView(true);
+    }
+
+    /** 從 from 起找下一個已占用座位索引；沒有則回傳 -1 */
+    public int nextBooked(int from) {
+        return nextSet(from, false);
+    }
+
+    /** 從 from 起找下一個不可選（已售出或暫留）座位索引；沒有則回傳 -1 */
+    public int nextUnavailable(int from) {
+        return nextSet(from, true);
+    }
+
+    /** 從 from 起找下一個無法入座的格子（已售出、暫留、走道 / 缺位）；沒有則回傳 -1 */
+    private int nextBlocked(int from) {
+        return nextSet(from, true, true);
+    }
+
+    private int nextSet(int from, boolean includeHeld) {
+        return nextSet(from, includeHeld, false);
+    }
+
+    private int nextSet(int from, boolean includeHeld, boolean includeMissing) {
+        if (from >= gridSize) return -1;
+        int w = from >>> 6;
+        long word = wordAt(w, includeHeld, includeMissing) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int idx = (w << 6) + Long.numberOfTrailingZeros(word);
+                return idx < gridSize ? idx : -1;
+            }
+            if (++w >= words.length) return -1;
+            word = wordAt(w, includeHeld, includeMissing);
+        }
+    }
+
+    private long wordAt(int w, boolean includeHeld, boolean includeMissing) {
+        long word = includeHeld ? words[w] | held[w] : words[w];
+        return includeMissing ? word | missing[w] : word;
+    }
+
+    private boolean isMissing(int index) {
+        return (missing[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** 讀 volatile version：之前完成的寫入對目前執行緒可見 */
+    private int observe() {
+        return version;
+    }
+
+    private final class BitView extends AbstractSet<String> {
+        private final boolean includeHeld;
+
+        BitView(boolean includeHeld) {
+            this.includeHeld = includeHeld;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String)) return false;
+            observe();
+            int idx = indexOf((String) o);
+            return idx >= 0 && (isBooked(idx) || (includeHeld && isHeld(idx)));
+        }
+
+        @Override
+        public int size() {
+            observe();
+            return includeHeld ? bookedCount + heldCount : bookedCount;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            observe();
+            int first = nextSet(0, includeHeld);
+            return new Iterator<String>() {
+                private int next = first;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public String next() {
+                    if (next < 0) throw new NoSuchElementException();
+                    int cur = next;
+                    next = nextSet(cur + 1, includeHeld);
+                    return seatIdOf(cur);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.App.services;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 工作階段儲存（多使用者同時登入）
+ * - token -> UserSession 存在 ConcurrentHashMap，查詢/建立/登出不需加鎖
+ * - 閒置逾時：查詢時即時判斷；另由時間輪（1 秒一格）在到點時清掉，不掃描整張表
+ * - 存取只更新 lastAccess，不重新排程；到點時若仍在使用中就依剩餘時間再排一次
+ * - 另以 userId -> 階段集合建索引，removeUser 只走訪該使用者的階段
+ */
+public class SessionStore implements AutoCloseable {
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final int TOKEN_BYTES = 24;
+
+    private final Map<String, UserSession> sessions = new ConcurrentHashMap<>();
+    /** userId -> 該使用者的階段；集合的增刪都在 compute 內完成，空集合隨即移除 */
+    private final Map<String, Set<UserSession>> byUser = new ConcurrentHashMap<>();
+    private final long idleMillis;
+    private final HashedWheelTimer timer;
+    private final LongSupplier clock;
+    private final SecureRandom rnd = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    public SessionStore() {
+        this(DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public SessionStore(Duration idleTimeout) {
+        this(idleTimeout, new HashedWheelTimer(1000, 512, "session-timer"), System::currentTimeMillis);
+    }
+
+    /** 測試用：自訂計時器與時鐘 */
+    SessionStore(Duration idleTimeout, HashedWheelTimer timer, LongSupplier clock) {
+        if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("idleTimeout must be positive");
+        }
+        this.idleMillis = idleTimeout.toMillis();
+        this.timer = timer;
+        this.clock = clock;
+    }
+
+    /** 為 userId 建立新的工作階段 */
+    public UserSession create(String userId) {
+        long now = clock.getAsLong();
+        UserSession session;
+        do {
+            session = new UserSession(newToken(), userId, now);
+        } while (sessions.putIfAbsent(session.getToken(), session) != null);
+        UserSession created = session;
+        byUser.compute(userId, (k, set) -> {
+            Set<UserSession> s = set != null ? set : ConcurrentHashMap.newKeySet();
+            s.add(created);
+            return s;
+        });
+        scheduleExpiry(session, idleMillis);
+        return session;
+    }
+
+    /** 取得仍有效的工作階段並更新存取時間；不存在或已逾時回傳 null */
+    public UserSession get(String token) {
+        if (token == null) return null;
+        UserSession session = sessions.get(token);
+        return session == null ? null : validate(session);
+    }
+
+    /** 同 get，但以物件檢查（呼叫端已持有 UserSession 時使用） */
+    public UserSession validate(UserSession session) {
+        if (session == null || !session.active) return null;
+        long now = clock.getAsLong();
+        if (session.isIdle(now, idleMillis)) {
+            remove(session);
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    /** 登出；回傳是否真的移除了有效的階段 */
+    public boolean remove(UserSession session) {
+        if (session == null) return false;
+        session.active = false;
+        byUser.computeIfPresent(session.getUserId(), (k, set) -> {
+            set.remove(session);
+            return set.isEmpty() ? null : set;
+        });
+        return sessions.remove(session.getToken(), session);
+    }
+
+    public boolean remove(String token) {
+        UserSession session = token == null ? null : sessions.get(token);
+        return remove(session);
+    }
+
+    /** 移除某使用者的所有階段（例如改密碼後強制重新登入）；回傳移除數。只走訪該使用者的階段 */
+    public int removeUser(String userId, UserSession keep) {
+        Set<UserSession> set = userId == null ? null : byUser.get(userId);
+        if (set == null) return 0;
+        int removed = 0;
+        for (UserSession s : set.toArray(new UserSession[0])) {
+            if (s != keep && remove(s)) removed++;
+        }
+        return removed;
+    }
+
+    /** 目前保存的階段數（含已逾時但計時器尚未清掉者） */
+    public int size() {
+        return sessions.size();
+    }
+
+    /** 索引中仍有階段的使用者數（測試用） */
+    int indexedUsers() {
+        return byUser.size();
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleMillis;
+    }
+
+    private void scheduleExpiry(UserSession session, long delayMillis) {
+        timer.schedule(() -> expire(session), delayMillis);
+    }
+
+    /** 計時器到點：仍在使用中就依剩餘閒置時間重新排程，否則移除 */
+    private void expire(UserSession session) {
+        if (!session.active) return;
+        long now = clock.getAsLong();
+        if (session.isIdle(now, idleMillis)) {
+            remove(session);
+        } else {
+            scheduleExpiry(session, session.getLastAccessMillis() + idleMillis - now);
+        }
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        rnd.nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+
+    @Override
+    public void close() {
+        timer.close();
+    }
+}
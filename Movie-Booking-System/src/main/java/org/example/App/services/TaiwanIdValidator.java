@@ -0,0 +1,78 @@
+package org.example.App.services;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 台灣身分證字號驗證（逐字元檢查，不配置物件）
+ * - 前後空白忽略、英文字母不分大小寫（與舊版 trim + toUpperCase 行為相同）
+ * - 字母對應的兩位數先算好「X*1 + Y*9」放在查表陣列，驗證時只做一次查表 + 9 次乘加
+ * - validateAll：大量名單（團體 / 企業包場）分段平行驗證
+ *
+ * 公式：
+ * letter -> 2 位數 XY
+ * sum = X*1 + Y*9 + d1*8 + d2*7 + ... + d8*1 + d9*1
+ * sum % 10 == 0
+ */
+public final class TaiwanIdValidator {
+
+    /** 官方對照表：A=10, B=11, ...（I/O/W 等有跳號） */
+    private static final String LETTERS = "ABCDEFGHJKLMNPQRSTUVXYWZIO";
+
+    /** 字元 -> 字母部分的加權和（X*1 + Y*9）；非字母為 -1 */
+    private static final byte[] LETTER_SUM = new byte[128];
+
+    /** 少於此數量時單執行緒驗證，平行化的成本不划算 */
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    static {
+        Arrays.fill(LETTER_SUM, (byte) -1);
+        for (int i = 0; i < LETTERS.length(); i++) {
+            int code = i + 10;
+            byte sum = (byte) (code / 10 + code % 10 * 9);
+            char c = LETTERS.charAt(i);
+            LETTER_SUM[c] = sum;
+            LETTER_SUM[Character.toLowerCase(c)] = sum;
+        }
+    }
+
+    private TaiwanIdValidator() {
+    }
+
+    /** 1 碼英文字母 + 9 碼數字且檢查碼正確；null 回傳 false */
+    public static boolean isValid(CharSequence id) {
+        if (id == null) return false;
+        int start = 0;
+        int end = id.length();
+        while (start < end && id.charAt(start) <= ' ') start++;
+        while (end > start && id.charAt(end - 1) <= ' ') end--;
+        if (end - start != 10) return false;
+
+        char first = id.charAt(start);
+        if (first >= 128) return false;
+        int sum = LETTER_SUM[first];
+        if (sum < 0) return false;
+
+        // d1..d8 權重 8..1，d9（檢查碼）權重 1
+        for (int i = 1; i <= 9; i++) {
+            int d = id.charAt(start + i) - '0';
+            if (d < 0 || d > 9) return false;
+            sum += d * (i <= 8 ? 9 - i : 1);
+        }
+        return sum % 10 == 0;
+    }
+
+    /** 逐筆驗證，結果與 ids 同順序；數量大時使用多核心 */
+    public static boolean[] validateAll(List<? extends CharSequence> ids) {
+        if (ids == null) return new boolean[0];
+        CharSequence[] arr = ids.toArray(new CharSequence[0]);
+        boolean[] out = new boolean[arr.length];
+        if (arr.length < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < arr.length; i++) out[i] = isValid(arr[i]);
+        } else {
+            IntStream.range(0, arr.length).parallel().forEach(i -> out[i] = isValid(arr[i]));
+        }
+        return out;
+    }
+}
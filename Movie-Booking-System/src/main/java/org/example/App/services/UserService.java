@@ -1,21 +1,41 @@
 package org.example.App.services;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * 使用者服務（示範版）
- * - 登入/登出
+ * - 登入/登出（多個工作階段同時登入，閒置逾時自動失效）
  * - 註冊
+ * - 密碼以 PBKDF2 + salt 儲存；雜湊/比對在專用且有上限的執行緒池執行（loginAsync / authenticateAsync）
  * - 修改密碼
- * - 忘記密碼（產生重設碼 -> 驗證 -> 設定新密碼）
+ * - 忘記密碼（產生重設碼 -> 驗證 -> 設定新密碼；重設碼有期限，ResetCodeStore）
  * - 身分證字號驗證（台灣身分證簡化驗證）
+ * - Email / 手機索引（正規化後唯一，查詢 O(1)）
+ * - 登入 / 重設密碼依帳號限流（RateLimiter），超過次數在雜湊前就拒絕
+ *
+ * 伺服器 / 售票機：以 login 取得 UserSession，之後把 session 傳給各方法。
+ * 桌面版沿用不帶 session 的方法，作用在 authenticate 建立的「目前階段」上。
+ * 執行緒安全：帳號與索引為 ConcurrentHashMap，註冊 / 修改聯絡資料加鎖以維持唯一性。
  */
-public class UserService {
+public class UserService implements AutoCloseable {
 
     public static class UserAccount {
         public String userId;
-        public String password;
+        public String password; // PasswordHasher 格式；舊資料可能是明文，登入成功時改存雜湊
         public String email;
         public String phone;
         public boolean isAdmin;
@@ -34,56 +54,311 @@ public class UserService {
         }
     }
 
-    private final Map<String, UserAccount> users = new HashMap<>();
-    private String currentUserId;
+    private final Map<String, UserAccount> users = new ConcurrentHashMap<>();
 
-    /** 忘記密碼：userId/email -> resetCode */
-    private final Map<String, String> resetCodes = new HashMap<>();
+    /** 次要索引：正規化後的 email / 手機 -> 帳號；註冊與修改聯絡資料時維護 */
+    private final Map<String, UserAccount> usersByEmail = new ConcurrentHashMap<>();
+    private final Map<String, UserAccount> usersByPhone = new ConcurrentHashMap<>();
+
+    /** 所有登入中的工作階段 */
+    private final SessionStore sessions;
+
+    /** 桌面版（單一視窗）的目前階段 */
+    private final AtomicReference<UserSession> currentSession = new AtomicReference<>();
+
+    /**
+     * 忘記密碼：userId -> resetCode
+     * -Dreset.ttlMinutes：有效分鐘數（預設 15）、-Dreset.maxCodes：同時保存上限（預設 100000）
+     */
+    private final ResetCodeStore resetCodes = new ResetCodeStore(
+            Duration.ofMinutes(Long.getLong("reset.ttlMinutes", ResetCodeStore.DEFAULT_TTL.toMinutes())),
+            Integer.getInteger("reset.maxCodes", ResetCodeStore.DEFAULT_MAX_ENTRIES));
     private final SecureRandom rnd = new SecureRandom();
 
+    /** 每個限流器最多追蹤的帳號數 */
+    private static final int LIMITER_KEYS = 100_000;
+
+    /**
+     * 限流（以 userId 為 key）
+     * -Dlogin.attempts：每分鐘登入嘗試上限（預設 10，成功後歸零）
+     * -Dreset.requests：每 15 分鐘索取重設碼上限（預設 3）
+     * -Dreset.attempts：每 15 分鐘輸入重設碼上限（預設 5），6 碼重設碼無法暴力嘗試
+     */
+    private final RateLimiter loginLimiter =
+            new RateLimiter(Integer.getInteger("login.attempts", 10), Duration.ofMinutes(1), LIMITER_KEYS);
+    private final RateLimiter resetRequestLimiter =
+            new RateLimiter(Integer.getInteger("reset.requests", 3), Duration.ofMinutes(15), LIMITER_KEYS);
+    private final RateLimiter resetAttemptLimiter =
+            new RateLimiter(Integer.getInteger("reset.attempts", 5), Duration.ofMinutes(15), LIMITER_KEYS);
+
+    /**
+     * 密碼雜湊與專用執行緒池
+     * -Dpassword.threads（預設 CPU 數的一半）、-Dpassword.queue（等待上限，預設 1024）；
+     * 滿了直接拒絕，登入尖峰不會把 CPU 全吃掉而拖慢訂位
+     */
+    private final PasswordHasher hasher;
+    private final ExecutorService hashPool;
+
+    /**
+     * 種子帳號的雜湊與比對用假雜湊在雜湊池計算，建構子不阻塞（MainApp 在 FX 執行緒建立本服務）
+     * 完成前送出的登入 / 改密碼會排在其後
+     */
+    private final CompletableFuture<Void> seeded;
+    /** 不存在的帳號也比對一次，回應時間與既有帳號相同，無法藉此探測帳號 */
+    private volatile String dummyHash;
+
     public UserService() {
-        // 初始化一個管理員帳號
-        users.put("admin", new UserAccount("admin", "admin123", "admin@example.com", "0912345678", true));
+        this(new SessionStore(), new PasswordHasher());
+    }
 
-        // 初始化一個一般帳號
-        users.put("user", new UserAccount("user", "1234", "user@example.com", "0987654321", false));
+    /** sessionIdleTimeout：工作階段閒置多久後失效 */
+    public UserService(Duration sessionIdleTimeout) {
+        this(new SessionStore(sessionIdleTimeout), new PasswordHasher());
     }
 
-    public boolean authenticate(String userId, String password) {
-        if (userId == null || password == null) return false;
+    /** hasher：可調整工作量（PBKDF2 迭代次數） */
+    public UserService(Duration sessionIdleTimeout, PasswordHasher hasher) {
+        this(new SessionStore(sessionIdleTimeout), hasher);
+    }
+
+    UserService(SessionStore sessions, PasswordHasher hasher) {
+        this(sessions, hasher,
+                Integer.getInteger("password.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                Integer.getInteger("password.queue", 1024));
+    }
+
+    UserService(SessionStore sessions, PasswordHasher hasher, int hashThreads, int hashQueue) {
+        this.sessions = sessions;
+        this.hasher = hasher;
+        this.hashPool = newHashPool(hashThreads, hashQueue);
+
+        // 初始化一個管理員帳號與一個一般帳號（密碼雜湊稍後在雜湊池補上）
+        UserAccount admin = new UserAccount("admin", null, "admin@example.com", "0912345678", true);
+        UserAccount user = new UserAccount("user", null, "user@example.com", "0987654321", false);
+        addAccount(admin);
+        addAccount(user);
+        byte[] dummy = new byte[16];
+        rnd.nextBytes(dummy);
+        seeded = CompletableFuture.runAsync(() -> {
+            seedPassword(admin, "admin123");
+            seedPassword(user, "1234");
+            dummyHash = hasher.hash(Base64.getEncoder().encodeToString(dummy));
+        }, hashPool);
+    }
+
+    /** 種子帳號的密碼；期間已被重設過就不覆蓋 */
+    private void seedPassword(UserAccount account, String password) {
+        String hash = hasher.hash(password);
+        synchronized (account) {
+            if (account.password == null) account.password = hash;
+        }
+    }
+
+    /** 種子帳號雜湊完成（測試用） */
+    CompletableFuture<Void> seeded() {
+        return seeded;
+    }
+
+    @Override
+    public void close() {
+        sessions.close();
+        resetCodes.close();
+        hashPool.shutdownNow();
+    }
+
+    private static ExecutorService newHashPool(int threads, int queueCapacity) {
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /** 在雜湊執行緒池執行；池滿時回傳以 RejectedExecutionException 結束的 future */
+    private <T> CompletableFuture<T> onHashPool(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, hashPool);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** future 是否因雜湊池已滿而失敗（UI 用來顯示「系統忙碌」而非帳密錯誤） */
+    public static boolean isBusy(Throwable error) {
+        Throwable e = error;
+        while (e instanceof CompletionException && e.getCause() != null) e = e.getCause();
+        return e instanceof RejectedExecutionException;
+    }
+
+    /** 同步等待；池滿或執行失敗回傳 null */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    public PasswordHasher getPasswordHasher() {
+        return hasher;
+    }
+
+    // =========================
+    // Session
+    // =========================
+
+    /** 驗證帳密並建立新的工作階段；失敗（或雜湊池已滿）回傳 null。會阻塞到比對完成 */
+    public UserSession login(String userId, String password) {
+        return await(loginAsync(userId, password));
+    }
+
+    /**
+     * 非阻塞登入：比對在雜湊執行緒池進行
+     * 帳密錯誤或嘗試過於頻繁時 future 結果為 null；池滿時以 RejectedExecutionException 結束
+     * 不存在的帳號以假雜湊比對一次，花費與既有帳號相同。
+     * 限流只追蹤既有帳號（避免大量隨機帳號塞滿限流表）：被限流時立即回應，
+     * 所以同一帳號在時間窗內錯誤超過上限後可由回應速度得知帳號存在，這是為了不讓攻擊者耗用雜湊池的取捨。
+     */
+    public CompletableFuture<UserSession> loginAsync(String userId, String password) {
+        if (userId == null || password == null) return CompletableFuture.completedFuture(null);
         UserAccount account = users.get(userId);
-        if (account != null && account.password.equals(password)) {
-            currentUserId = userId;
-            return true;
+        if (account == null) {
+            return seeded.thenCompose(v -> this.<UserSession>onHashPool(() -> {
+                hasher.verify(password, dummyHash);
+                return null;
+            }));
         }
-        return false;
+        if (!loginLimiter.tryAcquire(userId)) return CompletableFuture.completedFuture(null);
+        return seeded.thenCompose(v -> {
+            String stored = account.password;
+            return onHashPool(() -> {
+                if (!hasher.verify(password, stored)) return null;
+                if (hasher.needsRehash(stored)) upgradeHash(account, stored, password);
+                loginLimiter.reset(userId);
+                return sessions.create(userId);
+            });
+        });
     }
 
-    public boolean registerUser(String userId, String password, String email, String phone) {
-        if (userId == null || userId.isBlank()) return false;
-        if (password == null || password.length() < 4) return false;
-        if (users.containsKey(userId)) return false;
+    /** 明文或舊工作量的密碼在登入成功時改存新雜湊（期間密碼被改過就不動） */
+    private void upgradeHash(UserAccount account, String stored, String password) {
+        String upgraded = hasher.hash(password);
+        synchronized (account) {
+            if (Objects.equals(account.password, stored)) account.password = upgraded;
+        }
+    }
 
-        users.put(userId, new UserAccount(userId, password, email, phone, false));
-        return true;
+    /** 以 token 取回工作階段（會更新存取時間）；無效或逾時回傳 null */
+    public UserSession getSession(String token) {
+        return sessions.get(token);
+    }
+
+    public void logout(UserSession session) {
+        sessions.remove(session);
+    }
+
+    public boolean isLoggedIn(UserSession session) {
+        return sessions.validate(session) != null;
+    }
+
+    public String getCurrentUserId(UserSession session) {
+        UserSession s = sessions.validate(session);
+        return s == null ? null : s.getUserId();
+    }
+
+    public boolean isCurrentUserAdmin(UserSession session) {
+        UserAccount account = accountOf(session);
+        return account != null && account.isAdmin;
+    }
+
+    public SessionStore getSessions() {
+        return sessions;
+    }
+
+    /** 有效階段對應的帳號；未登入、逾時或帳號已不存在回傳 null */
+    private UserAccount accountOf(UserSession session) {
+        UserSession s = sessions.validate(session);
+        return s == null ? null : users.get(s.getUserId());
+    }
+
+    // =========================
+    // Desktop (current session)
+    // =========================
+
+    /** 桌面版登入：成功時取代目前階段 */
+    public boolean authenticate(String userId, String password) {
+        return Boolean.TRUE.equals(await(authenticateAsync(userId, password)));
+    }
+
+    /** 非阻塞版 authenticate：UI 可在 future 完成後再切換畫面 */
+    public CompletableFuture<Boolean> authenticateAsync(String userId, String password) {
+        return loginAsync(userId, password).thenApply(session -> {
+            if (session == null) return false;
+            sessions.remove(currentSession.getAndSet(session));
+            return true;
+        });
     }
 
     public void logout() {
-        currentUserId = null;
+        sessions.remove(currentSession.getAndSet(null));
     }
 
     public boolean isLoggedIn() {
-        return currentUserId != null;
+        return isLoggedIn(currentSession.get());
     }
 
     public String getCurrentUserId() {
-        return currentUserId;
+        return getCurrentUserId(currentSession.get());
     }
 
     public boolean isCurrentUserAdmin() {
-        if (!isLoggedIn()) return false;
-        UserAccount account = users.get(currentUserId);
-        return account != null && account.isAdmin;
+        return isCurrentUserAdmin(currentSession.get());
+    }
+
+    /** 目前階段（未登入為 null） */
+    public UserSession getCurrentSession() {
+        UserSession s = currentSession.get();
+        return sessions.validate(s);
+    }
+
+    // =========================
+    // Register
+    // =========================
+
+    public boolean registerUser(String userId, String password, String email, String phone) {
+        return Boolean.TRUE.equals(await(registerUserAsync(userId, password, email, phone)));
+    }
+
+    /** 非阻塞註冊：雜湊在雜湊執行緒池進行；池滿時以 RejectedExecutionException 結束 */
+    public CompletableFuture<Boolean> registerUserAsync(String userId, String password, String email, String phone) {
+        if (userId == null || userId.isBlank()) return CompletableFuture.completedFuture(false);
+        if (password == null || password.length() < 4) return CompletableFuture.completedFuture(false);
+        if (!isRegistrable(userId, email, phone)) return CompletableFuture.completedFuture(false);
+
+        // 雜湊在鎖外做，寫入前再檢查一次唯一性
+        return onHashPool(() -> hasher.hash(password)).thenApply(hash -> {
+            synchronized (this) {
+                if (!isRegistrable(userId, email, phone)) return false;
+                addAccount(new UserAccount(userId, hash, email, phone, false));
+            }
+            return true;
+        });
+    }
+
+    private boolean isRegistrable(String userId, String email, String phone) {
+        return !users.containsKey(userId)
+                && !isTaken(usersByEmail, normalizeEmail(email), null)
+                && !isTaken(usersByPhone, normalizePhone(phone), null);
+    }
+
+    private void addAccount(UserAccount account) {
+        users.put(account.userId, account);
+        index(usersByEmail, normalizeEmail(account.email), account);
+        index(usersByPhone, normalizePhone(account.phone), account);
     }
 
     public Map<String, UserAccount> getAllUsers() {
@@ -96,49 +371,85 @@ public class UserService {
     // =========================
 
     public boolean changePassword(String oldPwd, String newPwd) {
-        if (!isLoggedIn()) return false;
-        UserAccount account = users.get(currentUserId);
-        if (account == null) return false;
-        if (!Objects.equals(account.password, oldPwd)) return false;
-        if (!isValidPassword(newPwd)) return false;
-        account.password = newPwd;
-        return true;
+        return changePassword(currentSession.get(), oldPwd, newPwd);
+    }
+
+    /** 修改密碼後，同帳號的其他階段一律登出 */
+    public boolean changePassword(UserSession session, String oldPwd, String newPwd) {
+        return Boolean.TRUE.equals(await(changePasswordAsync(session, oldPwd, newPwd)));
+    }
+
+    public CompletableFuture<Boolean> changePasswordAsync(String oldPwd, String newPwd) {
+        return changePasswordAsync(currentSession.get(), oldPwd, newPwd);
+    }
+
+    /** 非阻塞版 changePassword；池滿時以 RejectedExecutionException 結束 */
+    public CompletableFuture<Boolean> changePasswordAsync(UserSession session, String oldPwd, String newPwd) {
+        UserAccount account = accountOf(session);
+        if (account == null) return CompletableFuture.completedFuture(false);
+        if (!isValidPassword(newPwd)) return CompletableFuture.completedFuture(false);
+        return seeded.thenCompose(v -> {
+            String stored = account.password;
+            return onHashPool(() -> hasher.verify(oldPwd, stored) ? hasher.hash(newPwd) : null).thenApply(hash -> {
+                if (hash == null) return false;
+                synchronized (account) {
+                    if (!Objects.equals(account.password, stored)) return false; // 比對期間已被改過
+                    account.password = hash;
+                }
+                sessions.removeUser(account.userId, session);
+                return true;
+            });
+        });
     }
 
     /**
-     * 忘記密碼：輸入 userId 或 email 其中之一，回傳 6 碼重設碼（示範：直接回傳給 UI）
+     * 忘記密碼：輸入 userId、email 或手機其中之一，回傳 6 碼重設碼（示範：直接回傳給 UI）
+     * 同一帳號索取過於頻繁回傳 null
      */
     public String requestPasswordReset(String userIdOrEmail) {
         UserAccount account = findByUserIdOrEmail(userIdOrEmail);
         if (account == null) return null;
+        if (!resetRequestLimiter.tryAcquire(account.userId)) return null;
         String code = String.format("%06d", rnd.nextInt(1_000_000));
         resetCodes.put(account.userId, code);
         return code;
     }
 
-    /** 忘記密碼：驗證重設碼並設定新密碼 */
+    /** 忘記密碼：驗證重設碼並設定新密碼；同一帳號嘗試過於頻繁一律回傳 false */
     public boolean confirmPasswordReset(String userIdOrEmail, String resetCode, String newPwd) {
+        return Boolean.TRUE.equals(await(confirmPasswordResetAsync(userIdOrEmail, resetCode, newPwd)));
+    }
+
+    /**
+     * 非阻塞版 confirmPasswordReset；池滿時以 RejectedExecutionException 結束
+     * 重設碼在雜湊前就原子地取走（同一碼只能用一次），池滿被拒時需重新索取
+     */
+    public CompletableFuture<Boolean> confirmPasswordResetAsync(String userIdOrEmail, String resetCode, String newPwd) {
         UserAccount account = findByUserIdOrEmail(userIdOrEmail);
-        if (account == null) return false;
-        if (resetCode == null) return false;
-        String expect = resetCodes.get(account.userId);
-        if (!resetCode.equals(expect)) return false;
-        if (!isValidPassword(newPwd)) return false;
-        account.password = newPwd;
-        resetCodes.remove(account.userId);
-        return true;
+        if (account == null || resetCode == null) return CompletableFuture.completedFuture(false);
+        if (!resetAttemptLimiter.tryAcquire(account.userId)) return CompletableFuture.completedFuture(false);
+        if (!isValidPassword(newPwd)) return CompletableFuture.completedFuture(false);
+        if (!resetCodes.consume(account.userId, resetCode)) return CompletableFuture.completedFuture(false);
+        return onHashPool(() -> hasher.hash(newPwd)).thenApply(hash -> {
+            synchronized (account) {
+                account.password = hash;
+            }
+            resetAttemptLimiter.reset(account.userId);
+            loginLimiter.reset(account.userId);
+            sessions.removeUser(account.userId, null);
+            return true;
+        });
     }
 
+    /** 依序以 userId、email、手機查詢（皆為索引查詢） */
     private UserAccount findByUserIdOrEmail(String userIdOrEmail) {
         if (userIdOrEmail == null) return null;
         String s = userIdOrEmail.trim();
         if (s.isEmpty()) return null;
         UserAccount byId = users.get(s);
         if (byId != null) return byId;
-        for (UserAccount u : users.values()) {
-            if (u.email != null && u.email.equalsIgnoreCase(s)) return u;
-        }
-        return null;
+        UserAccount byEmail = findByEmail(s);
+        return byEmail != null ? byEmail : findByPhone(s);
     }
 
     private boolean isValidPassword(String pwd) {
@@ -150,8 +461,11 @@ public class UserService {
     // =========================
 
     public boolean setAreaForCurrentUser(String area) {
-        if (!isLoggedIn()) return false;
-        UserAccount account = users.get(currentUserId);
+        return setAreaForCurrentUser(currentSession.get(), area);
+    }
+
+    public boolean setAreaForCurrentUser(UserSession session, String area) {
+        UserAccount account = accountOf(session);
         if (account == null) return false;
         if (area == null || area.isBlank()) return false;
         account.area = area.trim();
@@ -159,27 +473,124 @@ public class UserService {
     }
 
     public String getAreaOfCurrentUser() {
-        if (!isLoggedIn()) return "台北";
-        UserAccount account = users.get(currentUserId);
+        return getAreaOfCurrentUser(currentSession.get());
+    }
+
+    public String getAreaOfCurrentUser(UserSession session) {
+        UserAccount account = accountOf(session);
         return account != null && account.area != null ? account.area : "台北";
     }
 
     public boolean setNationalIdForCurrentUser(String nationalId) {
-        if (!isLoggedIn()) return false;
+        return setNationalIdForCurrentUser(currentSession.get(), nationalId);
+    }
+
+    public boolean setNationalIdForCurrentUser(UserSession session, String nationalId) {
         if (nationalId == null || nationalId.isBlank()) return false;
         if (!validateTaiwanId(nationalId)) return false;
-        UserAccount account = users.get(currentUserId);
+        UserAccount account = accountOf(session);
         if (account == null) return false;
         account.nationalId = nationalId.toUpperCase();
         return true;
     }
 
     public String getNationalIdOfCurrentUser() {
-        if (!isLoggedIn()) return null;
-        UserAccount account = users.get(currentUserId);
+        return getNationalIdOfCurrentUser(currentSession.get());
+    }
+
+    public String getNationalIdOfCurrentUser(UserSession session) {
+        UserAccount account = accountOf(session);
         return account == null ? null : account.nationalId;
     }
 
+    /**
+     * 修改目前使用者的 email / 手機（null 代表不變更，空字串代表清除）
+     * 已被其他帳號使用時回傳 false，且兩者都不變更
+     */
+    public boolean updateContactForCurrentUser(String email, String phone) {
+        return updateContactForCurrentUser(currentSession.get(), email, phone);
+    }
+
+    public synchronized boolean updateContactForCurrentUser(UserSession session, String email, String phone) {
+        UserAccount account = accountOf(session);
+        if (account == null) return false;
+        String newEmail = email == null ? account.email : email.trim();
+        String newPhone = phone == null ? account.phone : phone.trim();
+        if (isTaken(usersByEmail, normalizeEmail(newEmail), account)) return false;
+        if (isTaken(usersByPhone, normalizePhone(newPhone), account)) return false;
+
+        unindex(usersByEmail, normalizeEmail(account.email), account);
+        unindex(usersByPhone, normalizePhone(account.phone), account);
+        account.email = newEmail;
+        account.phone = newPhone;
+        index(usersByEmail, normalizeEmail(newEmail), account);
+        index(usersByPhone, normalizePhone(newPhone), account);
+        return true;
+    }
+
+    // =========================
+    // Email / phone index
+    // =========================
+
+    /** email 查詢（不分大小寫、忽略前後空白） */
+    public UserAccount findByEmail(String email) {
+        String key = normalizeEmail(email);
+        return key == null ? null : live(usersByEmail.get(key));
+    }
+
+    /** 手機查詢（忽略空白與分隔符號，+886 視同 0 開頭） */
+    public UserAccount findByPhone(String phone) {
+        String key = normalizePhone(phone);
+        return key == null ? null : live(usersByPhone.get(key));
+    }
+
+    public boolean isEmailTaken(String email) {
+        return findByEmail(email) != null;
+    }
+
+    public boolean isPhoneTaken(String phone) {
+        return findByPhone(phone) != null;
+    }
+
+    static String normalizeEmail(String email) {
+        if (email == null) return null;
+        String s = email.trim();
+        return s.isEmpty() ? null : s.toLowerCase(Locale.ROOT);
+    }
+
+    static String normalizePhone(String phone) {
+        if (phone == null) return null;
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') digits.append(c);
+        }
+        if (digits.length() == 0) return null;
+        if (phone.trim().startsWith("+886") && digits.length() > 3) {
+            return "0" + digits.substring(3);
+        }
+        return digits.toString();
+    }
+
+    /** getAllUsers() 回傳的是原始 map，帳號可能在外部被移除；索引指向已移除的帳號時視為不存在 */
+    private UserAccount live(UserAccount account) {
+        return account != null && users.get(account.userId) == account ? account : null;
+    }
+
+    private boolean isTaken(Map<String, UserAccount> index, String key, UserAccount self) {
+        if (key == null) return false;
+        UserAccount owner = live(index.get(key));
+        return owner != null && owner != self;
+    }
+
+    private static void index(Map<String, UserAccount> index, String key, UserAccount account) {
+        if (key != null) index.put(key, account);
+    }
+
+    private static void unindex(Map<String, UserAccount> index, String key, UserAccount account) {
+        if (key != null) index.remove(key, account);
+    }
+
     // =========================
     // Taiwan ID validation
     // =========================
@@ -188,47 +599,14 @@ public class UserService {
      * 台灣身分證字號驗證（一般規則）：
      * - 1 碼英文字母 + 9 碼數字
      * - 第 2 碼為 1/2（男/女），此處不限制也可
-     *
-     * 公式：
-     * letter -> 2 位數 XY
-     * sum = X*1 + Y*9 + d1*8 + d2*7 + ... + d8*1 + d9*1
-     * sum % 10 == 0
+     * - 檢查碼公式與查表見 TaiwanIdValidator（逐字元檢查，不配置物件，輸入欄位每次按鍵都可呼叫）
      */
     public boolean validateTaiwanId(String id) {
-        if (id == null) return false;
-        String s = id.trim().toUpperCase();
-        if (!s.matches("^[A-Z][0-9]{9}$")) return false;
-
-        int[] map = letterToCode(s.charAt(0));
-        if (map == null) return false;
-        int x = map[0];
-        int y = map[1];
-
-        int sum = 0;
-        sum += x * 1;
-        sum += y * 9;
-
-        // digits 1..9
-        for (int i = 1; i <= 9; i++) {
-            int d = s.charAt(i) - '0';
-            int w;
-            if (i <= 8) {
-                w = 9 - i; // i=1 ->8, i=8 ->1
-            } else {
-                w = 1; // i=9 check digit
-            }
-            sum += d * w;
-        }
-
-        return sum % 10 == 0;
+        return TaiwanIdValidator.isValid(id);
     }
 
-    private int[] letterToCode(char c) {
-        // A=10, B=11, ... Z=35（但 I/O/W 等有跳號），此處用官方對照表
-        final String letters = "ABCDEFGHJKLMNPQRSTUVXYWZIO";
-        int idx = letters.indexOf(c);
-        if (idx < 0) return null;
-        int code = idx + 10;
-        return new int[]{code / 10, code % 10};
+    /** 批次驗證（團體 / 企業訂票名單），結果與 ids 同順序 */
+    public boolean[] validateTaiwanIds(List<String> ids) {
+        return TaiwanIdValidator.validateAll(ids);
     }
 }
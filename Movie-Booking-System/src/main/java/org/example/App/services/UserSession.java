@@ -0,0 +1,70 @@
+package org.example.App.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 登入工作階段
+ * - token 為隨機字串，交給前端（售票機 / 網頁）保存
+ * - 每次使用都會更新最後存取時間；閒置超過時限即失效
+ * - attributes 放這個階段自己的使用者情境（例如選到一半的場次），不與其他階段共用
+ */
+public class UserSession {
+
+    private final String token;
+    private final String userId;
+    private final long createdAtMillis;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    /** 最後存取時間（epoch 毫秒）；只前進，計時器到點時再檢查 */
+    private volatile long lastAccessMillis;
+
+    /** 登出或逾時後為 false */
+    volatile boolean active = true;
+
+    UserSession(String token, String userId, long createdAtMillis) {
+        this.token = token;
+        this.userId = userId;
+        this.createdAtMillis = createdAtMillis;
+        this.lastAccessMillis = createdAtMillis;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public Object getAttribute(String name) {
+        return name == null ? null : attributes.get(name);
+    }
+
+    /** value 為 null 時移除 */
+    public void setAttribute(String name, Object value) {
+        if (name == null) return;
+        if (value == null) attributes.remove(name);
+        else attributes.put(name, value);
+    }
+
+    void touch(long nowMillis) {
+        if (nowMillis > lastAccessMillis) lastAccessMillis = nowMillis;
+    }
+
+    boolean isIdle(long nowMillis, long idleMillis) {
+        return nowMillis - lastAccessMillis >= idleMillis;
+    }
+}
@@ -0,0 +1,268 @@
+package org.example.App.server;
+
+import org.example.App.services.BookingService;
+import org.example.App.services.PasswordHasher;
+import org.example.App.services.PriceService;
+import org.example.App.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiServerTest {
+
+  private static final String MOVIE = "阿凡達：火與燼";
+  private static final String SHOW =
+      "movie=" + enc(MOVIE) + "&cinema=" + enc("威秀電影城") + "&date=2030-01-01&time=12:00";
+
+  private BookingService bookingService;
+  private PriceService priceService;
+  private UserService userService;
+  private ApiServer server;
+  private HttpClient client;
+  private String base;
+  private String token;
+
+  @BeforeEach
+  void setup() throws Exception {
+    bookingService = new BookingService();
+    priceService = new PriceService();
+    userService = new UserService(Duration.ofMinutes(30), new PasswordHasher(1_000));
+    server = new ApiServer(bookingService, priceService, userService, "127.0.0.1", 0);
+    server.start();
+    client = HttpClient.newHttpClient();
+    base = "http://127.0.0.1:" + server.getPort() + "/api";
+    token = login("user", "1234");
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+    userService.close();
+    bookingService.close();
+  }
+
+  // =========================
+  // Queries
+  // =========================
+
+  @Test
+  void movies_shouldListAllMovies() throws Exception {
+    HttpResponse<String> r = get("/movies");
+    assertEquals(200, r.statusCode());
+    assertTrue(r.body().contains(MOVIE));
+    assertTrue(r.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+  }
+
+  @Test
+  void prices_shouldReturnSortedQuotes() throws Exception {
+    HttpResponse<String> r = get("/prices?format=2D&ticketType=ADULT");
+    assertEquals(200, r.statusCode());
+    assertTrue(r.body().startsWith("[{\"cinema\":\"威秀電影城\""));
+  }
+
+  @Test
+  void cart_shouldReturnItemizedQuote() throws Exception {
+    HttpResponse<String> r = post("/cart", "cinema=" + enc("威秀電影城") + "&format=2D"
+        + "&tickets=ADULT:2,CHILD:1:PREMIUM&meals=" + enc("雙人分享套餐:1"));
+    assertEquals(200, r.statusCode());
+    assertTrue(r.body().contains("\"ticketSubtotal\":930"));
+    assertTrue(r.body().contains("\"total\":1210"));
+
+    assertEquals(400, post("/cart", "cinema=" + enc("威秀電影城") + "&format=2D&tickets=ADULT").statusCode());
+    assertEquals(404, post("/cart", "cinema=" + enc("威秀電影城") + "&format=2D&tickets=ADULT:1:VIP").statusCode());
+  }
+
+  @Test
+  void cart_quantityAboveHallCapacity_shouldReturn400() throws Exception {
+    int capacity = BookingService.SEAT_CAPACITY;
+    String cart = "cinema=" + enc("威秀電影城") + "&format=2D&tickets=";
+    assertEquals(200, post("/cart", cart + "ADULT:" + capacity).statusCode());
+    assertEquals(400, post("/cart", cart + "ADULT:" + (capacity + 1)).statusCode());
+    assertEquals(400, post("/cart", cart + "ADULT:" + capacity + ",CHILD:1").statusCode());
+    assertEquals(400, post("/cart", cart + "ADULT:2147483647").statusCode());
+    assertEquals(400, post("/cart", cart + "ADULT:1&meals=" + enc("雙人分享套餐:1000000")).statusCode());
+  }
+
+  @Test
+  void unknownRoute_shouldReturn404() throws Exception {
+    assertEquals(404, get("/nothing").statusCode());
+    assertEquals(404, get("/bookings/NOT_EXIST", token).statusCode());
+  }
+
+  @Test
+  void missingParam_shouldReturn400() throws Exception {
+    HttpResponse<String> r = get("/seats?movie=" + enc(MOVIE));
+    assertEquals(400, r.statusCode());
+    assertTrue(r.body().contains("cinema"));
+  }
+
+  // =========================
+  // Booking lifecycle
+  // =========================
+
+  @Test
+  void bookPayRefund_shouldUpdateSeatsAndStatus() throws Exception {
+    HttpResponse<String> created = post("/bookings", SHOW + "&seats=A1,A2", token);
+    assertEquals(201, created.statusCode());
+    String id = field(created.body(), "bookingId");
+    assertEquals("user", field(created.body(), "userId"));
+
+    HttpResponse<String> seats = get("/seats?" + SHOW);
+    assertTrue(seats.body().contains("\"remaining\":" + (BookingService.SEAT_CAPACITY - 2)));
+    assertTrue(seats.body().contains("\"capacity\":" + BookingService.SEAT_CAPACITY));
+    assertTrue(seats.body().contains("\"layout\":[\"SSSSSSSSSSSS\""));
+    assertTrue(seats.body().contains("\"A1\""));
+
+    HttpResponse<String> paid = post("/bookings/" + id + "/pay", "", token);
+    assertEquals(200, paid.statusCode());
+    assertEquals("已付款", field(paid.body(), "status"));
+    assertNotNull(field(paid.body(), "ticketCode"));
+
+    assertEquals("已退票", field(post("/bookings/" + id + "/refund", "", token).body(), "status"));
+    assertEquals(409, post("/bookings/" + id + "/pay", "", token).statusCode());
+    assertTrue(get("/seats?" + SHOW).body().contains("\"remaining\":" + BookingService.SEAT_CAPACITY));
+  }
+
+  @Test
+  void bestSeats_shouldSuggestCentralBlock() throws Exception {
+    HttpResponse<String> r = get("/seats/best?" + SHOW + "&qty=2");
+    assertEquals(200, r.statusCode());
+    assertTrue(r.body().contains("[\"E6\",\"E7\"]"), r.body());
+
+    assertEquals(409, get("/seats/best?" + SHOW + "&qty=" + (BookingService.SEAT_COLS + 1)).statusCode());
+    assertEquals(400, get("/seats/best?" + SHOW + "&qty=0").statusCode());
+  }
+
+  @Test
+  void bestSeats_split_shouldReturnBlocks() throws Exception {
+    HttpResponse<String> r = get("/seats/best?" + SHOW + "&qty=3&split=true");
+    assertEquals(200, r.statusCode());
+    assertTrue(r.body().contains("\"blocks\":[[\"E5\",\"E6\",\"E7\"]]"), r.body());
+  }
+
+  @Test
+  void createBooking_takenSeat_shouldReturn409() throws Exception {
+    assertEquals(201, post("/bookings", SHOW + "&seats=B1", token).statusCode());
+    assertEquals(409, post("/bookings", SHOW + "&seats=B1", login("admin", "admin123")).statusCode());
+  }
+
+  @Test
+  void createBooking_shouldPriceOnServerAndIgnoreClientTotal() throws Exception {
+    HttpResponse<String> r = post("/bookings", SHOW + "&seats=D1,D2&totalPrice=0&userId=admin", token);
+    assertEquals(201, r.statusCode());
+    int expected = 2 * priceService.getPrice("威秀電影城", "2D", "ADULT");
+    assertTrue(r.body().contains("\"totalPrice\":" + expected), r.body());
+    assertEquals("user", field(r.body(), "userId"));
+
+    assertEquals(400, post("/bookings", SHOW + "&seats=D3&ticketType=STUDENT", token).statusCode());
+    assertEquals(404, post("/bookings", SHOW + "&seats=D3&seatCategory=VIP", token).statusCode());
+    assertTrue(get("/seats?" + SHOW).body().contains("\"remaining\":" + (BookingService.SEAT_CAPACITY - 2)));
+  }
+
+  // =========================
+  // Authentication
+  // =========================
+
+  @Test
+  void bookings_withoutValidToken_shouldReturn401() throws Exception {
+    assertEquals(401, get("/bookings").statusCode());
+    assertEquals(401, post("/bookings", SHOW + "&seats=A1", "bogus").statusCode());
+    assertEquals(401, post("/login", "userId=user&password=wrong").statusCode());
+
+    assertEquals(200, post("/logout", "", token).statusCode());
+    assertEquals(401, get("/bookings", token).statusCode());
+  }
+
+  @Test
+  void otherUsersBooking_shouldReturn403ExceptForAdmin() throws Exception {
+    String id = field(post("/bookings", SHOW + "&seats=A5", token).body(), "bookingId");
+    assertTrue(userService.registerUser("mallory", "pass1", "m@example.com", "0911111111"));
+    String other = login("mallory", "pass1");
+
+    assertEquals(403, get("/bookings/" + id, other).statusCode());
+    assertEquals(403, post("/bookings/" + id + "/pay", "", other).statusCode());
+    assertEquals(403, post("/bookings/" + id + "/refund", "", other).statusCode());
+    assertEquals(403, get("/bookings?userId=user", other).statusCode());
+    assertEquals("[]", get("/bookings", other).body());
+
+    String admin = login("admin", "admin123");
+    assertEquals(200, get("/bookings/" + id, admin).statusCode());
+    assertTrue(get("/bookings?userId=user", admin).body().contains(id));
+    assertEquals("已確認", field(get("/bookings/" + id, token).body(), "status"));
+  }
+
+  @Test
+  void concurrentClients_shouldShareOneInventory() throws Exception {
+    List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      HttpRequest req = HttpRequest.newBuilder(URI.create(base + "/bookings"))
+          .header("Content-Type", "application/x-www-form-urlencoded")
+          .header("Authorization", "Bearer " + token)
+          .POST(HttpRequest.BodyPublishers.ofString(SHOW + "&seats=C5"))
+          .build();
+      futures.add(client.sendAsync(req, HttpResponse.BodyHandlers.ofString()));
+    }
+    int created = 0;
+    for (CompletableFuture<HttpResponse<String>> f : futures) {
+      if (f.get().statusCode() == 201) created++;
+    }
+    assertEquals(1, created);
+    assertEquals(1, bookingService.getAllBookings().size());
+  }
+
+  // =========================
+  // Helpers
+  // =========================
+
+  private String login(String userId, String password) throws Exception {
+    HttpResponse<String> r = post("/login", "userId=" + userId + "&password=" + password);
+    assertEquals(200, r.statusCode(), r.body());
+    return field(r.body(), "token");
+  }
+
+  private HttpResponse<String> get(String path) throws Exception {
+    return get(path, null);
+  }
+
+  private HttpResponse<String> get(String path, String bearer) throws Exception {
+    HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(base + path)).GET();
+    if (bearer != null) req.header("Authorization", "Bearer " + bearer);
+    return client.send(req.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> post(String path, String form) throws Exception {
+    return post(path, form, null);
+  }
+
+  private HttpResponse<String> post(String path, String form, String bearer) throws Exception {
+    HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(base + path))
+        .header("Content-Type", "application/x-www-form-urlencoded")
+        .POST(HttpRequest.BodyPublishers.ofString(form));
+    if (bearer != null) req.header("Authorization", "Bearer " + bearer);
+    return client.send(req.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static String field(String json, String name) {
+    Matcher m = Pattern.compile("\"" + name + "\":\"([^\"]*)\"").matcher(json);
+    return m.find() ? m.group(1) : null;
+  }
+
+  private static String enc(String s) {
+    return URLEncoder.encode(s, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,210 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingJournalTest {
+
+  private static final String MOVIE = "阿凡達：火與燼";
+  private static final String CINEMA = "威秀電影城";
+  private static final LocalDate DATE = LocalDate.of(2030, 1, 1);
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void restart_shouldRestoreBookingsSeatsAndRemaining() throws IOException {
+    Path file = dir.resolve("bookings.journal");
+    String paidId;
+    String refundedId;
+    String pendingId;
+    String ticketCode;
+
+    try (BookingService service = new BookingService(file)) {
+      BookingService.Booking paid = service.createBooking(
+          "u1", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("A1", "A2"), 600,
+          "全票", "EARLY20", "不加購", "信用卡", null);
+      service.confirmPayment(paid);
+
+      BookingService.Booking refunded = service.createBooking(
+          "u2", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("B1"), 300);
+      service.confirmPayment(refunded);
+      service.refundBooking(refunded.bookingId);
+
+      BookingService.Booking pending = service.createBooking(
+          "u3", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("C1"), 300);
+
+      paidId = paid.bookingId;
+      refundedId = refunded.bookingId;
+      pendingId = pending.bookingId;
+      ticketCode = paid.ticketCode;
+    }
+
+    try (BookingService restored = new BookingService(file)) {
+      assertEquals(6, restored.getJournal().getRecoveredRecords());
+
+      BookingService.Booking paid = restored.getBookingById(paidId);
+      assertEquals("已付款", paid.status);
+      assertEquals(ticketCode, paid.ticketCode);
+      assertEquals("EARLY20", paid.discountCode);
+      assertNull(paid.idNumber);
+      assertNotNull(paid.paidAt);
+
+      assertEquals("已退票", restored.getBookingById(refundedId).status);
+      assertEquals("已確認", restored.getBookingById(pendingId).status);
+
+      String key = restored.buildShowKey(MOVIE, CINEMA, DATE, LocalTime.NOON);
+      assertFalse(restored.isSeatAvailable(key, "A1"));
+      assertTrue(restored.isSeatAvailable(key, "B1"));
+      assertFalse(restored.isSeatAvailable(key, "C1"));
+      assertEquals(BookingService.SEAT_CAPACITY - 3, restored.getShowRemaining(key));
+      assertEquals(1, restored.getUserBookings("u3").size());
+    }
+  }
+
+  @Test
+  void replay_tornTail_shouldKeepValidPrefixAndTruncate() throws IOException {
+    Path file = dir.resolve("torn.journal");
+    String id;
+    try (BookingService service = new BookingService(file)) {
+      id = service.createBooking("u1", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("D1"), 300).bookingId;
+    }
+    long validSize = Files.size(file);
+
+    // 模擬寫到一半就斷電
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.APPEND)) {
+      ch.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+    }
+
+    try (BookingService restored = new BookingService(file)) {
+      assertEquals(1, restored.getJournal().getRecoveredRecords());
+      assertNotNull(restored.getBookingById(id));
+      assertEquals(validSize, Files.size(file));
+
+      restored.createBooking("u2", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("D2"), 300);
+    }
+
+    try (BookingService again = new BookingService(file)) {
+      assertEquals(2, again.getJournal().getRecoveredRecords());
+    }
+    long twoRecords = Files.size(file);
+
+    // 表頭的長度欄位損毀成極大值：不可照長度配置緩衝，視同損毀截斷
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.APPEND)) {
+      ch.write(ByteBuffer.wrap(new byte[]{0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xf0, 0, 0, 0, 0, 1, 2, 3}));
+    }
+    try (BookingService huge = new BookingService(file)) {
+      assertEquals(2, huge.getJournal().getRecoveredRecords());
+      assertEquals(twoRecords, Files.size(file));
+    }
+  }
+
+  @Test
+  void concurrentWriters_shouldAllBeDurable() throws Exception {
+    Path file = dir.resolve("concurrent.journal");
+    int threads = 8;
+    int perThread = 50;
+    try (BookingService service = new BookingService(file)) {
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        LocalTime time = LocalTime.of(10 + t, 0);
+        futures.add(pool.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            String seat = (char) ('A' + i / 12) + String.valueOf(i % 12 + 1);
+            BookingService.Booking b = service.createBooking(
+                "u", MOVIE, CINEMA, DATE, time, List.of(seat), 300);
+            service.confirmPayment(b);
+          }
+        }));
+      }
+      for (Future<?> f : futures) f.get();
+      pool.shutdown();
+    }
+
+    try (BookingService restored = new BookingService(file)) {
+      assertEquals(threads * perThread * 2L, restored.getJournal().getRecoveredRecords());
+      assertEquals(threads * perThread, restored.getAllBookings().size());
+    }
+  }
+
+  @Test
+  void restart_withHallLayouts_shouldReplaySeatsBeyondDefaultGrid() throws IOException {
+    Path file = dir.resolve("bookings.journal");
+    HallLayout wide = HallLayout.parse("IMAX", "SSSSSSSS.SSSSSSSS", "SSSSSSSS.SSSSSSSS");
+    Map<String, HallLayout> layouts = Map.of(CINEMA, wide);
+
+    try (BookingService service = new BookingService(file, layouts)) {
+      assertNotNull(service.createBooking(
+          "u1", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("A16", "B9"), 600));
+    }
+
+    try (BookingService restored = new BookingService(file, layouts)) {
+      String showKey = restored.buildShowKey(MOVIE, CINEMA, DATE, LocalTime.NOON);
+      assertFalse(restored.isSeatAvailable(showKey, "A16"));
+      assertFalse(restored.isSeatAvailable(showKey, "B9"));
+      assertEquals(wide.getCapacity() - 2, restored.getShowRemaining(showKey));
+    }
+  }
+
+  @Test
+  void journalFailure_shouldRollBackInMemoryChanges() throws IOException {
+    Path file = dir.resolve("bookings.journal");
+    try (BookingService service = new BookingService(file)) {
+      String showKey = service.buildShowKey(MOVIE, CINEMA, DATE, LocalTime.NOON);
+      BookingService.Booking paid = service.createBooking(
+          "u1", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("A1"), 300);
+      service.confirmPayment(paid);
+      BookingService.Booking pending = service.createBooking(
+          "u2", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("A2"), 300);
+      List<String> popularBefore = service.getMostPopularMovies(5);
+
+      service.getJournal().close();
+
+      assertThrows(UncheckedIOException.class, () -> service.createBooking(
+          "u3", MOVIE, CINEMA, DATE, LocalTime.NOON, List.of("A3"), 300));
+      assertTrue(service.isSeatAvailable(showKey, "A3"));
+      assertEquals(2, service.getAllBookings().size());
+      assertTrue(service.getUserBookings("u3").isEmpty());
+
+      assertThrows(UncheckedIOException.class, () -> service.confirmPayment(pending));
+      assertEquals("已確認", pending.status);
+      assertNull(pending.ticketCode);
+
+      assertThrows(UncheckedIOException.class, () -> service.refundBooking(paid.bookingId));
+      assertEquals("已付款", paid.status);
+      assertFalse(service.isSeatAvailable(showKey, "A1"));
+      assertEquals(popularBefore, service.getMostPopularMovies(5));
+      assertEquals(service.getShowLayout(showKey).getCapacity() - 2, service.getShowRemaining(showKey));
+    }
+
+    try (BookingService restored = new BookingService(file)) {
+      assertEquals(2, restored.getAllBookings().size());
+    }
+  }
+
+  @Test
+  void inMemoryService_shouldHaveNoJournal() {
+    BookingService service = new BookingService();
+    assertNull(service.getJournal());
+    service.close();
+  }
+}
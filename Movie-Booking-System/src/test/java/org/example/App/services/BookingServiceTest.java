@@ -3,11 +3,20 @@ package org.example.App.services;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -186,9 +195,75 @@ class BookingServiceTest {
   // =========================
 
   @Test
-  void updateRemaining_shouldNotBelowZero() {
-    bookingService.updateRemaining("阿凡達：火與燼", 999);
-    assertEquals(0, bookingService.getRemaining("阿凡達：火與燼"));
+  void getRemaining_unknownShow_shouldBeFullCapacity() {
+    assertEquals(BookingService.SEAT_CAPACITY, bookingService.getRemaining(
+        "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON));
+    assertEquals(BookingService.SEAT_CAPACITY, bookingService.getShowRemaining(null));
+  }
+
+  @Test
+  void getRemaining_shouldTrackBookHoldAndRefundPerShow() {
+    LocalDate today = LocalDate.now();
+    BookingService.Booking booking = bookingService.createBooking(
+        "u1", "阿凡達：火與燼", "威秀電影城", today, LocalTime.NOON,
+        List.of("A1", "A2"), 600
+    );
+    assertEquals(BookingService.SEAT_CAPACITY - 2, bookingService.getRemaining(
+        "阿凡達：火與燼", "威秀電影城", today, LocalTime.NOON));
+
+    // 同電影其他場次不受影響
+    assertEquals(BookingService.SEAT_CAPACITY, bookingService.getRemaining(
+        "阿凡達：火與燼", "威秀電影城", today, LocalTime.of(19, 0)));
+
+    SeatHold hold = bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城", today, LocalTime.NOON, List.of("B1"));
+    assertEquals(BookingService.SEAT_CAPACITY - 3, bookingService.getShowRemaining(hold.getShowKey()));
+
+    bookingService.releaseHold(hold.getHoldId());
+    bookingService.refundBooking(booking.bookingId);
+    assertEquals(BookingService.SEAT_CAPACITY, bookingService.getShowRemaining(hold.getShowKey()));
+  }
+
+  @Test
+  void firstSales_racingOnNewShows_shouldKeepStockInSync() throws Exception {
+    int threads = 4;
+    int shows = 200;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      String seat = "A" + (t + 1);
+      futures.add(pool.submit(() -> {
+        start.await();
+        for (int i = 0; i < shows; i++) {
+          assertNotNull(bookingService.createBooking("u", "阿凡達：火與燼", "威秀電影城",
+              LocalDate.now(), LocalTime.MIDNIGHT.plusMinutes(i), List.of(seat), 300));
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> f : futures) f.get();
+    pool.shutdown();
+
+    assertEquals(shows, bookingService.getShowStocks().size());
+    for (BookingService.ShowStock stock : bookingService.getShowStocks()) {
+      assertEquals(BookingService.SEAT_CAPACITY - threads, stock.getRemaining(), stock.showKey);
+    }
+  }
+
+  @Test
+  void getShowStocks_shouldListBookedShows() {
+    bookingService.createBooking(
+        "u1", "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON,
+        List.of("A1"), 300
+    );
+
+    List<BookingService.ShowStock> stocks = bookingService.getShowStocks();
+    assertEquals(1, stocks.size());
+    assertEquals("威秀電影城", stocks.get(0).cinema);
+    assertEquals(LocalTime.NOON, stocks.get(0).time);
+    assertEquals(BookingService.SEAT_CAPACITY - 1, stocks.get(0).getRemaining());
   }
 
   @Test
@@ -220,6 +295,32 @@ class BookingServiceTest {
   }
 
 
+  @Test
+  void getMostPopularMovies_shouldCountTicketsAndDropRefunds() {
+    BookingService.Booking big = bookingService.createBooking(
+        "u1", "奧本海默", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("A1", "A2", "A3"), 900
+    );
+    bookingService.confirmPayment(big);
+    BookingService.Booking small = bookingService.createBooking(
+        "u2", "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("B1"), 300
+    );
+    bookingService.confirmPayment(small);
+
+    assertEquals(List.of("奧本海默", "阿凡達：火與燼"), bookingService.getMostPopularMovies(2));
+    assertEquals(List.of("奧本海默", "阿凡達：火與燼"),
+        bookingService.getTrendingMovies(PopularityTracker.Window.HOUR, 2));
+
+    bookingService.refundBooking(big.bookingId);
+
+    assertEquals(List.of("阿凡達：火與燼"), bookingService.getMostPopularMovies(2));
+    assertEquals(List.of("阿凡達：火與燼"),
+        bookingService.getTrendingMovies(PopularityTracker.Window.WEEK, 2));
+  }
+
   @Test
   void getMostPopularMovies_withoutPaidBookings_shouldFallbackByRating() {
     List<String> popular = bookingService.getMostPopularMovies(3);
@@ -489,7 +590,7 @@ class BookingServiceTest {
         List.of("A1"), 300
     );
 
-    b.seats = Collections.emptyList();
+    b.seats = new int[0];
 
     assertTrue(bookingService.refundBooking(b.bookingId));
   }
@@ -614,6 +715,340 @@ class BookingServiceTest {
     ));
   }
 
+  // =========================
+  // Indexes
+  // =========================
+
+  @Test
+  void getShowBookings_shouldReturnOnlyThatShow() {
+    BookingService.Booking b1 = bookingService.createBooking(
+        "u1", "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("A1"), 300
+    );
+    bookingService.createBooking(
+        "u1", "奧本海默", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("A1"), 300
+    );
+
+    String key = bookingService.buildShowKey(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON
+    );
+    List<BookingService.Booking> list = bookingService.getShowBookings(key);
+
+    assertEquals(1, list.size());
+    assertSame(b1, list.get(0));
+    assertTrue(bookingService.getShowBookings("NO_SHOW_KEY").isEmpty());
+    assertTrue(bookingService.getShowBookings(null).isEmpty());
+  }
+
+  @Test
+  void indexes_shouldReflectStatusAfterPayAndRefund() {
+    BookingService.Booking b = bookingService.createBooking(
+        "u1", "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("A1"), 300
+    );
+    bookingService.confirmPayment(b);
+    bookingService.refundBooking(b.bookingId);
+
+    assertEquals("已退票", bookingService.getBookingById(b.bookingId).status);
+    assertEquals("已退票", bookingService.getUserBookings("u1").get(0).status);
+  }
+
+  @Test
+  void getUserBookings_nullUser_shouldReturnEmpty() {
+    assertTrue(bookingService.getUserBookings(null).isEmpty());
+    assertNull(bookingService.getBookingById(null));
+  }
+
+  // =========================
+  // Seat hold
+  // =========================
+
+  @Test
+  void holdSeats_shouldBlockOthersUntilReleased() {
+    SeatHold hold = bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON, List.of("A1", "A2")
+    );
+    assertNotNull(hold);
+    String key = hold.getShowKey();
+
+    assertFalse(bookingService.isSeatAvailable(key, "A1"));
+    assertTrue(bookingService.getUnavailableSeats(key).contains("A2"));
+    assertTrue(bookingService.getBookedSeats(key).isEmpty());
+    assertNull(bookingService.createBooking(
+        "u2", "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("A2"), 300
+    ));
+
+    assertTrue(bookingService.releaseHold(hold.getHoldId()));
+    assertFalse(bookingService.releaseHold(hold.getHoldId()));
+    assertTrue(bookingService.isSeatAvailable(key, "A1"));
+  }
+
+  @Test
+  void createBookingFromHold_shouldConvertHeldSeats() {
+    SeatHold hold = bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON, List.of("B3", "B4")
+    );
+
+    BookingService.Booking booking = bookingService.createBookingFromHold(
+        hold.getHoldId(), "u1", 600, "全票", null, null, "信用卡", null
+    );
+
+    assertNotNull(booking);
+    assertEquals(List.of("B3", "B4"), booking.getSeatLabels());
+    assertEquals(Set.of("B3", "B4"), Set.copyOf(bookingService.getBookedSeats(hold.getShowKey())));
+    assertNull(bookingService.getHold(hold.getHoldId()));
+    assertNull(bookingService.createBookingFromHold(
+        hold.getHoldId(), "u1", 600, null, null, null, null, null
+    ));
+  }
+
+  @Test
+  void createBooking_withSeatCodes_shouldStoreCodesAndReleaseOnRefund() {
+    int[] codes = {SeatId.of(3, 5), SeatId.of(3, 6)};
+    BookingService.Booking booking = bookingService.createBooking(
+        "u1", "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON,
+        codes, 600, null, null, null, null, null
+    );
+
+    assertNotNull(booking);
+    assertArrayEquals(codes, booking.seats);
+    assertEquals(List.of("D5", "D6"), booking.getSeatLabels());
+    assertEquals(2, booking.getSeatCount());
+    String key = bookingService.buildShowKey("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON);
+    assertFalse(bookingService.isSeatAvailable(key, "D5"));
+
+    assertNull(bookingService.createBooking(
+        "u2", "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON,
+        new int[]{SeatId.of(3, 99)}, 300, null, null, null, null, null
+    ));
+
+    assertTrue(bookingService.refundBooking(booking.bookingId));
+    assertTrue(bookingService.isSeatAvailable(key, "D5"));
+    assertTrue(bookingService.isSeatAvailable(key, "D6"));
+  }
+
+  @Test
+  void holdSeats_afterClose_shouldNotLeaveSeatsHeld() {
+    BookingService closed = new BookingService();
+    closed.close();
+    String key = closed.buildShowKey("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON);
+
+    assertNull(closed.holdSeats("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON, List.of("A1")));
+    assertNull(closed.holdBestSeats("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON, 2));
+    assertTrue(closed.isSeatAvailable(key, "A1"));
+    assertEquals(closed.getShowLayout(key).getCapacity(), closed.getShowRemaining(key));
+  }
+
+  @Test
+  void defaultHoldLease_shouldOutlastPaymentTimeout() {
+    assertTrue(BookingService.DEFAULT_HOLD_LEASE.compareTo(BookingService.PAYMENT_TIMEOUT) > 0);
+  }
+
+  @Test
+  void holdSeats_overlapping_shouldFail() {
+    assertNotNull(bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON, List.of("C5")
+    ));
+    assertNull(bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON, List.of("C4", "C5")
+    ));
+    assertNull(bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON, List.of("Z9")
+    ));
+  }
+
+  @Test
+  void holdSeats_expired_shouldReleaseAutomatically() throws InterruptedException {
+    SeatHold hold = bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON, List.of("D7"), Duration.ofMillis(150)
+    );
+    String key = hold.getShowKey();
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (!bookingService.isSeatAvailable(key, "D7") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+
+    assertTrue(bookingService.isSeatAvailable(key, "D7"));
+    assertNull(bookingService.getHold(hold.getHoldId()));
+    assertFalse(bookingService.extendHold(hold.getHoldId(), Duration.ofMinutes(1)));
+    assertNull(bookingService.createBookingFromHold(
+        hold.getHoldId(), "u1", 300, null, null, null, null, null
+    ));
+  }
 
+  @Test
+  void extendHold_shouldKeepSeatsPastOriginalLease() throws InterruptedException {
+    SeatHold hold = bookingService.holdSeats(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON, List.of("E9"), Duration.ofMillis(200)
+    );
+    assertTrue(bookingService.extendHold(hold.getHoldId(), Duration.ofMinutes(1)));
+
+    Thread.sleep(500);
+
+    assertFalse(bookingService.isSeatAvailable(hold.getShowKey(), "E9"));
+    assertNotNull(bookingService.getHold(hold.getHoldId()));
+  }
 
+  // =========================
+  // Concurrency
+  // =========================
+
+  @Test
+  void createBooking_concurrentSameSeat_shouldSellOnce() throws Exception {
+    int threads = 16;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger success = new AtomicInteger();
+
+    for (int i = 0; i < threads; i++) {
+      String user = "u" + i;
+      pool.submit(() -> {
+        start.await();
+        BookingService.Booking b = bookingService.createBooking(
+            user, "阿凡達：火與燼", "威秀電影城",
+            LocalDate.now(), LocalTime.NOON,
+            List.of("E5", "E6"), 600
+        );
+        if (b != null) success.incrementAndGet();
+        return null;
+      });
+    }
+    start.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(1, success.get());
+    assertEquals(1, bookingService.getAllBookings().size());
+    assertEquals(BookingService.SEAT_CAPACITY - 2, bookingService.getRemaining(
+        "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON));
+  }
+
+  @Test
+  void createBooking_overlappingSeats_shouldBeAllOrNothing() {
+    bookingService.createBooking(
+        "u1", "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("F3"), 300
+    );
+
+    assertNull(bookingService.createBooking(
+        "u2", "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON,
+        List.of("F2", "F3", "F4"), 900
+    ));
+
+    String key = bookingService.buildShowKey(
+        "阿凡達：火與燼", "威秀電影城",
+        LocalDate.now(), LocalTime.NOON
+    );
+    assertTrue(bookingService.isSeatAvailable(key, "F2"));
+    assertTrue(bookingService.isSeatAvailable(key, "F4"));
+  }
+
+  // =========================
+  // Best available
+  // =========================
+
+  @Test
+  void findBestSeats_shouldSuggestWithoutHolding() {
+    String key = bookingService.buildShowKey("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON);
+    assertEquals(List.of("E5", "E6", "E7", "E8"), bookingService.findBestSeats(key, 4));
+
+    bookingService.createBooking("u1", "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON,
+        List.of("E6"), 300);
+    assertEquals(List.of("F5", "F6", "F7", "F8"), bookingService.findBestSeats(key, 4));
+    assertEquals(BookingService.SEAT_CAPACITY - 1, bookingService.getShowRemaining(key));
+    assertNull(bookingService.findBestSeats(key, BookingService.SEAT_COLS + 1));
+  }
+
+  @Test
+  void holdBestSeats_concurrent_shouldNeverOverlap() throws Exception {
+    int threads = 24;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<SeatHold> holds = Collections.synchronizedList(new ArrayList<>());
+
+    for (int i = 0; i < threads; i++) {
+      pool.submit(() -> {
+        start.await();
+        SeatHold h = bookingService.holdBestSeats(
+            "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON, 4);
+        if (h != null) holds.add(h);
+        return null;
+      });
+    }
+    start.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    // 8 排 x 12 位：每排中央一組，兩側各剩 4 連號
+    assertEquals(threads, holds.size());
+    Set<String> seen = new HashSet<>();
+    for (SeatHold h : holds) {
+      for (String seat : h.getSeats()) assertTrue(seen.add(seat), "重複暫留 " + seat);
+    }
+    assertEquals(0, bookingService.getShowRemaining(holds.get(0).getShowKey()));
+    assertNull(bookingService.holdBestSeats("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON, 1));
+  }
+
+  @Test
+  void holdPartySeats_fragmentedHall_shouldSplitAcrossAdjacentRows() {
+    List<String> fence = new ArrayList<>();
+    for (int r = 0; r < BookingService.SEAT_ROWS; r++) {
+      for (int c : new int[]{4, 8, 12}) fence.add((char) ('A' + r) + String.valueOf(c));
+    }
+    bookingService.createBooking("u1", "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON, fence, 0);
+    String key = bookingService.buildShowKey("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON);
+    assertNull(bookingService.findBestSeats(key, 6));
+
+    assertEquals(List.of(List.of("D5", "D6", "D7"), List.of("E5", "E6", "E7")),
+        bookingService.findPartySeats(key, 6));
+    SeatHold hold = bookingService.holdPartySeats("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON, 6);
+    assertEquals(List.of("D5", "D6", "D7", "E5", "E6", "E7"), hold.getSeats());
+    assertEquals(BookingService.SEAT_CAPACITY - fence.size() - 6, bookingService.getShowRemaining(key));
+  }
+
+  // =========================
+  // Hall layout
+  // =========================
+
+  @Test
+  void hallLayout_shouldSizeSeatMapsAndValidateSeats() {
+    HallLayout layout = HallLayout.parse("VIP 廳",
+        "SSS.SSS",
+        "SSS.SSS",
+        "SSS.SSS");
+    bookingService.setHallLayout("威秀電影城", layout);
+    String key = bookingService.buildShowKey("阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON);
+
+    assertSame(layout, bookingService.getShowLayout(key));
+    assertEquals(18, bookingService.getShowRemaining(key));
+    assertTrue(bookingService.isSeatAvailable(key, "C6"));
+    assertFalse(bookingService.isSeatAvailable(key, "A7"));
+    assertNull(bookingService.findBestSeats(key, 4));
+
+    assertNull(bookingService.createBooking("u1", "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON,
+        List.of("D1"), 300));
+    assertNotNull(bookingService.createBooking("u1", "阿凡達：火與燼", "威秀電影城", LocalDate.now(), LocalTime.NOON,
+        List.of("B3", "B4"), 600));
+    assertEquals(16, bookingService.getShowRemaining(key));
+    assertEquals(18, bookingService.getShowStock(key).capacity);
+    assertEquals(BookingService.SEAT_CAPACITY, bookingService.getRemaining(
+        "阿凡達：火與燼", "信義威秀", LocalDate.now(), LocalTime.NOON));
+  }
 }
@@ -0,0 +1,168 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DynamicPricingTest {
+
+  private static final long MINUTE = 60_000L;
+  private static final String MOVIE = "阿凡達：火與燼";
+  private static final String CINEMA = "威秀電影城";
+  private static final LocalDate DATE = LocalDate.now().plusDays(2);
+  private static final LocalTime TIME = LocalTime.of(20, 0);
+
+  private BookingService bookingService;
+  private String showKey;
+
+  @BeforeEach
+  void setup() {
+    bookingService = new BookingService();
+    showKey = bookingService.buildShowKey(MOVIE, CINEMA, DATE, TIME);
+  }
+
+  @AfterEach
+  void tearDown() {
+    bookingService.close();
+  }
+
+  // =========================
+  // Curve
+  // =========================
+
+  @Test
+  void curve_shouldPickLastMatchingStep() {
+    DynamicPricing.Curve curve = new DynamicPricing.Curve(100).step(70, 115).step(50, 105).step(70, 120);
+
+    assertEquals(100, curve.percentAt(0));
+    assertEquals(100, curve.percentAt(49));
+    assertEquals(105, curve.percentAt(50));
+    assertEquals(120, curve.percentAt(100));
+  }
+
+  // =========================
+  // Occupancy
+  // =========================
+
+  @Test
+  void occupancy_shouldRaisePriceAsSeatsSellAndDropOnRefund() {
+    DynamicPricing pricing = new DynamicPricing(
+        new DynamicPricing.Curve(100).step(50, 120), new DynamicPricing.Curve(100), 50, 200)
+        .attach(bookingService);
+
+    assertEquals(100, pricing.percentFor(showKey));
+    BookingService.Booking first = book(47);
+    assertEquals(100, pricing.percentFor(showKey));
+
+    book(1);
+    assertEquals(120, pricing.percentFor(showKey));
+    assertEquals(384, pricing.adjust(320, showKey));
+
+    bookingService.refundBooking(first.bookingId);
+    assertEquals(100, pricing.percentFor(showKey));
+  }
+
+  @Test
+  void holds_shouldCountAsOccupied() {
+    DynamicPricing pricing = new DynamicPricing(
+        new DynamicPricing.Curve(100).step(1, 110), new DynamicPricing.Curve(100), 50, 200)
+        .attach(bookingService);
+
+    SeatHold hold = bookingService.holdSeats(MOVIE, CINEMA, DATE, TIME, List.of("A1"));
+    assertEquals(110, pricing.percentFor(showKey));
+
+    bookingService.releaseHold(hold.getHoldId());
+    assertEquals(100, pricing.percentFor(showKey));
+  }
+
+  @Test
+  void attach_shouldLoadExistingShows() {
+    book(BookingService.SEAT_CAPACITY);
+    DynamicPricing pricing = new DynamicPricing(
+        new DynamicPricing.Curve(100).step(100, 300), new DynamicPricing.Curve(100), 80, 150)
+        .attach(bookingService);
+
+    assertEquals(150, pricing.percentFor(showKey));
+  }
+
+  // =========================
+  // Lead time
+  // =========================
+
+  @Test
+  void leadTime_shouldSwitchStepWhenThresholdIsCrossed() {
+    DynamicPricing pricing = new DynamicPricing(
+        new DynamicPricing.Curve(100), new DynamicPricing.Curve(110).step(60, 100), 50, 200)
+        .attach(bookingService);
+    book(1);
+    long start = DATE.atTime(TIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    assertEquals(100, pricing.percentFor(showKey, start - 61 * MINUTE));
+    assertEquals(100, pricing.percentFor(showKey, start - 60 * MINUTE));
+    assertEquals(110, pricing.percentFor(showKey, start - 60 * MINUTE + 1));
+    assertEquals(110, pricing.percentFor(showKey, start + MINUTE));
+  }
+
+  @Test
+  void showWithoutStock_shouldStillApplyLeadTimeAtZeroOccupancy() {
+    DynamicPricing pricing = new DynamicPricing(
+        new DynamicPricing.Curve(90).step(50, 120), new DynamicPricing.Curve(120).step(60, 100), 50, 200)
+        .attach(bookingService);
+    long start = DATE.atTime(TIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    assertEquals(90, pricing.percentFor(showKey, start - 61 * MINUTE));
+    assertEquals(108, pricing.percentFor(showKey, start - 30 * MINUTE));
+    assertEquals(100, pricing.percentFor("not-a-show-key", start));
+    assertTrue(bookingService.getShowStocks().isEmpty());
+  }
+
+  // =========================
+  // PriceService
+  // =========================
+
+  @Test
+  void priceService_shouldUseShowPriceOnlyWhenEnabled() {
+    PriceService priceService = new PriceService();
+    book(90);
+    assertEquals(320, priceService.getShowPrice(CINEMA, "2D", "ADULT", showKey));
+
+    priceService.setDynamicPricing(new DynamicPricing(
+        new DynamicPricing.Curve(100).step(90, 130), new DynamicPricing.Curve(100), 80, 150)
+        .attach(bookingService));
+
+    assertEquals(416, priceService.getShowPrice(CINEMA, "2D", "ADULT", showKey));
+    assertEquals(320, priceService.getShowPrice(CINEMA, "2D", "ADULT", null));
+    assertEquals(-1, priceService.getShowPrice(CINEMA, "4DX", "ADULT", showKey));
+
+    PriceService.CartRequest cart = new PriceService.CartRequest(CINEMA, "2D", null)
+        .addTickets("ADULT", "PREMIUM", 2);
+    cart.showKey = showKey;
+    assertEquals((416 + 50) * 2, priceService.priceCart(cart).total);
+  }
+
+  private BookingService.Booking book(int seats) {
+    List<String> ids = new ArrayList<>();
+    for (String id : freeSeats()) {
+      if (ids.size() == seats) break;
+      ids.add(id);
+    }
+    return bookingService.createBooking("u1", MOVIE, CINEMA, DATE, TIME, ids, 0);
+  }
+
+  private List<String> freeSeats() {
+    List<String> out = new ArrayList<>();
+    for (int r = 0; r < BookingService.SEAT_ROWS; r++) {
+      for (int c = 1; c <= BookingService.SEAT_COLS; c++) out.add((char) ('A' + r) + String.valueOf(c));
+    }
+    out.removeAll(bookingService.getUnavailableSeats(showKey));
+    return out;
+  }
+}
@@ -0,0 +1,98 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HallLayoutTest {
+
+  /** 3 排；第 3 欄為走道，C 排兩側缺角 */
+  private static final HallLayout SMALL = HallLayout.parse("小廳",
+      "SS.SSS",
+      "SS.SSS",
+      ".S.SS");
+
+  @Test
+  void parse_shouldCountOnlyRealSeats() {
+    assertEquals(3, SMALL.getRows());
+    assertEquals(6, SMALL.getCols());
+    assertEquals(18, SMALL.getGridSize());
+    assertEquals(13, SMALL.getCapacity());
+    assertFalse(SMALL.hasSeat(0, 2));
+    assertFalse(SMALL.hasSeat(2, 5));
+    assertTrue(SMALL.hasSeat(2, 4));
+  }
+
+  @Test
+  void seatNumbers_shouldSkipAisleColumns() {
+    assertEquals(3, SMALL.seatNumberOf(3));
+    assertEquals(0, SMALL.seatNumberOf(2));
+    assertEquals("A3", SMALL.seatIdOf(3));
+    assertEquals("B5", SMALL.seatIdOf(11));
+
+    assertEquals(3, SMALL.indexOf("A3"));
+    assertEquals(11, SMALL.indexOf("b5"));
+    assertEquals(-1, SMALL.indexOf("C1"), "缺位");
+    assertEquals(-1, SMALL.indexOf("C5"), "缺位");
+    assertEquals(-1, SMALL.indexOf("A6"));
+    assertEquals(-1, SMALL.indexOf("A0"));
+    assertEquals(-1, SMALL.indexOf("D1"));
+    assertEquals(-1, SMALL.indexOf("A99999999999"));
+  }
+
+  @Test
+  void toRowStrings_shouldRoundTrip() {
+    String[] rows = SMALL.toRowStrings();
+    assertArrayEquals(new String[]{"SS.SSS", "SS.SSS", ".S.SS."}, rows);
+    assertEquals(SMALL, HallLayout.parse(null, rows));
+    assertEquals(HallLayout.rectangle(2, 3), HallLayout.parse("x", "###", "###"));
+  }
+
+  @Test
+  void invalidLayouts_shouldBeRejected() {
+    assertThrows(IllegalArgumentException.class, () -> HallLayout.parse("空", "...", "..."));
+    assertThrows(IllegalArgumentException.class, () -> HallLayout.rectangle(27, 10));
+    assertThrows(IllegalArgumentException.class, () -> HallLayout.rectangle(0, 10));
+  }
+
+  @Test
+  void load_shouldReadOneLayoutPerCinema(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("halls.txt");
+    Files.write(file, List.of(
+        "[小廳]", "SS.SSS", "SS.SSS", ".S.SS", "",
+        "[信義威秀]", "###", "###"), StandardCharsets.UTF_8);
+
+    Map<String, HallLayout> layouts = HallLayout.load(file);
+    assertEquals(List.of("小廳", "信義威秀"), List.copyOf(layouts.keySet()));
+    assertEquals(SMALL, layouts.get("小廳"));
+    assertEquals(HallLayout.rectangle(2, 3), layouts.get("信義威秀"));
+    assertEquals("信義威秀", layouts.get("信義威秀").getName());
+
+    BookingService service = new BookingService(layouts);
+    try {
+      assertEquals(SMALL, service.getHallLayout("小廳"));
+      assertEquals(BookingService.DEFAULT_LAYOUT, service.getHallLayout("國賓大戲院"));
+    } finally {
+      service.close();
+    }
+  }
+
+  @Test
+  void load_shouldRejectMalformedFiles(@TempDir Path dir) throws IOException {
+    Path orphan = Files.write(dir.resolve("orphan.txt"), List.of("SSS"), StandardCharsets.UTF_8);
+    Path empty = Files.write(dir.resolve("empty.txt"), List.of("[空廳]", "..."), StandardCharsets.UTF_8);
+    Path dup = Files.write(dir.resolve("dup.txt"), List.of("[a]", "S", "[a]", "S"), StandardCharsets.UTF_8);
+
+    assertThrows(IllegalArgumentException.class, () -> HallLayout.load(orphan));
+    assertThrows(IllegalArgumentException.class, () -> HallLayout.load(empty));
+    assertThrows(IllegalArgumentException.class, () -> HallLayout.load(dup));
+  }
+}
@@ -0,0 +1,73 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+  @Test
+  void advanceTo_shouldRunOnlyDueTasks() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, 8, false);
+    long now = System.currentTimeMillis();
+    List<String> fired = new ArrayList<>();
+
+    timer.schedule(() -> fired.add("short"), 30);
+    timer.schedule(() -> fired.add("long"), 500); // 超過一圈（8 * 10ms）
+
+    timer.advanceTo(now);
+    assertTrue(fired.isEmpty());
+
+    timer.advanceTo(now + 100);
+    assertEquals(List.of("short"), fired);
+
+    timer.advanceTo(now + 600);
+    assertEquals(List.of("short", "long"), fired);
+    assertEquals(0, timer.pendingCount());
+  }
+
+  @Test
+  void cancel_shouldSkipTask() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, 8, false);
+    long now = System.currentTimeMillis();
+    List<String> fired = new ArrayList<>();
+
+    HashedWheelTimer.Timeout t = timer.schedule(() -> fired.add("x"), 20);
+    t.cancel();
+    timer.advanceTo(now + 100);
+
+    assertTrue(t.isCancelled());
+    assertTrue(fired.isEmpty());
+  }
+
+  @Test
+  void failingTask_shouldNotStopOthers() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, 8, false);
+    long now = System.currentTimeMillis();
+    List<String> fired = new ArrayList<>();
+
+    timer.schedule(() -> {
+      throw new IllegalStateException("boom");
+    }, 10);
+    timer.schedule(() -> fired.add("ok"), 10);
+    timer.advanceTo(now + 50);
+
+    assertEquals(List.of("ok"), fired);
+  }
+
+  @Test
+  void constructor_invalidArgs_shouldThrow() {
+    assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer(0, 8));
+    assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer(10, 6));
+  }
+
+  @Test
+  void schedule_afterClose_shouldThrow() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, 8);
+    timer.close();
+    assertThrows(IllegalStateException.class, () -> timer.schedule(() -> { }, 10));
+  }
+}
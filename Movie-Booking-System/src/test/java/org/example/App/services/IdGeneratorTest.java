@@ -0,0 +1,141 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+  private IdGenerator generator;
+
+  @BeforeEach
+  void setup() {
+    generator = new IdGenerator(7);
+  }
+
+  // =========================
+  // Booking ID
+  // =========================
+
+  @Test
+  void nextId_shouldBeStrictlyIncreasing() {
+    long prev = generator.nextId();
+    for (int i = 0; i < 100_000; i++) {
+      long next = generator.nextId();
+      assertTrue(next > prev);
+      prev = next;
+    }
+  }
+
+  @Test
+  void nextBookingId_shouldBeFixedWidthAndSortable() {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) ids.add(generator.nextBookingId());
+
+    List<String> sorted = new ArrayList<>(ids);
+    sorted.sort(null);
+
+    assertEquals(ids, sorted);
+    assertTrue(ids.get(0).startsWith("BK"));
+    assertEquals(14, ids.get(0).length());
+  }
+
+  @Test
+  void nextId_shouldCarryNodeAndTimestamp() {
+    long before = System.currentTimeMillis();
+    long id = generator.nextId();
+
+    assertEquals(7, (id >>> IdGenerator.SEQ_BITS) & IdGenerator.MAX_NODE_ID);
+    assertTrue(IdGenerator.timestampOf(id) >= before);
+  }
+
+  @Test
+  void nextBookingId_concurrent_shouldBeUnique() throws Exception {
+    int threads = 8;
+    int perThread = 50_000;
+    Set<String> seen = ConcurrentHashMap.newKeySet();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(pool.submit(() -> {
+        for (int i = 0; i < perThread; i++) seen.add(generator.nextBookingId());
+      }));
+    }
+    for (Future<?> f : futures) f.get();
+    pool.shutdown();
+
+    assertEquals(threads * perThread, seen.size());
+  }
+
+  @Test
+  void constructor_invalidNode_shouldThrow() {
+    assertThrows(IllegalArgumentException.class, () -> new IdGenerator(-1));
+    assertThrows(IllegalArgumentException.class, () -> new IdGenerator(IdGenerator.MAX_NODE_ID + 1));
+  }
+
+  // =========================
+  // Ticket code
+  // =========================
+
+  @Test
+  void nextTicketCode_shouldBeShortAndUnique() {
+    Set<String> seen = new HashSet<>();
+    for (int i = 0; i < 300_000; i++) {
+      String code = generator.nextTicketCode();
+      assertEquals(12, code.length());
+      assertTrue(code.matches("TK[0-9A-HJKMNP-TV-Z]{10}"), code);
+      assertTrue(seen.add(code), code);
+    }
+  }
+
+  @Test
+  void scramble_shouldBeBijectiveOnSample() {
+    Set<Long> out = new HashSet<>();
+    for (long i = 0; i < 200_000; i++) out.add(IdGenerator.scramble(i));
+    assertEquals(200_000, out.size());
+  }
+
+  @Test
+  void unscramble_shouldInvertScramble() {
+    for (long x : new long[]{0, 1, 12345, (1L << IdGenerator.TICKET_BITS) - 1, 0x2AAAAAAAAAAAAL}) {
+      assertEquals(x, IdGenerator.unscramble(IdGenerator.scramble(x)));
+    }
+  }
+
+  @Test
+  void nextTicketCode_differentNodes_shouldNotCollide() {
+    IdGenerator other = new IdGenerator(8);
+    Set<String> seen = new HashSet<>();
+    for (int i = 0; i < 50_000; i++) {
+      assertTrue(seen.add(generator.nextTicketCode()));
+      assertTrue(seen.add(other.nextTicketCode()));
+    }
+  }
+
+  @Test
+  void restart_afterObservingIssuedCodes_shouldNotReuseThem() {
+    Set<String> tickets = new HashSet<>();
+    Set<String> bookings = new HashSet<>();
+    for (int i = 0; i < 200_000; i++) tickets.add(generator.nextTicketCode());
+    for (int i = 0; i < 20_000; i++) bookings.add(generator.nextBookingId());
+
+    IdGenerator restarted = new IdGenerator(7);
+    for (String code : tickets) restarted.observeTicketCode(code);
+    for (String id : bookings) restarted.observeBookingId(id);
+    for (int i = 0; i < 200_000; i++) assertFalse(tickets.contains(restarted.nextTicketCode()));
+    for (int i = 0; i < 20_000; i++) assertFalse(bookings.contains(restarted.nextBookingId()));
+
+    restarted.observeTicketCode("bogus");
+    restarted.observeBookingId("BK!!");
+  }
+}
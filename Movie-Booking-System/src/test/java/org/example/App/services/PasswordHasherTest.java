@@ -0,0 +1,46 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+  private final PasswordHasher hasher = new PasswordHasher(2_000);
+
+  @Test
+  void hash_shouldVerifyAndUseRandomSalt() {
+    String a = hasher.hash("secret");
+    String b = hasher.hash("secret");
+
+    assertNotEquals(a, b);
+    assertTrue(a.startsWith("pbkdf2$2000$"));
+    assertTrue(hasher.verify("secret", a));
+    assertTrue(hasher.verify("secret", b));
+    assertFalse(hasher.verify("Secret", a));
+    assertFalse(hasher.verify(null, a));
+  }
+
+  @Test
+  void verify_shouldUseIterationsStoredWithHash() {
+    String old = new PasswordHasher(1_000).hash("secret");
+
+    assertTrue(hasher.verify("secret", old));
+    assertTrue(hasher.needsRehash(old));
+    assertFalse(hasher.needsRehash(hasher.hash("secret")));
+  }
+
+  @Test
+  void verify_plaintextOrMalformed() {
+    assertTrue(hasher.verify("1234", "1234"));
+    assertTrue(hasher.needsRehash("1234"));
+    assertFalse(hasher.verify("x", "pbkdf2$abc$$"));
+    assertFalse(hasher.verify("x", "pbkdf2$0$AAAA$AAAA"));
+    assertFalse(hasher.verify("x", "pbkdf2$10$***$AAAA"));
+  }
+
+  @Test
+  void constructor_shouldRejectNonPositiveIterations() {
+    assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(0));
+  }
+}
@@ -0,0 +1,98 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularityTrackerTest {
+
+  private static final long MINUTE = 60_000L;
+  private static final long HOUR = 60 * MINUTE;
+  private static final long T0 = 1_800_000_000_000L;
+
+  // =========================
+  // All-time ranking
+  // =========================
+
+  @Test
+  void top_shouldOrderByTicketsThenTitle() {
+    PopularityTracker tracker = new PopularityTracker();
+    tracker.record("B", 2, T0, T0);
+    tracker.record("A", 2, T0, T0);
+    tracker.record("C", 5, T0, T0);
+
+    assertEquals(List.of("C", "A", "B"), tracker.top(5));
+    assertEquals(List.of("C"), tracker.top(1));
+    assertTrue(tracker.top(0).isEmpty());
+  }
+
+  @Test
+  void refund_shouldReorderAndDropEmptyTitles() {
+    PopularityTracker tracker = new PopularityTracker();
+    tracker.record("A", 3, T0, T0);
+    tracker.record("B", 2, T0, T0);
+
+    tracker.record("A", -3, T0, T0);
+
+    assertEquals(List.of("B"), tracker.top(5));
+    assertEquals(0, tracker.count("A"));
+  }
+
+  // =========================
+  // Sliding windows
+  // =========================
+
+  @Test
+  void hourWindow_shouldForgetOldSales() {
+    PopularityTracker tracker = new PopularityTracker();
+    tracker.record("Old", 10, T0, T0);
+    tracker.record("New", 1, T0 + 50 * MINUTE, T0 + 50 * MINUTE);
+
+    assertEquals(List.of("Old", "New"), tracker.top(PopularityTracker.Window.HOUR, 5, T0 + 50 * MINUTE));
+    assertEquals(List.of("New"), tracker.top(PopularityTracker.Window.HOUR, 5, T0 + 61 * MINUTE));
+    assertEquals(List.of("Old", "New"), tracker.top(PopularityTracker.Window.DAY, 5, T0 + 61 * MINUTE));
+    assertTrue(tracker.top(PopularityTracker.Window.DAY, 5, T0 + 25 * HOUR).isEmpty());
+
+    // 累計排行不受視窗影響
+    assertEquals(List.of("Old", "New"), tracker.top(5));
+  }
+
+  @Test
+  void refund_shouldOnlyAffectWindowsStillHoldingThePayment() {
+    PopularityTracker tracker = new PopularityTracker();
+    tracker.record("A", 4, T0, T0);
+
+    long now = T0 + 2 * HOUR;
+    tracker.record("A", -4, T0, now);
+
+    assertEquals(0, tracker.count(PopularityTracker.Window.HOUR, "A", now));
+    assertEquals(0, tracker.count(PopularityTracker.Window.WEEK, "A", now));
+    assertEquals(0, tracker.count("A"));
+  }
+
+  @Test
+  void refundAfterWindowExpired_shouldNotGoNegative() {
+    PopularityTracker tracker = new PopularityTracker();
+    tracker.record("A", 2, T0, T0);
+    tracker.record("A", 1, T0 + 90 * MINUTE, T0 + 90 * MINUTE);
+
+    long now = T0 + 2 * HOUR;
+    tracker.record("A", -2, T0, now);
+
+    assertEquals(1, tracker.count(PopularityTracker.Window.HOUR, "A", now));
+    assertEquals(1, tracker.count(PopularityTracker.Window.DAY, "A", now));
+    assertEquals(1, tracker.count("A"));
+  }
+
+  @Test
+  void longIdleGap_shouldClearWholeWindow() {
+    PopularityTracker tracker = new PopularityTracker();
+    for (int i = 0; i < 60; i++) tracker.record("A", 1, T0 + i * MINUTE, T0 + i * MINUTE);
+    assertEquals(60, tracker.count(PopularityTracker.Window.HOUR, "A", T0 + 59 * MINUTE));
+
+    assertEquals(0, tracker.count(PopularityTracker.Window.HOUR, "A", T0 + 30 * 24 * HOUR));
+    assertEquals(0, tracker.count(PopularityTracker.Window.WEEK, "A", T0 + 30 * 24 * HOUR));
+  }
+}
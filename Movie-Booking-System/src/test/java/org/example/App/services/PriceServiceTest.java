@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -52,6 +54,59 @@ class PriceServiceTest {
     assertEquals(-1, price);
   }
 
+  @Test
+  void priceOf_shouldMatchBuiltInTable() {
+    assertEquals(320, priceService.priceOf("威秀電影城", "2D", "ADULT"));
+    assertEquals(330, priceService.priceOf("信義威秀", "2D", "ADULT"));
+    assertEquals(325, priceService.priceOf("美麗華影城", "IMAX", "CHILD"));
+    assertEquals(-1, priceService.priceOf("威秀電影城", "2D", null));
+    assertEquals(-1, priceService.priceOf("威秀電影城", "4DX", "ADULT"));
+  }
+
+  @Test
+  void setPrice_newFormat_shouldOnlyAffectThatCinema() {
+    priceService.setPrice("國賓大戲院", "4DX", "ADULT", 520);
+
+    assertEquals(520, priceService.getLowestPrice("4DX", "ADULT"));
+    assertEquals(1, priceService.compare("4DX", "ADULT").size());
+    assertNull(priceService.getPrice("威秀電影城", "4DX", "ADULT"));
+    assertTrue(priceService.getFormats().contains("4DX"));
+    assertEquals(320, priceService.priceOf("威秀電影城", "2D", "ADULT"));
+  }
+
+  @Test
+  void compare_shouldReturnCachedReadOnlyList() {
+    List<PriceService.PriceQuote> first = priceService.compare("3D", "SENIOR");
+
+    assertSame(first, priceService.compare("3D", "SENIOR"));
+    assertThrows(UnsupportedOperationException.class, () -> first.remove(0));
+    assertEquals(first.get(0).price, priceService.getLowestPrice("3D", "SENIOR"));
+  }
+
+  @Test
+  void setPrice_shouldInvalidateCachedComparison() {
+    List<PriceService.PriceQuote> before = priceService.compare("2D", "ADULT");
+
+    priceService.setPrice("美麗華影城", "2D", "ADULT", 100);
+
+    List<PriceService.PriceQuote> after = priceService.compare("2D", "ADULT");
+    assertNotSame(before, after);
+    assertEquals("美麗華影城", after.get(0).cinema);
+    assertEquals(100, priceService.getLowestPrice("2D", "ADULT"));
+    assertEquals(320, before.get(0).price);
+  }
+
+  @Test
+  void setPrice_newCinemaAndRemoval_shouldUpdateComparison() {
+    priceService.setPrice("新影城", "2D", "ADULT", 200);
+    assertEquals("新影城", priceService.compare("2D", "ADULT").get(0).cinema);
+    assertEquals(200, priceService.getLowestPrice("2D", "ADULT"));
+
+    priceService.setPrice("新影城", "2D", "ADULT", -1);
+    assertEquals(320, priceService.getLowestPrice("2D", "ADULT"));
+    assertEquals(4, priceService.compare("2D", "ADULT").size());
+  }
+
   // =========================
   // Compare
   // =========================
@@ -359,6 +414,97 @@ class PriceServiceTest {
     assertFalse(priceService.isDiscountApplicable("EARLY20", ctx));
   }
 
+  // =========================
+  // Discount rules
+  // =========================
+
+  @Test
+  void discountCode_shouldBeCaseInsensitive() {
+    PriceService.DiscountContext ctx =
+        new PriceService.DiscountContext(LocalDate.now(), 12, false, false);
+
+    assertTrue(priceService.isDiscountApplicable("group10", ctx));
+    assertEquals(270, priceService.applyDiscount(300, "Group10", ctx));
+  }
+
+  @Test
+  void customRule_shouldRespectCinemaFormatAndDateWindow() {
+    LocalDate show = LocalDate.now().plusDays(3);
+    priceService.addDiscount(new PriceService.Discount("IMAXWEEK", "IMAX 首週", 30,
+        new PriceService.DiscountRule()
+            .cinemas("威秀電影城")
+            .formats("IMAX")
+            .showBetween(show, show.plusDays(6))));
+
+    PriceService.DiscountContext match =
+        new PriceService.DiscountContext(show, 1, false, false, "威秀電影城", "IMAX");
+    PriceService.DiscountContext otherCinema =
+        new PriceService.DiscountContext(show, 1, false, false, "國賓大戲院", "IMAX");
+    PriceService.DiscountContext otherFormat =
+        new PriceService.DiscountContext(show, 1, false, false, "威秀電影城", "2D");
+    PriceService.DiscountContext tooLate =
+        new PriceService.DiscountContext(show.plusDays(7), 1, false, false, "威秀電影城", "IMAX");
+
+    assertTrue(priceService.isDiscountApplicable("IMAXWEEK", match));
+    assertFalse(priceService.isDiscountApplicable("IMAXWEEK", otherCinema));
+    assertFalse(priceService.isDiscountApplicable("IMAXWEEK", otherFormat));
+    assertFalse(priceService.isDiscountApplicable("IMAXWEEK", tooLate));
+    assertFalse(priceService.isDiscountApplicable("IMAXWEEK",
+        new PriceService.DiscountContext(show, 1, false, false)));
+  }
+
+  @Test
+  void addDiscount_sameCode_shouldReplace() {
+    priceService.addDiscount(new PriceService.Discount("GROUP10", "團體票（5張以上）", 10,
+        new PriceService.DiscountRule().minQuantity(5)));
+
+    PriceService.DiscountContext ctx =
+        new PriceService.DiscountContext(LocalDate.now(), 5, false, false);
+    assertTrue(priceService.isDiscountApplicable("GROUP10", ctx));
+    assertEquals(4, priceService.getAllDiscounts().size());
+  }
+
+  @Test
+  void getBestDiscount_shouldPickBestExclusivePlusStackable() {
+    PriceService.DiscountContext ctx =
+        new PriceService.DiscountContext(LocalDate.now().plusDays(10), 12, true, true);
+
+    PriceService.DiscountResult best = priceService.getBestDiscount(1000, ctx);
+
+    // EARLY20 勝過 STUDENT15 / GROUP10，再疊加 MEMBER5：1000 * 0.8 * 0.95
+    assertEquals(List.of("EARLY20", "MEMBER5"),
+        best.applied.stream().map(d -> d.code).collect(Collectors.toList()));
+    assertEquals(760, best.finalPrice);
+    assertEquals(1000, best.originalPrice);
+  }
+
+  @Test
+  void getBestDiscount_noneApplicable_shouldKeepPrice() {
+    PriceService.DiscountContext ctx =
+        new PriceService.DiscountContext(LocalDate.now(), 1, false, false);
+
+    PriceService.DiscountResult best = priceService.getBestDiscount(300, ctx);
+
+    assertTrue(best.applied.isEmpty());
+    assertEquals(300, best.finalPrice);
+    assertEquals(300, priceService.getBestDiscount(300, null).finalPrice);
+  }
+
+  @Test
+  void manyCampaigns_shouldAllBeEvaluated() {
+    for (int i = 0; i < 300; i++) {
+      priceService.addDiscount(new PriceService.Discount("C" + i, "活動" + i, i % 40,
+          new PriceService.DiscountRule().minQuantity(i % 7)));
+    }
+    PriceService.DiscountContext ctx =
+        new PriceService.DiscountContext(LocalDate.now(), 3, false, false);
+
+    long expected = IntStream.range(0, 300).filter(i -> i % 7 <= 3).count();
+    assertEquals(expected, priceService.getApplicableDiscounts(ctx).size());
+    int bestPercent = IntStream.range(0, 300).filter(i -> i % 7 <= 3).map(i -> i % 40).max().getAsInt();
+    assertEquals(100 - bestPercent, priceService.getBestDiscount(100, ctx).finalPrice);
+  }
+
   @Test
   void isApplicable_unknownType_shouldReturnFalse() {
     PriceService.DiscountContext ctx =
@@ -368,10 +514,127 @@ class PriceServiceTest {
 
     PriceService.Discount d =
         priceService.getAllDiscounts().get(0);
-    d.type = "UNKNOWN";
+    d.setType("UNKNOWN");
 
     assertFalse(priceService.isDiscountApplicable(d.code, ctx));
   }
 
+  @Test
+  void setRule_onLiveDiscount_shouldBeSeenByNextQuery() {
+    PriceService.DiscountContext ctx =
+        new PriceService.DiscountContext(LocalDate.now().plusDays(1), 2, false, false);
+    PriceService.Discount d = priceService.getAllDiscounts().get(0);
+    assertFalse(priceService.isDiscountApplicable(d.code, ctx));
+
+    d.setRule(new PriceService.DiscountRule().minQuantity(2));
+    assertTrue(priceService.isDiscountApplicable(d.code, ctx));
+  }
+
+  // =========================
+  // Cart
+  // =========================
+
+  @Test
+  void priceCart_mixedTicketsAndMeal_shouldItemize() {
+    PriceService.CartRequest cart = new PriceService.CartRequest("威秀電影城", "2D",
+        new PriceService.DiscountContext(LocalDate.now().plusDays(10), 0, true, false))
+        .addTickets("ADULT", null, 2)
+        .addTickets("CHILD", "PREMIUM", 1)
+        .addMeal("雙人分享套餐", 1);
+    cart.bestDiscount = true;
+
+    PriceService.CartQuote quote = priceService.priceCart(cart);
+
+    assertNotNull(quote);
+    assertEquals(320 * 2 + (240 + 50), quote.ticketSubtotal);
+    assertEquals(280, quote.mealSubtotal);
+    // EARLY20 + MEMBER5 疊加，每張票各自四捨五入
+    assertEquals(List.of("EARLY20", "MEMBER5"),
+        quote.appliedDiscounts.stream().map(d -> d.code).collect(Collectors.toList()));
+    assertEquals((320 - 243) * 2 + (290 - 220), quote.discountTotal);
+    assertEquals(quote.ticketSubtotal + quote.mealSubtotal - quote.discountTotal, quote.total);
+    assertEquals(List.of("TICKET", "TICKET", "MEAL", "DISCOUNT"),
+        quote.lines.stream().map(l -> l.kind).collect(Collectors.toList()));
+    assertEquals(2, quote.lines.get(0).quantity);
+  }
+
+  @Test
+  void priceCart_explicitCode_shouldMatchApplyDiscount() {
+    PriceService.DiscountContext ctx =
+        new PriceService.DiscountContext(LocalDate.now().plusDays(10), 3, false, false);
+    PriceService.CartRequest cart = new PriceService.CartRequest("國賓大戲院", "2D", ctx)
+        .addTickets("ADULT", null, 3);
+    cart.discountCode = "early20";
+
+    PriceService.CartQuote quote = priceService.priceCart(cart);
+
+    assertEquals(priceService.applyDiscount(340, "EARLY20", ctx) * 3, quote.total);
+    assertEquals(0, quote.mealSubtotal);
+  }
+
+  @Test
+  void priceCart_quantityComesFromTickets() {
+    PriceService.CartRequest cart = new PriceService.CartRequest("威秀電影城", "2D",
+        new PriceService.DiscountContext(LocalDate.now(), 1, false, false))
+        .addTickets("ADULT", null, 6)
+        .addTickets("SENIOR", null, 4);
+    cart.discountCode = "GROUP10";
+
+    PriceService.CartQuote quote = priceService.priceCart(cart);
+
+    assertEquals(1, quote.appliedDiscounts.size());
+    assertEquals((320 * 6 + 250 * 4) - (288 * 6 + 225 * 4), quote.discountTotal);
+  }
+
+  @Test
+  void priceCart_noDiscountRequested_shouldKeepFullPrice() {
+    PriceService.CartRequest cart = new PriceService.CartRequest("威秀電影城", "2D",
+        new PriceService.DiscountContext(LocalDate.now().plusDays(10), 0, true, false))
+        .addTickets("ADULT", null, 1)
+        .addMeal("不加購", 1);
+
+    PriceService.CartQuote quote = priceService.priceCart(cart);
+
+    assertEquals(320, quote.total);
+    assertEquals(1, quote.lines.size());
+    assertTrue(quote.appliedDiscounts.isEmpty());
+  }
+
+  @Test
+  void priceCart_unknownItems_shouldReturnNull() {
+    assertNull(priceService.priceCart(new PriceService.CartRequest("不存在影城", "2D", null)
+        .addTickets("ADULT", null, 1)));
+    assertNull(priceService.priceCart(new PriceService.CartRequest("威秀電影城", "2D", null)
+        .addTickets("ADULT", "VIP", 1)));
+    assertNull(priceService.priceCart(new PriceService.CartRequest("威秀電影城", "2D", null)
+        .addTickets("ADULT", null, 1)
+        .addMeal("不存在套餐", 1)));
+    assertNull(priceService.priceCart(new PriceService.CartRequest("威秀電影城", "2D", null)));
+  }
+
+  @Test
+  void addTickets_shouldKeepOneLinePerKind() {
+    PriceService.CartRequest cart = new PriceService.CartRequest("威秀電影城", "2D", null)
+        .addTickets("ADULT", null, 2)
+        .addTickets("ADULT", "STANDARD", 3)
+        .addTickets("ADULT", "PREMIUM", 1)
+        .addTickets("CHILD", null, 0);
+
+    assertEquals(2, cart.tickets.size());
+    assertEquals(5, cart.tickets.get(0).quantity);
+    assertEquals(6, priceService.priceCart(cart).lines.stream().mapToInt(l -> l.quantity).sum());
+  }
+
+  @Test
+  void priceCart_hugeQuantity_shouldReturnNullInsteadOfOverflowing() {
+    PriceService.CartRequest cart = new PriceService.CartRequest("威秀電影城", "2D", null)
+        .addTickets("ADULT", null, Integer.MAX_VALUE / 2);
+    assertNull(priceService.priceCart(cart));
+
+    assertThrows(ArithmeticException.class, () -> cart.addTickets("ADULT", null, Integer.MAX_VALUE));
+    assertNull(priceService.priceCart(new PriceService.CartRequest("威秀電影城", "2D", null)
+        .addTickets("ADULT", null, 1)
+        .addMeal("雙人分享套餐", Integer.MAX_VALUE)));
+  }
 
 }
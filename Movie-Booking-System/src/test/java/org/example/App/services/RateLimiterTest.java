@@ -0,0 +1,118 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+  private static final long MINUTE = 60_000L;
+  private static final long T0 = 1_000 * MINUTE;
+
+  @Test
+  void shouldAllowUpToLimitPerKey() {
+    RateLimiter limiter = new RateLimiter(3, Duration.ofMinutes(1), 100);
+
+    for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire("a", T0));
+    assertFalse(limiter.tryAcquire("a", T0));
+    assertTrue(limiter.tryAcquire("b", T0));
+    assertEquals(3, limiter.used("a", T0));
+  }
+
+  @Test
+  void previousWindow_shouldSlideOutGradually() {
+    RateLimiter limiter = new RateLimiter(4, Duration.ofMinutes(1), 100);
+    for (int i = 0; i < 4; i++) assertTrue(limiter.tryAcquire("a", T0 + MINUTE - 1));
+
+    // 下一個視窗剛開始：上一視窗全算
+    assertFalse(limiter.tryAcquire("a", T0 + MINUTE));
+    // 過了一半：上一視窗只算 2 次
+    assertTrue(limiter.tryAcquire("a", T0 + MINUTE + MINUTE / 2));
+    assertTrue(limiter.tryAcquire("a", T0 + MINUTE + MINUTE / 2));
+    assertFalse(limiter.tryAcquire("a", T0 + MINUTE + MINUTE / 2));
+    // 兩個視窗後完全歸零
+    assertEquals(0, limiter.used("a", T0 + 3 * MINUTE));
+  }
+
+  @Test
+  void reset_shouldClearKey() {
+    RateLimiter limiter = new RateLimiter(1, Duration.ofMinutes(1), 100);
+    assertTrue(limiter.tryAcquire("a", T0));
+    assertFalse(limiter.tryAcquire("a", T0));
+
+    limiter.reset("a");
+    assertTrue(limiter.tryAcquire("a", T0));
+  }
+
+  @Test
+  void keyCount_shouldStayBounded() {
+    RateLimiter limiter = new RateLimiter(5, Duration.ofMinutes(1), 100);
+    for (int i = 0; i < 5_000; i++) limiter.tryAcquire("k" + i, T0);
+    assertTrue(limiter.size() <= 101, "size=" + limiter.size());
+
+    // 過期的 key 在下一次清理時整批移除
+    for (int i = 0; i < 2_048; i++) limiter.tryAcquire("fresh", T0 + 5 * MINUTE);
+    assertEquals(1, limiter.size());
+  }
+
+  @Test
+  void fullTable_shouldKeepBlockedKeysAndRejectNewOnes() {
+    RateLimiter limiter = new RateLimiter(1, Duration.ofMinutes(1), 10);
+    for (int i = 0; i < 10; i++) assertTrue(limiter.tryAcquire("k" + i, T0));
+
+    // 全部都在擋：新 key 拒絕，既有計數不被淘汰
+    assertFalse(limiter.tryAcquire("new", T0));
+    assertEquals(10, limiter.size());
+    for (int i = 0; i < 10; i++) assertFalse(limiter.tryAcquire("k" + i, T0 + 1));
+
+    // 兩個視窗後全部過期，新 key 再次放行
+    assertTrue(limiter.tryAcquire("new", T0 + 3 * MINUTE));
+    assertEquals(1, limiter.size());
+  }
+
+  @Test
+  void fullTable_shouldEvictOnlyKeysUnderLimit() {
+    RateLimiter limiter = new RateLimiter(2, Duration.ofMinutes(1), 10);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(limiter.tryAcquire("blocked" + i, T0));
+      assertTrue(limiter.tryAcquire("blocked" + i, T0));
+    }
+    for (int i = 0; i < 5; i++) assertTrue(limiter.tryAcquire("open" + i, T0));
+
+    assertTrue(limiter.tryAcquire("new", T0));
+    assertTrue(limiter.size() <= 10, "size=" + limiter.size());
+    for (int i = 0; i < 5; i++) assertEquals(2, limiter.used("blocked" + i, T0));
+  }
+
+  @Test
+  void concurrentAcquire_shouldNeverExceedLimit() throws Exception {
+    RateLimiter limiter = new RateLimiter(1_000, Duration.ofMinutes(1), 100);
+    AtomicInteger allowed = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < 500; i++) {
+          if (limiter.tryAcquire("hot", T0)) allowed.incrementAndGet();
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) thread.join();
+
+    assertEquals(1_000, allowed.get());
+  }
+}
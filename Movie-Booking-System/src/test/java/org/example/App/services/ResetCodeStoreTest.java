@@ -0,0 +1,104 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResetCodeStoreTest {
+
+  private static final Duration TTL = Duration.ofMinutes(15);
+  private static final long TTL_MILLIS = TTL.toMillis();
+
+  private final AtomicLong clock = new AtomicLong(1_800_000_000_000L);
+  private final HashedWheelTimer timer = new HashedWheelTimer(1000, 64, false);
+
+  @AfterEach
+  void tearDown() {
+    timer.close();
+  }
+
+  @Test
+  void matches_shouldExpireAfterTtl() {
+    ResetCodeStore store = new ResetCodeStore(TTL, 100, timer, clock::get);
+    store.put("user", "123456");
+
+    assertTrue(store.matches("user", "123456"));
+    assertFalse(store.matches("user", "654321"));
+    assertFalse(store.matches("admin", "123456"));
+
+    clock.addAndGet(TTL_MILLIS);
+    assertFalse(store.matches("user", "123456"));
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void put_shouldReplacePreviousCode() {
+    ResetCodeStore store = new ResetCodeStore(TTL, 100, timer, clock::get);
+    store.put("user", "111111");
+    store.put("user", "222222");
+
+    assertFalse(store.matches("user", "111111"));
+    assertTrue(store.matches("user", "222222"));
+    store.remove("user");
+    assertFalse(store.matches("user", "222222"));
+  }
+
+  @Test
+  void consume_shouldRemoveOnlyMatchedCodeOnce() {
+    ResetCodeStore store = new ResetCodeStore(TTL, 100, timer, clock::get);
+    store.put("user", "111111");
+
+    assertFalse(store.consume("user", "999999"));
+    assertTrue(store.consume("user", "111111"));
+    assertFalse(store.consume("user", "111111"));
+
+    store.put("user", "222222");
+    assertFalse(store.consume("user", "111111"));
+    assertTrue(store.matches("user", "222222"));
+
+    clock.addAndGet(TTL_MILLIS);
+    assertFalse(store.consume("user", "222222"));
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void put_shouldEvictOldestBeyondCap() {
+    ResetCodeStore store = new ResetCodeStore(TTL, 3, timer, clock::get);
+    for (int i = 0; i < 5; i++) {
+      clock.addAndGet(1);
+      store.put("u" + i, "00000" + i);
+    }
+
+    assertEquals(3, store.size());
+    assertFalse(store.matches("u0", "000000"));
+    assertFalse(store.matches("u1", "000001"));
+    assertTrue(store.matches("u4", "000004"));
+  }
+
+  @Test
+  void put_shouldSweepExpiredFromHead() {
+    ResetCodeStore store = new ResetCodeStore(TTL, 100, timer, clock::get);
+    for (int i = 0; i < 10; i++) store.put("old" + i, "123456");
+
+    clock.addAndGet(TTL_MILLIS);
+    store.put("new", "123456");
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void timer_shouldSweepWithoutFurtherAccess() {
+    ResetCodeStore store = new ResetCodeStore(Duration.ofSeconds(30), 100, timer, clock::get);
+    long wallNow = System.currentTimeMillis();
+    timer.advanceTo(wallNow);
+    store.put("user", "123456");
+
+    clock.addAndGet(30_000);
+    timer.advanceTo(wallNow + 32_000);
+    assertEquals(0, store.size());
+    assertEquals(0, timer.pendingCount(), "沒有重設碼時不再排程");
+  }
+}
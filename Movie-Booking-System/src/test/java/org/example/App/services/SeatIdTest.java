@@ -0,0 +1,63 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatIdTest {
+
+  @Test
+  void parseAndLabel_shouldRoundTrip() {
+    for (int row = 0; row < SeatId.MAX_ROWS; row++) {
+      for (int number : new int[]{1, 9, 10, 64, 65, 100, 999, SeatId.MAX_NUMBER}) {
+        int code = SeatId.of(row, number);
+        assertTrue(SeatId.isValid(code));
+        assertEquals(row, SeatId.row(code));
+        assertEquals(number, SeatId.number(code));
+        assertEquals(code, SeatId.parse(SeatId.label(code)));
+      }
+    }
+    assertEquals(SeatId.of(2, 7), SeatId.parse("c7"));
+    assertSame(SeatId.label(SeatId.of(0, 1)), SeatId.label(SeatId.parse("A1")));
+  }
+
+  @Test
+  void parse_invalid_shouldReturnInvalid() {
+    for (String bad : Arrays.asList(null, "", "A", "A0", "A-1", "1A", "AA1", "A1x", "[1", "A65536", "A99999999999")) {
+      assertEquals(SeatId.INVALID, SeatId.parse(bad), String.valueOf(bad));
+    }
+    assertEquals(SeatId.INVALID, SeatId.of(SeatId.MAX_ROWS, 1));
+    assertEquals(SeatId.INVALID, SeatId.of(0, 0));
+    assertNull(SeatId.label(SeatId.INVALID));
+    assertNull(SeatId.parseAll(List.of("A1", "Z0")));
+  }
+
+  @Test
+  void batchHelpers_shouldKeepOrder() {
+    int[] codes = SeatId.parseAll(List.of("B3", "B4", "C12"));
+    assertNotNull(codes);
+    assertEquals(List.of("B3", "B4", "C12"), SeatId.labels(codes));
+    assertEquals("B3, B4, C12", SeatId.join(codes, ", "));
+    assertEquals("", SeatId.join(new int[0], ", "));
+  }
+
+  @Test
+  void hallLayout_shouldMapCodesThroughAisles() {
+    HallLayout layout = HallLayout.parse("aisle", "SS.SS", "SS.S.");
+    assertEquals(3, layout.indexOf(SeatId.parse("A3")));
+    assertEquals(SeatId.parse("A3"), layout.seatCodeOf(3));
+    assertEquals(-1, layout.indexOf(SeatId.parse("B4")));
+    assertEquals(-1, layout.indexOf(SeatId.parse("C1")));
+    assertEquals(SeatId.INVALID, layout.seatCodeOf(2));
+
+    SeatMap map = new SeatMap(layout);
+    int[] codes = SeatId.parseAll(List.of("A1", "A4", "B3"));
+    int[] indexes = map.toIndexes(codes);
+    assertArrayEquals(new int[]{0, 4, 8}, indexes);
+    assertArrayEquals(codes, map.toSeatCodes(indexes));
+    assertNull(map.toIndexes(SeatId.parseAll(List.of("A1", "B4"))));
+  }
+}
@@ -0,0 +1,364 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapTest {
+
+  private SeatMap seatMap;
+
+  @BeforeEach
+  void setup() {
+    seatMap = new SeatMap(8, 12);
+  }
+
+  // =========================
+  // Index helpers
+  // =========================
+
+  @Test
+  void indexOf_validSeat_shouldMapRowMajor() {
+    assertEquals(0, seatMap.indexOf("A1"));
+    assertEquals(12, seatMap.indexOf("B1"));
+    assertEquals(95, seatMap.indexOf("h12"));
+  }
+
+  @Test
+  void indexOf_invalidSeat_shouldReturnMinusOne() {
+    assertEquals(-1, seatMap.indexOf(null));
+    assertEquals(-1, seatMap.indexOf(""));
+    assertEquals(-1, seatMap.indexOf("A0"));
+    assertEquals(-1, seatMap.indexOf("A13"));
+    assertEquals(-1, seatMap.indexOf("I1"));
+    assertEquals(-1, seatMap.indexOf("A?"));
+    assertEquals(-1, seatMap.indexOf("A99999999999"));
+  }
+
+  @Test
+  void seatIdOf_shouldRoundTrip() {
+    for (int i = 0; i < seatMap.getCapacity(); i++) {
+      assertEquals(i, seatMap.indexOf(seatMap.seatIdOf(i)));
+    }
+  }
+
+  // =========================
+  // Reserve / release
+  // =========================
+
+  @Test
+  void reserveAll_shouldMarkSeatsAndCount() {
+    assertTrue(seatMap.reserveAll(new int[]{0, 1, 70}));
+
+    assertFalse(seatMap.isAvailable("A1"));
+    assertFalse(seatMap.isAvailable("F11"));
+    assertTrue(seatMap.isAvailable("A3"));
+    assertEquals(3, seatMap.getBookedCount());
+    assertEquals(93, seatMap.getAvailableCount());
+  }
+
+  @Test
+  void reserveAll_withTakenSeat_shouldChangeNothing() {
+    seatMap.reserveAll(new int[]{5});
+
+    assertFalse(seatMap.reserveAll(new int[]{4, 5, 6}));
+    assertTrue(seatMap.isAvailable(4));
+    assertTrue(seatMap.isAvailable(6));
+    assertEquals(1, seatMap.getBookedCount());
+  }
+
+  @Test
+  void reserveAll_duplicateIndex_shouldCountOnce() {
+    assertTrue(seatMap.reserveAll(new int[]{3, 3}));
+    assertEquals(1, seatMap.getBookedCount());
+  }
+
+  @Test
+  void releaseAll_shouldIgnoreFreeSeats() {
+    seatMap.reserveAll(new int[]{10, 11});
+    seatMap.releaseAll(new int[]{10, 20, -1});
+
+    assertTrue(seatMap.isAvailable(10));
+    assertFalse(seatMap.isAvailable(11));
+    assertEquals(1, seatMap.getBookedCount());
+  }
+
+  @Test
+  void toIndexes_anyInvalid_shouldReturnNull() {
+    assertNull(seatMap.toIndexes(List.of("A1", "Z9")));
+    assertArrayEquals(new int[]{0, 13}, seatMap.toIndexes(List.of("A1", "B2")));
+  }
+
+  // =========================
+  // View
+  // =========================
+
+  @Test
+  void bookedView_shouldReflectLiveState() {
+    Set<String> view = seatMap.bookedView();
+    assertTrue(view.isEmpty());
+
+    seatMap.reserveAll(new int[]{0, 63, 64, 95});
+
+    assertEquals(4, view.size());
+    assertTrue(view.contains("A1"));
+    assertTrue(view.contains("H12"));
+    assertFalse(view.contains("A2"));
+    assertFalse(view.contains(42));
+
+    List<String> seen = new ArrayList<>(view);
+    assertEquals(List.of("A1", "F4", "F5", "H12"), seen);
+  }
+
+  @Test
+  void bookedView_shouldBeReadOnly() {
+    assertThrows(UnsupportedOperationException.class,
+        () -> seatMap.bookedView().add("A1"));
+  }
+
+  // =========================
+  // Hold
+  // =========================
+
+  @Test
+  void holdAll_shouldBlockReserveAndCountSeparately() {
+    assertTrue(seatMap.holdAll(new int[]{1, 2}));
+
+    assertFalse(seatMap.isAvailable(1));
+    assertFalse(seatMap.reserveAll(new int[]{2}));
+    assertFalse(seatMap.holdAll(new int[]{2, 3}));
+    assertEquals(0, seatMap.getBookedCount());
+    assertEquals(2, seatMap.getHeldCount());
+    assertEquals(94, seatMap.getAvailableCount());
+  }
+
+  @Test
+  void commitHeld_shouldMoveHeldToBooked() {
+    seatMap.holdAll(new int[]{4, 5});
+
+    assertFalse(seatMap.commitHeld(new int[]{4, 6}));
+    assertTrue(seatMap.commitHeld(new int[]{4, 5}));
+
+    assertTrue(seatMap.isBooked(4));
+    assertFalse(seatMap.isHeld(5));
+    assertEquals(2, seatMap.getBookedCount());
+    assertEquals(0, seatMap.getHeldCount());
+  }
+
+  @Test
+  void unavailableView_shouldIncludeHeldSeats() {
+    seatMap.reserveAll(new int[]{0});
+    seatMap.holdAll(new int[]{1});
+
+    assertEquals(List.of("A1"), new ArrayList<>(seatMap.bookedView()));
+    assertEquals(List.of("A1", "A2"), new ArrayList<>(seatMap.unavailableView()));
+    assertTrue(seatMap.unavailableView().contains("A2"));
+
+    seatMap.releaseHeld(new int[]{1, 7});
+    assertEquals(1, seatMap.unavailableView().size());
+  }
+
+  // =========================
+  // Best available
+  // =========================
+
+  @Test
+  void findBestBlock_emptyHall_shouldPickCenterOfIdealRow() {
+    assertEquals(4, seatMap.idealRow());
+    assertArrayEquals(new int[]{52, 53, 54, 55}, seatMap.findBestBlock(4));
+    assertArrayEquals(new int[]{48, 49, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59}, seatMap.findBestBlock(12));
+    assertNull(seatMap.findBestBlock(13));
+    assertNull(seatMap.findBestBlock(0));
+  }
+
+  @Test
+  void findBestBlock_shouldMoveToNextRowBeforeDriftingToAisle() {
+    seatMap.reserveAll(new int[]{seatMap.indexOf("E5")});
+
+    int[] block = seatMap.findBestBlock(4);
+    assertEquals("F5", seatMap.seatIdOf(block[0]));
+    assertEquals("F8", seatMap.seatIdOf(block[3]));
+  }
+
+  @Test
+  void freeRuns_shouldFollowHoldsAndReleases() {
+    int[] rowE = new int[12];
+    for (int c = 0; c < 12; c++) rowE[c] = 48 + c;
+    assertTrue(seatMap.holdAll(rowE));
+    assertEquals(0, seatMap.longestFreeRun(4));
+
+    seatMap.releaseHeld(new int[]{50, 51, 52});
+    assertEquals(3, seatMap.longestFreeRun(4));
+    seatMap.releaseHeld(rowE);
+    assertEquals(12, seatMap.longestFreeRun(4));
+  }
+
+  @Test
+  void findBestBlock_fullHall_shouldReturnNull() {
+    int[] all = new int[96];
+    for (int i = 0; i < all.length; i++) all[i] = i;
+    seatMap.reserveAll(all);
+
+    assertNull(seatMap.findBestBlock(1));
+  }
+
+  @Test
+  void findBestBlock_shouldMatchBruteForceScore() {
+    Random rnd = new Random(7);
+    for (int round = 0; round < 300; round++) {
+      SeatMap map = new SeatMap(20, 25);
+      for (int i = 0; i < map.getCapacity(); i++) {
+        if (rnd.nextInt(100) < 55) map.reserveAll(new int[]{i});
+      }
+      int qty = 1 + rnd.nextInt(6);
+
+      double expected = bruteForceBest(map, qty);
+      int[] block = map.findBestBlock(qty);
+      if (Double.isNaN(expected)) {
+        assertNull(block);
+        continue;
+      }
+      assertNotNull(block);
+      assertTrue(map.areAllAvailable(block));
+      assertEquals(block[0] / 25, block[qty - 1] / 25, "同排");
+      assertEquals(expected, score(map, block[0], qty), 1e-9);
+    }
+  }
+
+  @Test
+  void findPartyBlocks_shouldPreferSingleBlock() {
+    int[][] blocks = seatMap.findPartyBlocks(4);
+    assertEquals(1, blocks.length);
+    assertArrayEquals(seatMap.findBestBlock(4), blocks[0]);
+  }
+
+  @Test
+  void findPartyBlocks_shouldSplitIntoAdjacentRows() {
+    fenceEveryRow(seatMap, 3, 7, 11);
+
+    int[][] blocks = seatMap.findPartyBlocks(6);
+    assertEquals(2, blocks.length);
+    assertEquals(List.of("D5", "D6", "D7"), seatIds(seatMap, blocks[0]));
+    assertEquals(List.of("E5", "E6", "E7"), seatIds(seatMap, blocks[1]));
+
+    // 7 人：2 排放不下 4 + 3，改成 3 排
+    int[][] seven = seatMap.findPartyBlocks(7);
+    assertEquals(3, seven.length);
+    assertValidParty(seatMap, seven, 7);
+  }
+
+  @Test
+  void findPartyBlocks_notEnoughSeats_shouldReturnNull() {
+    fenceEveryRow(seatMap, 0, 2, 4, 6, 8, 10);
+    assertNull(seatMap.findPartyBlocks(2 * 8 + 1), "每排都只剩單一座位段，連續排數不夠");
+    assertNull(seatMap.findPartyBlocks(97));
+    assertNull(seatMap.findPartyBlocks(0));
+  }
+
+  @Test
+  void findPartyBlocks_randomHalls_shouldReturnValidAdjacentBlocks() {
+    Random rnd = new Random(11);
+    for (int round = 0; round < 300; round++) {
+      SeatMap map = new SeatMap(20, 25);
+      for (int i = 0; i < map.getCapacity(); i++) {
+        if (rnd.nextInt(100) < 60) map.reserveAll(new int[]{i});
+      }
+      int qty = 2 + rnd.nextInt(14);
+      int[][] blocks = map.findPartyBlocks(qty);
+      if (blocks == null) continue;
+      assertValidParty(map, blocks, qty);
+      if (map.findBestBlock(qty) != null) assertEquals(1, blocks.length);
+    }
+  }
+
+  // =========================
+  // Hall layout
+  // =========================
+
+  @Test
+  void layout_shouldDriveCapacityAndAvailability() {
+    SeatMap map = new SeatMap(HallLayout.parse("走道廳",
+        "SSSS.SSSS",
+        "SSSS.SSSS",
+        "..SS.SS.."));
+
+    assertEquals(20, map.getCapacity());
+    assertEquals(27, map.getGridSize());
+    assertEquals(20, map.getAvailableCount());
+    assertFalse(map.isAvailable(4), "走道");
+    assertFalse(map.areAllAvailable(new int[]{3, 4}));
+    assertEquals(-1, map.indexOf(0, 4));
+    assertEquals(5, map.indexOf("A5"));
+    assertEquals("C3", map.seatIdOf(20));
+
+    assertTrue(map.reserveAll(new int[]{map.indexOf("A1")}));
+    assertEquals(19, map.getAvailableCount());
+    assertEquals(List.of("A1"), new ArrayList<>(map.unavailableView()));
+  }
+
+  @Test
+  void findBestBlock_shouldNotSpanAisle() {
+    SeatMap map = new SeatMap(HallLayout.parse("走道廳",
+        "SSSS.SSSS",
+        "SSSS.SSSS"));
+
+    assertEquals(4, map.longestFreeRun(0));
+    assertNull(map.findBestBlock(5));
+    int[][] party = map.findPartyBlocks(6);
+    assertEquals(2, party.length);
+    assertValidParty(map, party, 6);
+  }
+
+  private static void fenceEveryRow(SeatMap map, int... cols) {
+    for (int r = 0; r < map.getRows(); r++) {
+      for (int c : cols) map.reserveAll(new int[]{r * map.getCols() + c});
+    }
+  }
+
+  private static List<String> seatIds(SeatMap map, int[] block) {
+    List<String> out = new ArrayList<>();
+    for (int idx : block) out.add(map.seatIdOf(idx));
+    return out;
+  }
+
+  private static void assertValidParty(SeatMap map, int[][] blocks, int qty) {
+    int total = 0;
+    int firstRow = blocks[0][0] / map.getCols();
+    for (int i = 0; i < blocks.length; i++) {
+      int[] block = blocks[i];
+      assertTrue(map.areAllAvailable(block));
+      assertEquals(firstRow + i, block[0] / map.getCols(), "相鄰排");
+      for (int k = 1; k < block.length; k++) assertEquals(block[k - 1] + 1, block[k], "連號");
+      assertEquals(block[0] / map.getCols(), block[block.length - 1] / map.getCols(), "同排");
+      total += block.length;
+    }
+    assertEquals(qty, total);
+  }
+
+  private static double bruteForceBest(SeatMap map, int qty) {
+    double best = Double.NaN;
+    for (int r = 0; r < map.getRows(); r++) {
+      for (int c = 0; c + qty <= map.getCols(); c++) {
+        boolean free = true;
+        for (int k = 0; k < qty; k++) free &= map.isAvailable(r * map.getCols() + c + k);
+        if (!free) continue;
+        double s = score(map, r * map.getCols() + c, qty);
+        if (Double.isNaN(best) || s < best) best = s;
+      }
+    }
+    return best;
+  }
+
+  private static double score(SeatMap map, int first, int qty) {
+    int row = first / map.getCols();
+    int start = first % map.getCols();
+    return (double) Math.abs(row - map.idealRow()) / map.getRows()
+        + (double) Math.abs(2 * start + qty - map.getCols()) / map.getCols();
+  }
+}
@@ -0,0 +1,128 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+  private static final Duration IDLE = Duration.ofMinutes(30);
+  private static final long IDLE_MILLIS = IDLE.toMillis();
+
+  private final AtomicLong clock = new AtomicLong(1_800_000_000_000L);
+  private final HashedWheelTimer timer = new HashedWheelTimer(1000, 64, false);
+  private final SessionStore store = new SessionStore(IDLE, timer, clock::get);
+
+  @Test
+  void get_shouldExpireAfterIdleTimeout() {
+    UserSession s = store.create("user");
+
+    clock.addAndGet(IDLE_MILLIS - 1);
+    assertSame(s, store.get(s.getToken()));
+
+    clock.addAndGet(IDLE_MILLIS - 1);
+    assertSame(s, store.get(s.getToken()), "存取會延長閒置期限");
+
+    clock.addAndGet(IDLE_MILLIS);
+    assertNull(store.get(s.getToken()));
+    assertFalse(s.isActive());
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void timer_shouldEvictIdleSessionsWithoutAccess() {
+    UserSession idle = store.create("a");
+    UserSession busy = store.create("b");
+    long wallNow = System.currentTimeMillis();
+    timer.advanceTo(wallNow);
+
+    clock.addAndGet(IDLE_MILLIS / 2);
+    store.get(busy.getToken());
+    clock.addAndGet(IDLE_MILLIS / 2);
+    timer.advanceTo(wallNow + IDLE_MILLIS + 2000);
+
+    assertFalse(idle.isActive());
+    assertTrue(busy.isActive());
+    assertEquals(1, store.size());
+
+    clock.addAndGet(IDLE_MILLIS);
+    timer.advanceTo(wallNow + 2 * IDLE_MILLIS + 4000);
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  void remove_shouldInvalidateOnlyThatSession() {
+    UserSession a = store.create("user");
+    UserSession b = store.create("user");
+
+    assertTrue(store.remove(a.getToken()));
+    assertFalse(store.remove(a));
+
+    assertNull(store.get(a.getToken()));
+    assertSame(b, store.get(b.getToken()));
+  }
+
+  @Test
+  void removeUser_shouldKeepGivenSession() {
+    UserSession keep = store.create("user");
+    store.create("user");
+    UserSession other = store.create("admin");
+
+    assertEquals(1, store.removeUser("user", keep));
+
+    assertTrue(keep.isActive());
+    assertTrue(other.isActive());
+    assertEquals(2, store.size());
+  }
+
+  @Test
+  void userIndex_shouldFollowCreateRemoveAndExpiry() {
+    for (int i = 0; i < 1000; i++) store.create("u" + i);
+    UserSession a = store.create("target");
+    UserSession b = store.create("target");
+    assertEquals(1001, store.indexedUsers());
+
+    store.remove(a);
+    assertEquals(1, store.removeUser("target", null));
+    assertFalse(b.isActive());
+    assertEquals(0, store.removeUser("target", null));
+    assertEquals(1000, store.indexedUsers());
+
+    UserSession fresh = store.create("u0");
+    assertEquals(1, store.removeUser("u0", fresh));
+    assertTrue(fresh.isActive());
+    assertEquals(1000, store.indexedUsers());
+  }
+
+  @Test
+  void concurrentCreate_shouldIssueUniqueTokens() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<String>>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int id = t;
+        futures.add(pool.submit(() -> {
+          List<String> tokens = new ArrayList<>();
+          for (int i = 0; i < 1000; i++) tokens.add(store.create("u" + id).getToken());
+          return tokens;
+        }));
+      }
+      Set<String> all = new HashSet<>();
+      for (Future<List<String>> f : futures) all.addAll(f.get());
+      assertEquals(8000, all.size());
+      assertEquals(8000, store.size());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
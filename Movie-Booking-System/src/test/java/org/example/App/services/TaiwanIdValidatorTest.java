@@ -0,0 +1,66 @@
+package org.example.App.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaiwanIdValidatorTest {
+
+  @Test
+  void isValid_shouldIgnoreSurroundingSpacesAndCase() {
+    assertTrue(TaiwanIdValidator.isValid("A123456789"));
+    assertTrue(TaiwanIdValidator.isValid("  a123456789\t"));
+    assertFalse(TaiwanIdValidator.isValid("A12345 6789"));
+    assertFalse(TaiwanIdValidator.isValid("A1234567890"));
+    assertFalse(TaiwanIdValidator.isValid("１123456789"));
+    assertFalse(TaiwanIdValidator.isValid(""));
+    assertFalse(TaiwanIdValidator.isValid(null));
+  }
+
+  @Test
+  void isValid_shouldMatchRegexImplementation() {
+    Random rnd = new Random(42);
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcz0123456789 -";
+    for (int n = 0; n < 20_000; n++) {
+      StringBuilder sb = new StringBuilder();
+      sb.append((char) ('A' + rnd.nextInt(26)));
+      int len = 8 + rnd.nextInt(4);
+      for (int i = 0; i < len; i++) {
+        sb.append(rnd.nextInt(10) < 9 ? (char) ('0' + rnd.nextInt(10)) : alphabet.charAt(rnd.nextInt(alphabet.length())));
+      }
+      String id = sb.toString();
+      assertEquals(legacy(id), TaiwanIdValidator.isValid(id), id);
+    }
+  }
+
+  @Test
+  void validateAll_shouldKeepOrderAcrossParallelThreshold() {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < TaiwanIdValidator.PARALLEL_THRESHOLD * 3; i++) {
+      ids.add(i % 3 == 0 ? "A123456788" : "A123456789");
+    }
+
+    boolean[] result = TaiwanIdValidator.validateAll(ids);
+    assertEquals(ids.size(), result.length);
+    for (int i = 0; i < result.length; i++) assertEquals(i % 3 != 0, result[i], "index " + i);
+
+    assertArrayEquals(new boolean[]{true, false, false},
+        TaiwanIdValidator.validateAll(Arrays.asList("A123456789", null, "X")));
+    assertEquals(0, TaiwanIdValidator.validateAll(null).length);
+  }
+
+  /** 舊版實作（regex + trim/toUpperCase），用來比對結果一致 */
+  private static boolean legacy(String id) {
+    String s = id.trim().toUpperCase();
+    if (!s.matches("^[A-Z][0-9]{9}$")) return false;
+    int code = "ABCDEFGHJKLMNPQRSTUVXYWZIO".indexOf(s.charAt(0)) + 10;
+    int sum = code / 10 + code % 10 * 9;
+    for (int i = 1; i <= 9; i++) sum += (s.charAt(i) - '0') * (i <= 8 ? 9 - i : 1);
+    return sum % 10 == 0;
+  }
+}
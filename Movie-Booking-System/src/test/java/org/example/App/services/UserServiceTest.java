@@ -1,9 +1,20 @@
 package org.example.App.services;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -11,9 +22,17 @@ class UserServiceTest {
 
   private UserService userService;
 
+  /** 測試用低工作量，避免每個測試都花時間在 PBKDF2 */
+  private static final PasswordHasher FAST_HASHER = new PasswordHasher(1_000);
+
   @BeforeEach
   void setup() {
-    userService = new UserService();
+    userService = new UserService(Duration.ofMinutes(30), FAST_HASHER);
+  }
+
+  @AfterEach
+  void tearDown() {
+    userService.close();
   }
 
   // =========================
@@ -382,5 +401,386 @@ class UserServiceTest {
     assertNull(userService.getNationalIdOfCurrentUser());
   }
 
+  // =========================
+  // Email / phone index
+  // =========================
+
+  @Test
+  void findByEmail_shouldIgnoreCaseAndWhitespace() {
+    assertEquals("user", userService.findByEmail("  USER@Example.com ").userId);
+    assertNull(userService.findByEmail("nobody@example.com"));
+    assertNull(userService.findByEmail(" "));
+  }
+
+  @Test
+  void findByPhone_shouldNormalizeSeparatorsAndCountryCode() {
+    assertEquals("user", userService.findByPhone("0987-654-321").userId);
+    assertEquals("user", userService.findByPhone("+886 987 654 321").userId);
+    assertNull(userService.findByPhone("0900000000"));
+  }
+
+  @Test
+  void registerUser_duplicateEmailOrPhone_shouldFail() {
+    assertFalse(userService.registerUser("u1", "abcd", "User@Example.com", "0911000111"));
+    assertFalse(userService.registerUser("u2", "abcd", "u2@example.com", "0987 654 321"));
+    assertTrue(userService.registerUser("u3", "abcd", "", ""));
+    assertTrue(userService.registerUser("u4", "abcd", null, null));
+    assertNull(userService.findByEmail(""));
+  }
+
+  @Test
+  void requestPasswordReset_byPhone_shouldFindUser() {
+    String code = userService.requestPasswordReset("0987654321");
+    assertNotNull(code);
+    assertTrue(userService.confirmPasswordReset("0987-654-321", code, "newpass"));
+    assertTrue(userService.authenticate("user", "newpass"));
+  }
+
+  @Test
+  void updateContact_shouldMoveIndexEntries() {
+    userService.authenticate("user", "1234");
+
+    assertTrue(userService.updateContactForCurrentUser("New@Example.com", null));
+
+    assertNull(userService.findByEmail("user@example.com"));
+    assertEquals("user", userService.findByEmail("new@example.com").userId);
+    assertEquals("user", userService.findByPhone("0987654321").userId);
+    assertTrue(userService.registerUser("u1", "abcd", "user@example.com", "0911000111"));
+  }
+
+  @Test
+  void updateContact_takenByOtherUser_shouldChangeNothing() {
+    userService.authenticate("user", "1234");
+
+    assertFalse(userService.updateContactForCurrentUser("new@example.com", "0912345678"));
+    assertFalse(userService.updateContactForCurrentUser("ADMIN@example.com", null));
+
+    assertEquals("user@example.com", userService.getAllUsers().get("user").email);
+    assertEquals("user", userService.findByEmail("user@example.com").userId);
+    assertTrue(userService.updateContactForCurrentUser(null, "0987654321"));
+  }
+
+  @Test
+  void updateContact_notLoggedIn_shouldFail() {
+    assertFalse(userService.updateContactForCurrentUser("x@example.com", null));
+  }
+
+  @Test
+  void findByEmail_accountRemovedFromMap_shouldReturnNull() {
+    userService.getAllUsers().remove("user");
+
+    assertNull(userService.findByEmail("user@example.com"));
+    assertNull(userService.requestPasswordReset("user@example.com"));
+    assertTrue(userService.registerUser("u1", "abcd", "user@example.com", "0987654321"));
+  }
+
+  // =========================
+  // Sessions
+  // =========================
+
+  @Test
+  void login_shouldCreateIndependentSessions() {
+    UserSession a = userService.login("user", "1234");
+    UserSession b = userService.login("admin", "admin123");
+
+    assertNotNull(a);
+    assertNotEquals(a.getToken(), b.getToken());
+    assertEquals("user", userService.getCurrentUserId(a));
+    assertFalse(userService.isCurrentUserAdmin(a));
+    assertTrue(userService.isCurrentUserAdmin(b));
+    assertSame(a, userService.getSession(a.getToken()));
+    assertFalse(userService.isLoggedIn(), "login 不影響桌面版的目前階段");
+
+    userService.logout(a);
+    assertFalse(userService.isLoggedIn(a));
+    assertNull(userService.getSession(a.getToken()));
+    assertTrue(userService.isLoggedIn(b));
+  }
+
+  @Test
+  void login_wrongPassword_shouldReturnNull() {
+    assertNull(userService.login("user", "wrong"));
+    assertNull(userService.login(null, "1234"));
+    assertNull(userService.getSession(null));
+    assertFalse(userService.isLoggedIn((UserSession) null));
+  }
+
+  @Test
+  void profile_shouldFollowSessionUser() {
+    UserSession a = userService.login("user", "1234");
+    UserSession b = userService.login("admin", "admin123");
+
+    assertTrue(userService.setAreaForCurrentUser(a, "台中"));
+    assertTrue(userService.setNationalIdForCurrentUser(b, "A123456789"));
+
+    assertEquals("台中", userService.getAreaOfCurrentUser(a));
+    assertEquals("台北", userService.getAreaOfCurrentUser(b));
+    assertEquals("A123456789", userService.getNationalIdOfCurrentUser(b));
+    assertNull(userService.getNationalIdOfCurrentUser(a));
+    a.setAttribute("cart", "A1,A2");
+    assertEquals("A1,A2", userService.getSession(a.getToken()).getAttribute("cart"));
+    assertNull(b.getAttribute("cart"));
+  }
+
+  @Test
+  void authenticate_again_shouldReplaceCurrentSession() {
+    userService.authenticate("user", "1234");
+    UserSession first = userService.getCurrentSession();
+
+    userService.authenticate("admin", "admin123");
+
+    assertFalse(first.isActive());
+    assertEquals("admin", userService.getCurrentUserId());
+    assertEquals(1, userService.getSessions().size());
+  }
+
+  @Test
+  void changePassword_shouldLogOutOtherSessionsOfSameUser() {
+    UserSession kiosk = userService.login("user", "1234");
+    UserSession other = userService.login("admin", "admin123");
+    userService.authenticate("user", "1234");
+
+    assertTrue(userService.changePassword("1234", "abcd"));
+
+    assertTrue(userService.isLoggedIn());
+    assertFalse(userService.isLoggedIn(kiosk));
+    assertTrue(userService.isLoggedIn(other));
+  }
+
+  @Test
+  void confirmPasswordReset_shouldLogOutAllSessions() {
+    UserSession s = userService.login("user", "1234");
+    String code = userService.requestPasswordReset("user");
+
+    assertTrue(userService.confirmPasswordReset("user", code, "abcd"));
+
+    assertFalse(userService.isLoggedIn(s));
+  }
+
+  // =========================
+  // Password hashing
+  // =========================
+
+  @Test
+  void passwords_shouldBeStoredHashed() {
+    userService.registerUser("u1", "abcd", "u1@example.com", "0911000111");
+
+    String stored = userService.getAllUsers().get("u1").password;
+    assertTrue(PasswordHasher.isHashed(stored));
+    assertFalse(stored.contains("abcd"));
+    assertTrue(PasswordHasher.isHashed(userService.getAllUsers().get("user").password));
+    assertTrue(userService.authenticate("u1", "abcd"));
+  }
+
+  @Test
+  void legacyPlaintextPassword_shouldBeUpgradedOnLogin() {
+    userService.getAllUsers().get("user").password = "plain";
+
+    assertFalse(userService.authenticate("user", "wrong"));
+    assertEquals("plain", userService.getAllUsers().get("user").password);
+    assertTrue(userService.authenticate("user", "plain"));
+    assertTrue(PasswordHasher.isHashed(userService.getAllUsers().get("user").password));
+    assertTrue(userService.authenticate("user", "plain"));
+  }
+
+  @Test
+  void loginAsync_shouldCompleteWithSessionOrNull() throws Exception {
+    CompletableFuture<UserSession> ok = userService.loginAsync("user", "1234");
+    CompletableFuture<UserSession> bad = userService.loginAsync("user", "nope");
+
+    assertEquals("user", ok.get(5, TimeUnit.SECONDS).getUserId());
+    assertNull(bad.get(5, TimeUnit.SECONDS));
+    assertNull(userService.loginAsync("nobody", "1234").getNow(null));
+  }
+
+  @Test
+  void authenticateAsync_shouldSetCurrentSession() throws Exception {
+    assertTrue(userService.authenticateAsync("admin", "admin123").get(5, TimeUnit.SECONDS));
+    assertTrue(userService.isCurrentUserAdmin());
+  }
+
+  @Test
+  void saturatedHashPool_shouldRejectInsteadOfQueueing() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    PasswordHasher blocking = new PasswordHasher(1_000) {
+      @Override
+      public boolean verify(String password, String stored) {
+        started.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.verify(password, stored);
+      }
+    };
+    UserService small = new UserService(new SessionStore(), blocking, 1, 1);
+    try {
+      small.seeded().join();
+      CompletableFuture<UserSession> running = small.loginAsync("user", "1234");
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      CompletableFuture<UserSession> queued = small.loginAsync("user", "1234");
+      CompletableFuture<UserSession> rejected = small.loginAsync("user", "1234");
+
+      CompletionException e = assertThrows(CompletionException.class, rejected::join);
+      assertInstanceOf(RejectedExecutionException.class, e.getCause());
+      assertTrue(UserService.isBusy(e));
+
+      CompletableFuture<Boolean> auth = small.authenticateAsync("admin", "admin123");
+      CompletableFuture<Boolean> register = small.registerUserAsync("busy", "pass1", "b@example.com", "0922222222");
+      assertTrue(UserService.isBusy(assertThrows(CompletionException.class, auth::join)));
+      assertTrue(UserService.isBusy(assertThrows(CompletionException.class, register::join)));
+      assertFalse(UserService.isBusy(null));
+
+      release.countDown();
+      assertNotNull(running.get(5, TimeUnit.SECONDS));
+      assertNotNull(queued.get(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      small.close();
+    }
+  }
+
+  @Test
+  void loginAsync_unknownUser_shouldSpendOneVerifyOnHashPool() throws Exception {
+    AtomicInteger verifies = new AtomicInteger();
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    PasswordHasher counting = new PasswordHasher(1_000) {
+      @Override
+      public boolean verify(String password, String stored) {
+        verifies.incrementAndGet();
+        threads.add(Thread.currentThread().getName());
+        return super.verify(password, stored);
+      }
+    };
+    UserService svc = new UserService(Duration.ofMinutes(30), counting);
+    try {
+      assertNull(svc.loginAsync("nobody", "1234").get(5, TimeUnit.SECONDS));
+      assertNull(svc.loginAsync("user", "wrong").get(5, TimeUnit.SECONDS));
+      assertEquals(2, verifies.get());
+      assertTrue(threads.stream().allMatch(t -> t.startsWith("password-hash-")), threads.toString());
+    } finally {
+      svc.close();
+    }
+  }
+
+  @Test
+  void constructor_shouldNotHashOnCallingThread() {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    PasswordHasher recording = new PasswordHasher(1_000) {
+      @Override
+      public String hash(String password) {
+        threads.add(Thread.currentThread().getName());
+        return super.hash(password);
+      }
+    };
+    UserService svc = new UserService(Duration.ofMinutes(30), recording);
+    try {
+      assertNotNull(svc.login("admin", "admin123"));
+      assertFalse(threads.contains(Thread.currentThread().getName()));
+    } finally {
+      svc.close();
+    }
+  }
+
+  @Test
+  void confirmPasswordReset_shouldConsumeCodeOnceAndKeepNewerCode() throws Exception {
+    CountDownLatch hashing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean armed = new AtomicBoolean();
+    PasswordHasher blocking = new PasswordHasher(1_000) {
+      @Override
+      public String hash(String password) {
+        if (armed.get()) {
+          hashing.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return super.hash(password);
+      }
+    };
+    UserService svc = new UserService(new SessionStore(), blocking, 2, 4);
+    try {
+      svc.seeded().join();
+      armed.set(true);
+      String code = svc.requestPasswordReset("user");
+      CompletableFuture<Boolean> first = svc.confirmPasswordResetAsync("user", code, "newpass1");
+      assertTrue(hashing.await(5, TimeUnit.SECONDS));
+
+      // 雜湊進行中：同一碼第二次確認失敗；期間新索取的碼不會被第一次確認刪掉
+      assertFalse(svc.confirmPasswordResetAsync("user", code, "newpass2").get(5, TimeUnit.SECONDS));
+      String newer = svc.requestPasswordReset("user");
+      release.countDown();
+      assertTrue(first.get(5, TimeUnit.SECONDS));
+
+      armed.set(false);
+      assertTrue(svc.confirmPasswordResetAsync("user", newer, "newpass3").get(5, TimeUnit.SECONDS));
+      assertNotNull(svc.login("user", "newpass3"));
+    } finally {
+      release.countDown();
+      svc.close();
+    }
+  }
+
+  @Test
+  void asyncVariants_shouldMatchBlockingResults() throws Exception {
+    assertTrue(userService.registerUserAsync("async", "pass1", "a@example.com", "0933333333")
+        .get(5, TimeUnit.SECONDS));
+    assertFalse(userService.registerUserAsync("async", "pass1", "a2@example.com", "0933333334")
+        .get(5, TimeUnit.SECONDS));
+
+    assertTrue(userService.authenticateAsync("async", "pass1").get(5, TimeUnit.SECONDS));
+    assertFalse(userService.changePasswordAsync("wrong", "pass2").get(5, TimeUnit.SECONDS));
+    assertTrue(userService.changePasswordAsync("pass1", "pass2").get(5, TimeUnit.SECONDS));
+
+    String code = userService.requestPasswordReset("async");
+    assertFalse(userService.confirmPasswordResetAsync("async", "bad", "pass3").get(5, TimeUnit.SECONDS));
+    assertTrue(userService.confirmPasswordResetAsync("async", code, "pass3").get(5, TimeUnit.SECONDS));
+    assertNotNull(userService.login("async", "pass3"));
+  }
+
+  // =========================
+  // Rate limiting
+  // =========================
+
+  @Test
+  void login_tooManyAttempts_shouldRejectEvenCorrectPassword() {
+    for (int i = 0; i < 10; i++) assertNull(userService.login("user", "wrong"));
 
+    assertNull(userService.login("user", "1234"));
+    assertNotNull(userService.login("admin", "admin123"));
+  }
+
+  @Test
+  void login_success_shouldResetAttemptCount() {
+    for (int i = 0; i < 9; i++) assertNull(userService.login("user", "wrong"));
+    assertNotNull(userService.login("user", "1234"));
+
+    for (int i = 0; i < 9; i++) assertNull(userService.login("user", "wrong"));
+    assertNotNull(userService.login("user", "1234"));
+  }
+
+  @Test
+  void requestPasswordReset_tooOften_shouldReturnNull() {
+    assertNotNull(userService.requestPasswordReset("user"));
+    assertNotNull(userService.requestPasswordReset("user@example.com"));
+    assertNotNull(userService.requestPasswordReset("0987654321"));
+
+    assertNull(userService.requestPasswordReset("user"));
+    assertNotNull(userService.requestPasswordReset("admin"));
+  }
+
+  @Test
+  void confirmPasswordReset_bruteForce_shouldBeCutOff() {
+    String code = userService.requestPasswordReset("user");
+    String wrong = code.equals("000000") ? "000001" : "000000";
+    for (int i = 0; i < 5; i++) assertFalse(userService.confirmPasswordReset("user", wrong, "abcd1234"));
+
+    assertFalse(userService.confirmPasswordReset("user", code, "abcd1234"));
+    assertTrue(userService.login("user", "1234") != null);
+  }
 }